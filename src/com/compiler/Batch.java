@@ -0,0 +1,234 @@
+package com.compiler;
+
+import com.compiler.lr1.LALRUtils;
+import com.compiler.lr1.LR1Table;
+import com.compiler.lr1.LR1Utils;
+import com.compiler.lr1.MinimalLR1Utils;
+import com.compiler.parser.CompiledLexer;
+import com.compiler.parser.Lexer;
+import com.compiler.parser.SourceFile;
+import com.compiler.parser.TokenBuffer;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 批量分析用户程序
+ * 词法分析器和LR(1)分析表只生成一次，之后并发地对每个文件进行词法分析和语法分析
+ * 1.运行环境支持虚拟线程时每个文件使用一个虚拟线程，否则使用与CPU核数相同的线程池
+ * 2.同时分析的文件数由信号量限制，避免一次性映射过多的文件
+ * 3.按输入顺序输出每个文件的结果（接受/拒绝及原因），最后输出总的耗时
+ * 用法：Batch [-j 并发数] [-lalr|-pgm] 目录或文件...，目录中的所有.txt文件都会被分析，
+ * 指定-lalr时使用LALR(1)分析表，指定-pgm时使用最小LR(1)分析表
+ * */
+public class Batch {
+    private static final String PARSE_PATH = "src/com/compiler/parser/parse.txt";
+    private static final String PRODUCTION_PATH = "src/com/compiler/lr1/production.txt";
+
+    /**
+     * 一个文件的分析结果
+     * */
+    public static class FileResult {
+        private final Path path;
+        private final boolean accepted;
+        private final String message;           //拒绝的原因，接受时为null
+        private final long nanos;               //分析用时
+
+        private FileResult(Path path, boolean accepted, String message, long nanos) {
+            this.path = path;
+            this.accepted = accepted;
+            this.message = message;
+            this.nanos = nanos;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public boolean isAccepted() {
+            return accepted;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            String time = String.format("%.2fms", nanos / 1e6);
+            if(accepted)
+                return "ACCEPT " + path + " (" + time + ")";
+            return "REJECT " + path + " (" + time + ")\n" + message;
+        }
+    }
+
+    /**
+     * 分析单个文件，词法分析器和分析表都是只读的，可以在多个线程中同时调用
+     * @param path  用户程序的路径
+     * @param lexer 词法分析器
+     * @param table LR(1)分析表
+     * @return      分析结果
+     * */
+    public static FileResult check(Path path, CompiledLexer lexer, LR1Table table){
+        long start = System.nanoTime();
+        SourceFile source;
+        try {
+            source = SourceFile.open(path.toString());
+        } catch (IOException e) {
+            return new FileResult(path, false, "读取文件失败:" + e.getMessage(), System.nanoTime() - start);
+        }
+        Lexer scanner = lexer.scanner(source);
+        TokenBuffer tokenBuffer = scanner.tokenize();
+        if(tokenBuffer == null)
+            return new FileResult(path, false, scanner.getErrorMessage(), System.nanoTime() - start);
+        String error = LR1Utils.checkTokenBuffer(tokenBuffer, table);
+        return new FileResult(path, error == null, error, System.nanoTime() - start);
+    }
+
+    /**
+     * 并发地分析多个文件
+     * @param paths       用户程序的路径
+     * @param lexer       词法分析器
+     * @param table       LR(1)分析表
+     * @param concurrency 同时分析的最大文件数
+     * @return            按输入顺序排列的分析结果
+     * */
+    public static List<FileResult> checkAll(List<Path> paths, CompiledLexer lexer, LR1Table table, int concurrency){
+        Semaphore permits = new Semaphore(Math.max(1, concurrency));
+        ExecutorService executor = newExecutor(concurrency);
+        List<Future<FileResult>> futures = new ArrayList<>();
+        try {
+            for(Path path : paths){
+                //获取许可后才提交，正在分析的文件数不超过concurrency
+                permits.acquire();
+                try {
+                    futures.add(executor.submit(() -> {
+                        try {
+                            return check(path, lexer, table);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+            List<FileResult> results = new ArrayList<>();
+            for(Future<FileResult> future : futures){
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("批量分析被中断", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("批量分析出错", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 创建执行分析任务的线程池
+     * 运行环境提供Executors.newVirtualThreadPerTaskExecutor（JDK 21及以上）时每个任务使用一个虚拟线程，
+     * 否则使用固定大小的线程池，通过反射调用以便在较低版本的JDK上编译
+     * @param concurrency 同时分析的最大文件数
+     * @return            线程池
+     * */
+    private static ExecutorService newExecutor(int concurrency){
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Math.max(1, Math.min(concurrency, Runtime.getRuntime().availableProcessors()));
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "batch-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * 收集需要分析的文件，目录中的所有.txt文件按路径排序
+     * @param args 目录或文件
+     * @return     文件列表
+     * */
+    private static List<Path> collectFiles(List<String> args) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        for(String arg : args){
+            Path path = Paths.get(arg);
+            if(Files.isDirectory(path)){
+                try (Stream<Path> stream = Files.walk(path)) {
+                    paths.addAll(stream.filter(Files::isRegularFile)
+                            .filter(p -> p.toString().endsWith(".txt"))
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            }
+            else{
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        boolean lalr = false;
+        boolean pgm = false;
+        List<String> inputs = new ArrayList<>();
+        for(int i = 0; i < args.length; ++i){
+            if(args[i].equals("-j") && i + 1 < args.length)
+                concurrency = Integer.parseInt(args[++i]);
+            else if(args[i].equals("-lalr"))
+                lalr = true;
+            else if(args[i].equals("-pgm"))
+                pgm = true;
+            else
+                inputs.add(args[i]);
+        }
+        if(inputs.isEmpty()){
+            System.out.println("用法: Batch [-j 并发数] [-lalr|-pgm] 目录或文件...");
+            return;
+        }
+        List<Path> paths = collectFiles(inputs);
+        //词法分析器和LR(1)分析表只生成一次
+        long setupStart = System.nanoTime();
+        CompiledLexer lexer = CompiledLexer.load(PARSE_PATH);
+        LR1Table table = lalr ? LALRUtils.buildLALRTable(PRODUCTION_PATH, false)
+                : pgm ? MinimalLR1Utils.buildMinimalLR1Table(PRODUCTION_PATH, false)
+                : LR1Utils.buildLR1Table(PRODUCTION_PATH, false);
+        if(table == null)
+            return;
+        long setupNanos = System.nanoTime() - setupStart;
+        long checkStart = System.nanoTime();
+        List<FileResult> results = checkAll(paths, lexer, table, concurrency);
+        long checkNanos = System.nanoTime() - checkStart;
+        int accepted = 0;
+        long totalNanos = 0;
+        for(FileResult result : results){
+            System.out.println(result);
+            if(result.isAccepted())
+                ++accepted;
+            totalNanos += result.getNanos();
+        }
+        System.out.println("----------------批量分析结果：------------------");
+        System.out.println("文件数: " + results.size() + ", 接受: " + accepted + ", 拒绝: " + (results.size() - accepted));
+        System.out.println(String.format("生成分析表: %.2fms, 分析用时: %.2fms, 各文件用时之和: %.2fms, 并发数: %d",
+                setupNanos / 1e6, checkNanos / 1e6, totalNanos / 1e6, concurrency));
+    }
+}
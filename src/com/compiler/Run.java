@@ -1,20 +1,50 @@
 package com.compiler;
 
+import com.compiler.lr1.LALRUtils;
+import com.compiler.lr1.LR1Table;
 import com.compiler.lr1.LR1Utils;
-import com.compiler.model.Token;
+import com.compiler.lr1.MinimalLR1Utils;
+import com.compiler.parser.Lexer;
+import com.compiler.parser.LexerDFA;
 import com.compiler.parser.ParserUtils;
-
-import java.util.List;
+import com.compiler.parser.Utf8Lexer;
 
 public class Run {
     public static void main(String[] args){
         String parsePath = "src/com/compiler/parser/parse.txt";
         String programPath = "src/com/compiler/parser/program.txt";
         String productionPath = "src/com/compiler/lr1/production.txt";
-        if(ParserUtils.parse(parsePath, programPath)){
-            //获取token
-            List<Token> tokenList = ParserUtils.tokenList;
-            LR1Utils.startLR1(tokenList, productionPath);
+        //指定-utf8时不解码用户程序，直接在UTF-8字节上进行词法分析
+        if(args.length > 0 && args[0].equals("-utf8")){
+            Utf8Lexer utf8Lexer = ParserUtils.createUtf8Lexer(ParserUtils.loadDFA(parsePath), programPath);
+            if(utf8Lexer != null){
+                LR1Utils.startLR1(utf8Lexer, productionPath);
+            }
+            return;
+        }
+        //指定-lalr时使用LALR(1)分析表，指定-pgm时使用最小LR(1)分析表
+        if(args.length > 0 && (args[0].equals("-lalr") || args[0].equals("-pgm"))){
+            ParserUtils.readProgramTXT(programPath);
+            Lexer lexer = ParserUtils.createLexer(ParserUtils.loadDFA(parsePath));
+            LR1Table table = args[0].equals("-lalr") ? LALRUtils.buildLALRTable(productionPath, true)
+                    : MinimalLR1Utils.buildMinimalLR1Table(productionPath, true);
+            if(lexer != null && table != null){
+                LR1Utils.matchTokenStream(lexer, table);
+            }
+            return;
+        }
+        //获取词法分析用的DFA，正规文法没有改变时直接使用预先生成的词法分析表
+        //指定-lazy时不预先生成DFA，扫描时才生成需要的DFA结点
+        LexerDFA dfa;
+        if(args.length > 0 && args[0].equals("-lazy"))
+            dfa = ParserUtils.buildLazyDFA(parsePath);
+        else
+            dfa = ParserUtils.loadDFA(parsePath);
+        //读取用户程序，语法分析时逐个识别token
+        ParserUtils.readProgramTXT(programPath);
+        Lexer lexer = ParserUtils.createLexer(dfa);
+        if(lexer != null){
+            LR1Utils.startLR1(lexer, productionPath);
         }
     }
 }
@@ -2,6 +2,7 @@ package com.compiler.lr1;
 
 import com.compiler.model.Production;
 import com.compiler.model.Symbol;
+import com.compiler.model.SymbolTable;
 
 import java.util.*;
 
@@ -15,6 +16,10 @@ public class Grammar {
     private Map<Symbol, FirstSet> firstSetMap;   //文法中所有非终结符对应的First集
     //以symbol为键，记录以symbol开头的产生式
     private final LinkedHashMap<Symbol, List<Production>> productionMap;
+    private final SymbolTable symbolTable;      //文法符号的编号
+    private final List<List<Production>> productionsById;  //以非终结符编号为下标的产生式
+    private BitSet[] firstSets;                 //以非终结符编号为下标的First集（终结符编号）
+    private boolean[] nullable;                 //以非终结符编号为下标，是否能推出ε
 
     /**
      * 构造函数
@@ -37,6 +42,19 @@ public class Grammar {
                 }
             }
         }
+        //为文法符号编号，开始符号之后按产生式的顺序编号
+        this.symbolTable = new SymbolTable();
+        symbolTable.intern(start);
+        for(List<Production> productionList : productionMap.values()){
+            for(Production production : productionList){
+                symbolTable.intern(production);
+            }
+        }
+        this.productionsById = new ArrayList<>(Collections.nCopies(symbolTable.size(), Collections.emptyList()));
+        for(Map.Entry<Symbol,List<Production>> entry : productionMap.entrySet()){
+            productionsById.set(symbolTable.idOf(entry.getKey()), entry.getValue());
+        }
+        computeFirstSets();
     }
 
     /**
@@ -87,94 +105,98 @@ public class Grammar {
     }
 
     /**
-     * 求解非终结符的 First集合
+     * 求解所有非终结符的First集（以编号表示）
      * 求法：
      * 对于产生式 A -> Xβ
-     * ① 若 X ∈ Vt，则 FIRST(A) = {X}
-     * ② 若 X ∈ Vn，且有产生式X ->δ,δ ∈ Vt，则δ ∈ FIRST(A) (非终结符，将首个终结符加入First集)
-     * ③ 若 X ∈ Vn，X →ε，则ε ∈ FIRST(A) (直接推导)
-     * ④ 若 X → Y1,Y2,……,Yn ∈ Vn,且Y1,Y2,……,Y(i-1)直接推出ε时,
-     *    FIRST(Y1) -ε, FIRST(Y2) -ε, …… ,FIRST(Yi)都包含在FIRST(X)中(无ε)
-     * ⑤ 若 ④ 中所有 Yi 都推出ε时,FIRST(X) = FIRST(Y1) ∪ …… ∪ FIRST(Yn) ∪ {ε}
-     * 反复运用 ② - ⑤ 步骤计算，直到FIRST集合不再增大为止
-     * @param VNSymbol 非终结符
-     * @return         该非终结符对应的First集
+     * ① 若 X ∈ Vt，则 X ∈ FIRST(A)
+     * ② 若 X ∈ Vn，则 FIRST(X) - {ε} 包含在 FIRST(A)中，若X能推出ε，则继续处理β
+     * ③ 若 A -> ε 或右部的所有符号都能推出ε，则A能推出ε
+     * 反复运用 ① - ③ 步骤计算，直到所有FIRST集合都不再增大为止
+     * 迭代求解不需要递归，因此左递归文法也可以正确求解
      * */
-    public FirstSet getFirstSet(Symbol VNSymbol){
-        //已经求过则直接返回
-        if(firstSetMap.containsKey(VNSymbol))
-            return firstSetMap.get(VNSymbol);
-        //创建一个First集
-        FirstSet firstSet = new FirstSet(Collections.singletonList(VNSymbol));
-        //获取该非终结符对应的产生式
-        List<Production> productionList = productionMap.get(VNSymbol);
-        List<Production> badProductions = new ArrayList<>();
-        for(Production production : productionList){
-            if(!production.isEpsilon()){
-                //该产生式非空
-                List<Symbol> rightSymbols = production.getRight();
-                if(rightSymbols.contains(VNSymbol)){
-                    /*
-                    * 当产生式右部包含左部符号时，形如A->aAb时
-                    * 则会出现递归调用的死循环的情况，需要特殊处理
-                    * */
-                    badProductions.add(production);
-                }
-                else{
-                    boolean isAllEpsilon = true;    //记录右侧的非终结符的First集合都包含ε
-                    //遍历产生式右部
-                    for(Symbol symbol : rightSymbols){
-                        if(symbol.isVt()){
-                            //该字符是终结符，则直接得到First集合
-                            firstSet.add(symbol);
-                            isAllEpsilon = false;
-                            break;
-                        }
-                        //如果是非终结符X，则递归调用这个函数
-                        //FIXME:对于左递归文法，如 A -> Ba, B -> A, 调用时会产生死循环
-                        FirstSet nextFirstSet = getFirstSet(symbol);
-                        firstSet.add(nextFirstSet.getSet());
-                        //如果X包含空，则继续往下一个字符推导
-                        if(!nextFirstSet.isHasEpsilon()){
-                            isAllEpsilon = false;
-                            break;
+    private void computeFirstSets(){
+        int size = symbolTable.size();
+        firstSets = new BitSet[size];
+        nullable = new boolean[size];
+        for(int id = 0; id < size; ++id){
+            if(!symbolTable.isTerminal(id))
+                firstSets[id] = new BitSet(size);
+        }
+        boolean changed = true;
+        while(changed){
+            changed = false;
+            for(List<Production> productionList : productionMap.values()){
+                for(Production production : productionList){
+                    int left = production.getLeftId();
+                    BitSet firstSet = firstSets[left];
+                    boolean isAllEpsilon = true;    //右部的所有符号都能推出ε
+                    if(!production.isEpsilon()){
+                        for(int symbol : production.getRightIds()){
+                            if(symbolTable.isTerminal(symbol)){
+                                //终结符则直接得到First集
+                                if(!firstSet.get(symbol)){
+                                    firstSet.set(symbol);
+                                    changed = true;
+                                }
+                                isAllEpsilon = false;
+                                break;
+                            }
+                            //非终结符则合并其First集
+                            int cardinality = firstSet.cardinality();
+                            firstSet.or(firstSets[symbol]);
+                            if(firstSet.cardinality() != cardinality)
+                                changed = true;
+                            if(!nullable[symbol]){
+                                isAllEpsilon = false;
+                                break;
+                            }
                         }
                     }
-                    if(isAllEpsilon){
-                        firstSet.setHasEpsilon(true);
+                    if(isAllEpsilon && !nullable[left]){
+                        nullable[left] = true;
+                        changed = true;
                     }
                 }
             }
-            else{
-                firstSet.setHasEpsilon(true);   //First集为ε
-            }
         }
-        //对形如A -> aAb的产生式进行特殊处理
-        for(Production production : badProductions){
-            List<Symbol> rightSymbols = production.getRight();
-            for(Symbol symbol : rightSymbols){
-                if(symbol.isVt()) {
-                    //是终结符
-                    firstSet.add(symbol);
-                    break;
-                }
-                if(symbol.equals(VNSymbol)){
-                    //形如A -> Aa 的形式
-                    if(!firstSet.isHasEpsilon())
-                        //如果A不能推出空，则该产生式是无效产生式，直接跳出
-                        break;
-                }
-                else{
-                    //形如A -> Ba 的形式
-                    FirstSet nextFirstSet = getFirstSet(symbol);
-                    firstSet.add(nextFirstSet.getSet());
-                    if(!nextFirstSet.isHasEpsilon())
-                        //如果B能推出空，则继续查找下一个字符，否则跳出
-                        break;
-                }
+    }
+
+    /**
+     * 求文法符号串βa的First集，结果以终结符编号的形式加入到result中
+     * @param symbols   文法符号串的编号
+     * @param from      β在symbols中的开始位置
+     * @param lookahead 展望符a的编号
+     * @param result    用于保存结果的集合
+     * */
+    public void firstOf(int[] symbols, int from, int lookahead, BitSet result){
+        for(int i = from; i < symbols.length; ++i){
+            int symbol = symbols[i];
+            //终结符则直接得出结果
+            if(symbolTable.isTerminal(symbol)){
+                result.set(symbol);
+                return;
             }
+            result.or(firstSets[symbol]);
+            //如果当前非终结的First集包含空串，则需要遍历下一个，否则直接得出结果
+            if(!nullable[symbol])
+                return;
         }
-        firstSetMap.put(VNSymbol,firstSet);
+        result.set(lookahead);
+    }
+
+    /**
+     * 获取非终结符对应的First集
+     * @param VNSymbol 非终结符
+     * @return         该非终结符对应的First集
+     * */
+    public FirstSet getFirstSet(Symbol VNSymbol){
+        FirstSet firstSet = new FirstSet(Collections.singletonList(VNSymbol));
+        int id = symbolTable.idOf(VNSymbol);
+        BitSet bits = firstSets[id];
+        for(int symbol = bits.nextSetBit(0); symbol >= 0; symbol = bits.nextSetBit(symbol + 1)){
+            firstSet.add(symbolTable.get(symbol));
+        }
+        firstSet.setHasEpsilon(nullable[id]);
         return firstSet;
     }
 
@@ -187,9 +209,9 @@ public class Grammar {
             //求过了就不用再求一遍
             return firstSetMap;
         firstSetMap = new HashMap<>();
-        productionMap.keySet().forEach(
-                this::getFirstSet
-        );
+        for(Symbol symbol : productionMap.keySet()){
+            firstSetMap.put(symbol, getFirstSet(symbol));
+        }
         return firstSetMap;
     }
 
@@ -199,34 +221,42 @@ public class Grammar {
      * @return        该文法符号串的First集合
      * */
     public FirstSet getFirstSetBySymbols(List<Symbol> symbols){
-        //求解所有非终结符对应的First集
-        Map<Symbol,FirstSet> firstSetMap = getFirstSetMap();
-        //FIXME 由于Symbol类的限制，这里实际只传了一个Symbol进去，而不是整个列表，可能导致最后结果错误
         FirstSet firstSet = new FirstSet(symbols);
+        BitSet bits = new BitSet();
         boolean isAllEpsilon = true;    //产生式中的所有元素是都包含空
         for(Symbol symbol : symbols){
+            int id = symbolTable.idOf(symbol);
             //终结符则直接得出结果
             if(symbol.isVt()){
                 firstSet.add(symbol);
                 isAllEpsilon = false;
                 break;
             }
-            //非终结符则查找map
-            FirstSet current = firstSetMap.get(symbol);
-            if(current == null)
+            if(id == SymbolTable.NO_SYMBOL)
                 continue;
-            firstSet.add(current.getSet());
-            //如果当前非终结的First集包含空串，则需要遍历下一个，否则直接得出结果
-            if(!current.isHasEpsilon()){
+            bits.or(firstSets[id]);
+            if(!nullable[id]){
                 isAllEpsilon = false;
                 break;
             }
         }
+        for(int symbol = bits.nextSetBit(0); symbol >= 0; symbol = bits.nextSetBit(symbol + 1)){
+            firstSet.add(symbolTable.get(symbol));
+        }
         if(isAllEpsilon)
             firstSet.setHasEpsilon(true);
         return firstSet;
     }
 
+    /**
+     * 非终结符是否能推出ε
+     * @param id 文法符号的编号
+     * @return   能推出ε时返回true，终结符返回false
+     * */
+    public boolean isNullable(int id){
+        return nullable[id];
+    }
+
     public Symbol getStart() {
         return start;
     }
@@ -243,6 +273,19 @@ public class Grammar {
         return productionMap;
     }
 
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * 获取以非终结符为左部的产生式
+     * @param id 非终结符的编号
+     * @return   产生式列表，终结符返回空列表
+     * */
+    public List<Production> getProductions(int id) {
+        return productionsById.get(id);
+    }
+
     @Override
     public String toString() {
         //生成Grammar头部
@@ -268,7 +311,7 @@ public class Grammar {
         stringBuilder.append("\t}\n");
         //输出所有非终结符的First集
         stringBuilder.append("\tFirstSet{\n");
-        for(Map.Entry<Symbol,FirstSet> entry : firstSetMap.entrySet()){
+        for(Map.Entry<Symbol,FirstSet> entry : getFirstSetMap().entrySet()){
             stringBuilder.append("\t\t").append(entry.getValue().toString()).append("\n");
         }
         stringBuilder.append("\t}\n");
@@ -0,0 +1,247 @@
+package com.compiler.lr1;
+
+import com.compiler.model.Production;
+import com.compiler.model.Symbol;
+import com.compiler.model.SymbolTable;
+
+import java.util.*;
+
+/**
+ * 文法的LR(0)项目，以int编号
+ * 产生式p的项目编号为firstItems[p]到firstItems[p]+右部长度，项目编号+1即为分隔符后移一位的项目，
+ * 分隔符在末尾的项目为归约项目
+ * 产生式按LR1TableBuilder中的顺序编号，供不生成ProductionItem对象的构造方式使用
+ * */
+class ItemTable {
+    final Grammar grammar;
+    final SymbolTable symbolTable;
+    final int start;                        //增广文法开始符号的编号
+    final List<Production> productionList;  //与LR1TableBuilder中的编号相同
+    final int[] lefts;                      //产生式左部的编号
+    final int[][] rights;                   //产生式右部的编号
+    final int[][] productionsOf;            //以非终结符编号为下标的产生式编号
+    final int[] firstItems;                 //产生式的第一个项目
+    final int[] productionOf;               //项目所属的产生式
+    final int[] positionOf;                 //项目的分隔符位置
+    final boolean[] nullableRest;           //项目分隔符之后的符号串能否推出ε
+    private final BitSet[] firstAfter;      //项目分隔符之后第二个符号开始的符号串的First集，按需计算
+    private final BitSet[] nonterminalLookaheads;   //求闭包时非核心项目的展望符，以左部为下标
+    private final boolean[] pending;        //求闭包时非终结符是否在展望符增大的队列中
+
+    ItemTable(Grammar grammar) {
+        this.grammar = grammar;
+        this.symbolTable = grammar.getSymbolTable();
+        this.start = symbolTable.idOf(grammar.getStart());
+        this.productionList = new ArrayList<>();
+        for(List<Production> productions : grammar.getProductionMap().values()){
+            productionList.addAll(productions);
+        }
+        int count = productionList.size();
+        lefts = new int[count];
+        rights = new int[count][];
+        firstItems = new int[count];
+        int itemCount = 0;
+        int[] productionCounts = new int[symbolTable.size()];
+        for(int p = 0; p < count; ++p){
+            lefts[p] = productionList.get(p).getLeftId();
+            rights[p] = productionList.get(p).getRightIds();
+            firstItems[p] = itemCount;
+            itemCount += rights[p].length + 1;
+            ++productionCounts[lefts[p]];
+        }
+        productionsOf = new int[symbolTable.size()][];
+        for(int symbol = 0; symbol < productionsOf.length; ++symbol){
+            productionsOf[symbol] = new int[productionCounts[symbol]];
+            productionCounts[symbol] = 0;
+        }
+        for(int p = 0; p < count; ++p){
+            productionsOf[lefts[p]][productionCounts[lefts[p]]++] = p;
+        }
+        productionOf = new int[itemCount];
+        positionOf = new int[itemCount];
+        nullableRest = new boolean[itemCount];
+        firstAfter = new BitSet[itemCount];
+        nonterminalLookaheads = new BitSet[symbolTable.size()];
+        pending = new boolean[symbolTable.size()];
+        for(int p = 0; p < count; ++p){
+            int length = rights[p].length;
+            boolean nullable = true;
+            for(int position = length; position >= 0; --position){
+                int item = firstItems[p] + position;
+                productionOf[item] = p;
+                positionOf[item] = position;
+                nullableRest[item] = nullable;
+                if(position > 0){
+                    int symbol = rights[p][position - 1];
+                    nullable &= !symbolTable.isTerminal(symbol) && grammar.isNullable(symbol);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 项目分隔符之后的文法符号，归约项目返回-1
+     * */
+    int nextSymbol(int item){
+        int[] right = rights[productionOf[item]];
+        int position = positionOf[item];
+        return position < right.length ? right[position] : -1;
+    }
+
+    /**
+     * 对项目A->α•Bβ求FIRST(β)，β能否推出ε由nullableRest[item + 1]给出
+     * @param item 分隔符不在末尾的项目
+     * @return     First集（终结符编号），不能修改
+     * */
+    BitSet firstAfter(int item){
+        BitSet result = firstAfter[item];
+        if(result == null){
+            result = new BitSet(symbolTable.size());
+            //以不是文法符号的编号作为展望符求FIRST(β)，再去掉它
+            int marker = symbolTable.size();
+            grammar.firstOf(rights[productionOf[item]], positionOf[item] + 1, marker, result);
+            result.clear(marker);
+            firstAfter[item] = result;
+        }
+        return result;
+    }
+
+    /**
+     * LR(0)项目集的闭包，每个非终结符的产生式只加入一次
+     * @param kernel 核心项目
+     * @param added  以非终结符编号为下标，记录已加入闭包的项目集的标记
+     * @param stamp  当前项目集的标记，每次调用不同
+     * @return       闭包中的所有项目，核心项目在前
+     * */
+    int[] closure(int[] kernel, int[] added, int stamp){
+        int[] result = Arrays.copyOf(kernel, Math.max(kernel.length * 2, 16));
+        int size = kernel.length;
+        for(int i = 0; i < size; ++i){
+            int symbol = nextSymbol(result[i]);
+            if(symbol < 0 || symbolTable.isTerminal(symbol) || added[symbol] == stamp)
+                continue;
+            added[symbol] = stamp;
+            for(int production : productionsOf[symbol]){
+                if(size == result.length)
+                    result = Arrays.copyOf(result, size * 2);
+                result[size++] = firstItems[production];
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * 求LR(1)项目集的闭包中每个项目的展望符
+     * 若有项目A->α•Bβ,a属于闭包,B->δ是文法中的产生式，b∈FIRST(βa),则B->•δ,b也属于闭包，
+     * 因此非核心项目B->•δ的展望符只与B有关，为所有A->α•Bβ,a的FIRST(βa)之和，
+     * 每个非终结符的展望符用一个BitSet表示，整个集合按位或传播，按非终结符求到不动点
+     * @param closure          closure求得的LR(0)闭包，核心项目在前
+     * @param kernelLookaheads 每个核心项目的展望符
+     * @return                 闭包中每个项目的展望符，核心项目直接使用kernelLookaheads中的集合，
+     *                         左部相同的非核心项目共用同一个集合，都不能修改
+     * */
+    BitSet[] closureLookaheads(int[] closure, BitSet[] kernelLookaheads){
+        Deque<Integer> changed = new ArrayDeque<>();
+        for(int item : closure){
+            int symbol = nextSymbol(item);
+            if(symbol >= 0 && !symbolTable.isTerminal(symbol))
+                nonterminalLookaheads[symbol] = new BitSet(symbolTable.size());
+        }
+        for(int i = 0; i < kernelLookaheads.length; ++i){
+            propagate(closure[i], kernelLookaheads[i], changed);
+        }
+        while(!changed.isEmpty()){
+            int left = changed.poll();
+            pending[left] = false;
+            for(int production : productionsOf[left]){
+                propagate(firstItems[production], nonterminalLookaheads[left], changed);
+            }
+        }
+        BitSet[] lookaheads = new BitSet[closure.length];
+        for(int i = 0; i < closure.length; ++i){
+            lookaheads[i] = i < kernelLookaheads.length ? kernelLookaheads[i]
+                    : nonterminalLookaheads[lefts[productionOf[closure[i]]]];
+        }
+        return lookaheads;
+    }
+
+    /**
+     * 对项目A->α•Bβ，将FIRST(β lookahead)加入B的展望符，增大时将B加入changed
+     * */
+    private void propagate(int item, BitSet lookahead, Deque<Integer> changed){
+        int symbol = nextSymbol(item);
+        if(symbol < 0 || symbolTable.isTerminal(symbol))
+            return;
+        BitSet target = nonterminalLookaheads[symbol];
+        int cardinality = target.cardinality();
+        target.or(firstAfter(item));
+        if(nullableRest[item + 1])
+            target.or(lookahead);
+        if(target.cardinality() != cardinality && !pending[symbol]){
+            pending[symbol] = true;
+            changed.add(symbol);
+        }
+    }
+
+    /**
+     * @return 开始项目集的核心项目，即S'->•S
+     * */
+    int[] startKernel(){
+        int[] kernel = new int[productionsOf[start].length];
+        for(int i = 0; i < kernel.length; ++i){
+            kernel[i] = firstItems[productionsOf[start][i]];
+        }
+        return kernel;
+    }
+
+    /**
+     * 项目的字符串形式
+     * @param item      项目
+     * @param lookahead 展望符集合，为null时不输出
+     * @return          如A->a•b或A->a•b,x/y
+     * */
+    String toString(int item, BitSet lookahead){
+        Production production = productionList.get(productionOf[item]);
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append(production.getLeft().getContent()).append("->");
+        List<Symbol> right = production.getRight();
+        for(int i = 0; i < right.size(); ++i){
+            if(i == positionOf[item])
+                stringBuilder.append(ProductionItem.DELIMITER);
+            stringBuilder.append(right.get(i).getContent());
+        }
+        if(positionOf[item] == right.size())
+            stringBuilder.append(ProductionItem.DELIMITER);
+        if(lookahead != null && !lookahead.isEmpty()){
+            stringBuilder.append(",");
+            for(int symbol = lookahead.nextSetBit(0); symbol >= 0; symbol = lookahead.nextSetBit(symbol + 1)){
+                stringBuilder.append(symbolTable.get(symbol).getContent()).append("/");
+            }
+            stringBuilder.deleteCharAt(stringBuilder.length() - 1);
+        }
+        return stringBuilder.toString();
+    }
+
+    /**
+     * 以内容比较的核心项目，用于项目集去重
+     * */
+    static class KernelKey {
+        private final int[] items;
+        private final int hash;
+
+        KernelKey(int[] items) {
+            this.items = items;
+            this.hash = Arrays.hashCode(items);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof KernelKey && Arrays.equals(items, ((KernelKey) o).items);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
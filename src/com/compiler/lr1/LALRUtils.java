@@ -0,0 +1,508 @@
+package com.compiler.lr1;
+
+import com.compiler.model.Production;
+import com.compiler.model.SymbolTable;
+
+import java.util.*;
+
+/**
+ * LALR(1)分析表的构造
+ * 不生成规范LR(1)项目集族，而是直接生成LR(0)项目集族（即合并同心项目集后的LR(1)项目集族），
+ * 再用DeRemer–Pennello方法计算归约项目的展望符：
+ * 1.对每个非终结符转换(p,A)，DR(p,A)为GOTO(p,A)中可以直接移进的终结符
+ * 2.(p,A) reads (r,C)：r=GOTO(p,A)，GOTO(r,C)存在且C能推出ε，Read为DR沿reads关系的闭包
+ * 3.(p,A) includes (p',B)：有产生式B->βAγ，γ能推出ε，且从p'读入β到达p，Follow为Read沿includes关系的闭包
+ * 4.(q,A->ω) lookback (p,A)：从p读入ω到达q，归约项目的展望符为它lookback的所有转换的Follow之和
+ * 闭包用digraph算法求得，同一个强连通分量中的转换集合相同，时间与关系的边数成线性
+ * 项目用int表示（产生式第一个项目的编号+分隔符的位置），不创建ProductionItem对象
+ * ε与LR(1)中相同，作为只在其它符号都不匹配时才移进的终结符，不会出现在展望符中
+ * 合并同心项目集可能引入归约-归约冲突，所有冲突都会被记录：移进-归约冲突选择移进，归约-归约冲突选择文法中靠前的产生式
+ * 合并后移进ε的后继项目集可能在项目集本身不接受的展望符上归约，驱动程序没有匹配的动作时会移进ε再归约，
+ * 如果这样不读取输入就回到同一个项目集，分析不会结束，重复移进ε的表项也作为移进-归约冲突记录
+ * */
+public class LALRUtils {
+
+    /**
+     * 读取产生式，生成LALR(1)分析表，冲突总是输出
+     * @param productionPath 语法分析的产生式列表
+     * @param print          是否输出项目集和分析表
+     * @return               LALR(1)分析表，未读取到任何产生式时返回null
+     * */
+    public static LR1Table buildLALRTable(String productionPath, boolean print) {
+        List<Production> productionList = LR1Utils.readProductionTXT(productionPath);
+        if(productionList.isEmpty()){
+            System.out.println("语法分析错误！未读取到任何产生式");
+            return null;
+        }
+        //将产生式集合的第一个产生的左部作为语法的开始符号
+        Grammar grammar = Grammar.creat(productionList.get(0).getLeft(), productionList);
+        List<String> conflicts = new ArrayList<>();
+        LR1Table table = createLALRTable(grammar, conflicts, print);
+        for(String conflict : conflicts){
+            System.out.println(conflict);
+        }
+        if(print)
+            System.out.println("LALR(1)分析过程");
+        return table;
+    }
+
+    /**
+     * 生成LALR(1)分析表
+     * @param grammar   文法
+     * @param conflicts 用于保存冲突信息，每个冲突一条
+     * @param print     是否输出项目集和分析表
+     * @return          LALR(1)分析表
+     * */
+    public static LR1Table createLALRTable(Grammar grammar, List<String> conflicts, boolean print){
+        ItemTable items = new ItemTable(grammar);
+        Automaton automaton = new Automaton(items);
+        BitSet[][] lookaheads = computeLookaheads(items, automaton);
+        SymbolTable symbolTable = grammar.getSymbolTable();
+        int start = symbolTable.idOf(grammar.getStart());
+        LR1TableBuilder table = new LR1TableBuilder(symbolTable, 0, automaton.size(), items.productionList);
+        for(int state = 0; state < automaton.size(); ++state){
+            int[] transitions = automaton.transitions.get(state);
+            int[] closure = automaton.closures.get(state);
+            //移进和goto不会冲突
+            for(int item : closure){
+                int symbol = items.nextSymbol(item);
+                if(symbol < 0)
+                    continue;
+                if(symbolTable.isTerminal(symbol))
+                    table.setAction(state, symbol, LR1Table.encode(LR1Table.SHIFT, transitions[symbol]));
+                else
+                    table.setGoto(state, symbol, transitions[symbol]);
+            }
+            int[] reduceItems = automaton.reduceItems.get(state);
+            for(int i = 0; i < reduceItems.length; ++i){
+                int production = items.productionOf[reduceItems[i]];
+                if(items.lefts[production] == start){
+                    //S'->S•，为ACC
+                    table.setAction(state, SymbolTable.END, LR1Table.encode(LR1Table.ACCEPT, 0), conflicts);
+                    continue;
+                }
+                BitSet lookahead = lookaheads[state][i];
+                int action = LR1Table.encode(LR1Table.REDUCE, production);
+                for(int symbol = lookahead.nextSetBit(0); symbol >= 0; symbol = lookahead.nextSetBit(symbol + 1)){
+                    table.setAction(state, symbol, action, conflicts);
+                }
+            }
+        }
+        //项目集不接受的符号会移进ε，合并后移进ε再归约可能不读取输入就重复
+        //重复时栈或者不断增长，或者在某个位置之上循环，因此从起始项目集和每个项目集及其后继组成的栈开始模拟
+        int symbolCount = symbolTable.size();
+        boolean[] looping = new boolean[automaton.size() * symbolCount];
+        List<int[]> stacks = new ArrayList<>();
+        stacks.add(new int[]{0});
+        for(int state = 0; state < automaton.size(); ++state){
+            for(int next : automaton.transitions.get(state)){
+                if(next >= 0)
+                    stacks.add(new int[]{state, next});
+            }
+        }
+        for(int[] stack : stacks){
+            for(int symbol = 0; symbol < symbolCount; ++symbol){
+                if(!symbolTable.isTerminal(symbol) || symbol == SymbolTable.EPSILON)
+                    continue;
+                int loop = epsilonLoop(table, items, automaton.size(), stack.clone(), symbol);
+                if(loop >= 0)
+                    looping[loop * symbolCount + symbol] = true;
+            }
+        }
+        for(int state = 0; state < automaton.size(); ++state){
+            int shift = table.getAction(state, SymbolTable.EPSILON);
+            for(int symbol = 0; symbol < symbolCount; ++symbol){
+                if(looping[state * symbolCount + symbol]){
+                    conflicts.add("移进-归约冲突: 项目集I" + state + ", 展望符'" + symbolTable.get(symbol).getContent()
+                            + "', " + table.actionToString(shift) + "/出错, 选择" + table.actionToString(shift)
+                            + ", 不读取输入时移进ε和归约不会结束");
+                }
+            }
+        }
+        if(print){
+            printItemSets(items, automaton, lookaheads);
+            int[] states = new int[automaton.size()];
+            for(int i = 0; i < states.length; ++i){
+                states[i] = i;
+            }
+            System.out.println("--------------------LALR(1)分析表：----------------");
+            LR1Utils.printLR1Table("LALR(1)", states, grammar, table);
+        }
+        return table.build();
+    }
+
+    /**
+     * 按驱动程序的规则对输入符号symbol进行移进ε和归约，判断是否不读取输入就不会结束
+     * 与LR1Utils.matchInput相同，同一项目集再次移进ε时，如果它没有被弹出，或者位置相同且之下的栈没有改变，动作只会重复
+     * 只模拟给定的栈，需要弹出栈底时停止
+     * @param table      已填入所有action和goto的分析表
+     * @param items      产生式的右部和左部
+     * @param stateCount 项目集数
+     * @param stack      开始时的栈，栈底为起始项目集或任意项目集及其后继
+     * @param symbol     终结符的编号
+     * @return           重复移进ε的项目集，会结束时返回-1
+     * */
+    private static int epsilonLoop(LR1TableBuilder table, ItemTable items, int stateCount, int[] stack, int symbol){
+        int top = stack.length - 1;
+        int[] epsilonStates = new int[16];
+        int[] epsilonTops = new int[16];
+        boolean[] epsilonPopped = new boolean[16];
+        int epsilonCount = 0;
+        //移进ε的次数受项目集数限制，有环的文法（A=>+A）中归约可能不改变栈，在步数上限处停止
+        for(int steps = 0; steps < stateCount * stateCount; ++steps){
+            int current = stack[top];
+            int action = table.getAction(current, symbol);
+            if(action == LR1Table.ERROR){
+                action = table.getAction(current, SymbolTable.EPSILON);
+                if(LR1Table.kindOf(action) == LR1Table.SHIFT){
+                    for(int i = 0; i < epsilonCount; ++i){
+                        if(epsilonStates[i] == current && (!epsilonPopped[i] || epsilonTops[i] == top))
+                            return current;
+                    }
+                    if(epsilonCount == epsilonStates.length){
+                        epsilonStates = Arrays.copyOf(epsilonStates, epsilonCount * 2);
+                        epsilonTops = Arrays.copyOf(epsilonTops, epsilonCount * 2);
+                        epsilonPopped = Arrays.copyOf(epsilonPopped, epsilonCount * 2);
+                    }
+                    epsilonStates[epsilonCount] = current;
+                    epsilonTops[epsilonCount] = top;
+                    epsilonPopped[epsilonCount++] = false;
+                    if(++top == stack.length)
+                        stack = Arrays.copyOf(stack, top * 2);
+                    stack[top] = LR1Table.targetOf(action);
+                    continue;
+                }
+            }
+            //移进symbol、接受或出错时都会结束
+            if(LR1Table.kindOf(action) != LR1Table.REDUCE)
+                return -1;
+            int production = LR1Table.targetOf(action);
+            int length = items.rights[production].length;
+            if(length > top)
+                return -1;
+            top -= length;
+            while(epsilonCount > 0 && epsilonTops[epsilonCount - 1] > top + 1)
+                --epsilonCount;
+            for(int i = epsilonCount - 1; i >= 0 && epsilonTops[i] == top + 1; --i)
+                epsilonPopped[i] = true;
+            int target = table.getGoto(stack[top], items.lefts[production]);
+            if(target == LR1Table.NO_GOTO)
+                return -1;
+            stack[++top] = target;
+        }
+        return -1;
+    }
+
+    /**
+     * 用DeRemer–Pennello方法计算每个归约项目的展望符
+     * @return 以项目集序号和归约项目在automaton.reduceItems中的下标为下标的展望符集合
+     * */
+    private static BitSet[][] computeLookaheads(ItemTable items, Automaton automaton){
+        SymbolTable symbolTable = items.symbolTable;
+        int symbolCount = symbolTable.size();
+        int stateCount = automaton.size();
+        //为所有非终结符转换(p,A)编号
+        int[][] transitionIds = new int[stateCount][];
+        int transitionCount = 0;
+        for(int state = 0; state < stateCount; ++state){
+            int[] transitions = automaton.transitions.get(state);
+            int[] ids = new int[symbolCount];
+            Arrays.fill(ids, -1);
+            for(int symbol = 0; symbol < symbolCount; ++symbol){
+                if(transitions[symbol] >= 0 && !symbolTable.isTerminal(symbol))
+                    ids[symbol] = transitionCount++;
+            }
+            transitionIds[state] = ids;
+        }
+        int[] fromStates = new int[transitionCount];
+        int[] symbols = new int[transitionCount];
+        for(int state = 0; state < stateCount; ++state){
+            for(int symbol = 0; symbol < symbolCount; ++symbol){
+                int id = transitionIds[state][symbol];
+                if(id >= 0){
+                    fromStates[id] = state;
+                    symbols[id] = symbol;
+                }
+            }
+        }
+        //DR和reads关系
+        BitSet[] sets = new BitSet[transitionCount];
+        Relation reads = new Relation(transitionCount);
+        for(int id = 0; id < transitionCount; ++id){
+            int target = automaton.transitions.get(fromStates[id])[symbols[id]];
+            int[] transitions = automaton.transitions.get(target);
+            BitSet set = new BitSet(symbolCount);
+            for(int symbol = 0; symbol < symbolCount; ++symbol){
+                if(transitions[symbol] < 0)
+                    continue;
+                if(symbolTable.isTerminal(symbol)){
+                    //ε只在其它符号都不匹配时才移进，不作为展望符
+                    if(symbol != SymbolTable.EPSILON)
+                        set.set(symbol);
+                }
+                else if(items.grammar.isNullable(symbol)){
+                    reads.add(id, transitionIds[target][symbol]);
+                }
+            }
+            sets[id] = set;
+        }
+        //增广文法的开始产生式S'->•S,#，#跟在开始项目集中读入的S之后
+        for(int production : items.productionsOf[items.start]){
+            int state = 0;
+            for(int item = items.firstItems[production]; items.nextSymbol(item) >= 0; ++item){
+                int symbol = items.nextSymbol(item);
+                if(!symbolTable.isTerminal(symbol) && items.nullableRest[item + 1])
+                    sets[transitionIds[state][symbol]].set(SymbolTable.END);
+                state = automaton.transitions.get(state)[symbol];
+            }
+        }
+        //includes和lookback关系
+        Relation includes = new Relation(transitionCount);
+        int[] reduceOffsets = new int[stateCount];     //项目集的第一个归约项目在lookback中的编号
+        int reduceCount = 0;
+        for(int state = 0; state < stateCount; ++state){
+            reduceOffsets[state] = reduceCount;
+            reduceCount += automaton.reduceItems.get(state).length;
+        }
+        Relation lookback = new Relation(reduceCount);
+        for(int id = 0; id < transitionCount; ++id){
+            for(int production : items.productionsOf[symbols[id]]){
+                int state = fromStates[id];
+                int item = items.firstItems[production];
+                for(; items.nextSymbol(item) >= 0; ++item){
+                    int symbol = items.nextSymbol(item);
+                    if(!symbolTable.isTerminal(symbol) && items.nullableRest[item + 1])
+                        includes.add(transitionIds[state][symbol], id);
+                    state = automaton.transitions.get(state)[symbol];
+                }
+                //从p读入整个右部后到达归约项目所在的项目集
+                int index = indexOf(automaton.reduceItems.get(state), item);
+                lookback.add(reduceOffsets[state] + index, id);
+            }
+        }
+        //Read = DR沿reads的闭包，Follow = Read沿includes的闭包
+        digraph(reads.toArray(), sets);
+        digraph(includes.toArray(), sets);
+        int[][] lookbacks = lookback.toArray();
+        BitSet[][] lookaheads = new BitSet[stateCount][];
+        for(int state = 0; state < stateCount; ++state){
+            int count = automaton.reduceItems.get(state).length;
+            lookaheads[state] = new BitSet[count];
+            for(int i = 0; i < count; ++i){
+                BitSet lookahead = new BitSet(symbolCount);
+                for(int id : lookbacks[reduceOffsets[state] + i]){
+                    lookahead.or(sets[id]);
+                }
+                lookaheads[state][i] = lookahead;
+            }
+        }
+        return lookaheads;
+    }
+
+    private static int indexOf(int[] array, int value){
+        for(int i = 0; i < array.length; ++i){
+            if(array[i] == value)
+                return i;
+        }
+        throw new RuntimeException("项目集中没有对应的归约项目");
+    }
+
+    /**
+     * DeRemer–Pennello的digraph算法（非递归实现）
+     * 对关系R求F(x) = F'(x) ∪ ∪{F(y) | x R+ y}，结果直接保存在sets中
+     * 同一个强连通分量中的结点在分量的根结点完成时得到相同的集合
+     * @param relation 以结点为下标的后继结点
+     * @param sets     初始为F'，完成后为F
+     * */
+    private static void digraph(int[][] relation, BitSet[] sets){
+        int n = sets.length;
+        int[] depth = new int[n];               //0表示未访问，Integer.MAX_VALUE表示已完成
+        int[] stack = new int[n];
+        int top = 0;
+        int[] frameNodes = new int[n];          //模拟递归的调用栈
+        int[] frameEdges = new int[n];
+        int[] frameDepths = new int[n];
+        for(int root = 0; root < n; ++root){
+            if(depth[root] != 0)
+                continue;
+            stack[top++] = root;
+            depth[root] = top;
+            frameNodes[0] = root;
+            frameEdges[0] = 0;
+            frameDepths[0] = top;
+            int frames = 1;
+            while(frames > 0){
+                int x = frameNodes[frames - 1];
+                int[] edges = relation[x];
+                if(frameEdges[frames - 1] < edges.length){
+                    int y = edges[frameEdges[frames - 1]++];
+                    if(depth[y] == 0){
+                        //相当于递归访问y
+                        stack[top++] = y;
+                        depth[y] = top;
+                        frameNodes[frames] = y;
+                        frameEdges[frames] = 0;
+                        frameDepths[frames] = top;
+                        ++frames;
+                    }
+                    else{
+                        depth[x] = Math.min(depth[x], depth[y]);
+                        sets[x].or(sets[y]);
+                    }
+                    continue;
+                }
+                //x的所有后继都已访问
+                --frames;
+                if(depth[x] == frameDepths[frames]){
+                    //x是强连通分量的根，分量中的结点都得到x的集合
+                    int node;
+                    do{
+                        node = stack[--top];
+                        depth[node] = Integer.MAX_VALUE;
+                        if(node != x)
+                            sets[node].or(sets[x]);
+                    }while(node != x);
+                }
+                if(frames > 0){
+                    int parent = frameNodes[frames - 1];
+                    depth[parent] = Math.min(depth[parent], depth[x]);
+                    sets[parent].or(sets[x]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 输出LR(0)项目集，归约项目后输出展望符
+     * */
+    private static void printItemSets(ItemTable items, Automaton automaton, BitSet[][] lookaheads){
+        for(int state = 0; state < automaton.size(); ++state){
+            StringBuilder stringBuilder = new StringBuilder();
+            stringBuilder.append("ProductionItemSet{I").append(state).append(":");
+            int[] reduceItems = automaton.reduceItems.get(state);
+            for(int item : automaton.closures.get(state)){
+                BitSet lookahead = items.nextSymbol(item) < 0 ? lookaheads[state][indexOf(reduceItems, item)] : null;
+                stringBuilder.append(items.toString(item, lookahead)).append("\t");
+            }
+            stringBuilder.deleteCharAt(stringBuilder.length() - 1);
+            stringBuilder.append("}");
+            System.out.println(stringBuilder);
+        }
+        System.out.println("LALR(1)项目集数: " + automaton.size());
+    }
+
+    /**
+     * LR(0)项目集族
+     * 项目集由核心项目（有序）唯一确定，开始项目集的序号为0
+     * */
+    private static class Automaton {
+        private final List<int[]> closures = new ArrayList<>();       //每个项目集的所有项目，核心项目在前
+        private final List<int[]> transitions = new ArrayList<>();    //每个项目集在各文法符号上的后继，-1表示没有
+        private final List<int[]> reduceItems = new ArrayList<>();    //每个项目集的归约项目
+
+        private Automaton(ItemTable items) {
+            int symbolCount = items.symbolTable.size();
+            Map<ItemTable.KernelKey, Integer> stateIndex = new HashMap<>();
+            List<int[]> kernels = new ArrayList<>();
+            int[] startKernel = items.startKernel();
+            kernels.add(startKernel);
+            stateIndex.put(new ItemTable.KernelKey(startKernel), 0);
+            int[] added = new int[symbolCount];         //非终结符的产生式最近一次加入闭包时的项目集序号+1
+            int[] symbolOrder = new int[symbolCount];   //后继符号在当前项目集中第一次出现的顺序
+            int[] symbolSeen = new int[symbolCount];
+            for(int state = 0; state < kernels.size(); ++state){
+                int[] closure = items.closure(kernels.get(state), added, state + 1);
+                closures.add(closure);
+                //按后继符号第一次出现的顺序将项目分组，组内按项目编号排序，得到后继项目集的核心
+                long[] moves = new long[closure.length];
+                int moveCount = 0;
+                int symbolsSeen = 0;
+                List<Integer> reduces = new ArrayList<>();
+                for(int item : closure){
+                    int symbol = items.nextSymbol(item);
+                    if(symbol < 0){
+                        reduces.add(item);
+                        continue;
+                    }
+                    if(symbolSeen[symbol] != state + 1){
+                        symbolSeen[symbol] = state + 1;
+                        symbolOrder[symbol] = symbolsSeen++;
+                    }
+                    moves[moveCount++] = (long) symbolOrder[symbol] << 32 | (item + 1);
+                }
+                Arrays.sort(moves, 0, moveCount);
+                int[] next = new int[symbolCount];
+                Arrays.fill(next, -1);
+                for(int from = 0; from < moveCount; ){
+                    int to = from;
+                    while(to < moveCount && moves[to] >>> 32 == moves[from] >>> 32)
+                        ++to;
+                    int[] kernel = new int[to - from];
+                    for(int i = from; i < to; ++i){
+                        kernel[i - from] = (int) moves[i];
+                    }
+                    ItemTable.KernelKey key = new ItemTable.KernelKey(kernel);
+                    Integer target = stateIndex.get(key);
+                    if(target == null){
+                        target = kernels.size();
+                        stateIndex.put(key, target);
+                        kernels.add(kernel);
+                    }
+                    next[items.nextSymbol(kernel[0] - 1)] = target;
+                    from = to;
+                }
+                transitions.add(next);
+                int[] reduceArray = new int[reduces.size()];
+                for(int i = 0; i < reduceArray.length; ++i){
+                    reduceArray[i] = reduces.get(i);
+                }
+                reduceItems.add(reduceArray);
+            }
+        }
+
+        private int size(){
+            return closures.size();
+        }
+    }
+
+    /**
+     * 以邻接表表示的关系，边按加入的顺序保存
+     * */
+    private static class Relation {
+        private final int[] heads;      //每个结点最后加入的边，-1表示没有
+        private int[] nexts = new int[16];
+        private int[] targets = new int[16];
+        private int size = 0;
+
+        private Relation(int nodes) {
+            heads = new int[nodes];
+            Arrays.fill(heads, -1);
+        }
+
+        private void add(int from, int to){
+            if(size == targets.length){
+                nexts = Arrays.copyOf(nexts, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            targets[size] = to;
+            nexts[size] = heads[from];
+            heads[from] = size++;
+        }
+
+        /**
+         * @return 以结点为下标的后继结点
+         * */
+        private int[][] toArray(){
+            int[][] result = new int[heads.length][];
+            for(int node = 0; node < heads.length; ++node){
+                int count = 0;
+                for(int edge = heads[node]; edge >= 0; edge = nexts[edge])
+                    ++count;
+                result[node] = new int[count];
+                for(int edge = heads[node]; edge >= 0; edge = nexts[edge])
+                    result[node][--count] = targets[edge];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.compiler.lr1;
+
+import com.compiler.model.Production;
+import com.compiler.model.SymbolTable;
+
+/**
+ * LR(1)分析表
+ * 由LR1TableBuilder压缩得到，不可变，可以被多个线程同时使用
+ * 1.Action表项：低2位为动作类型（ERROR/SHIFT/REDUCE/ACCEPT），其余位为移进的项目集序号或归约用的产生式在表中的编号，
+ *   ERROR为0
+ * 2.Action表：先按行位移查找actionNext/actionCheck，未找到时若展望符属于该项目集默认归约的展望符集合则为默认归约，
+ *   否则为ERROR，因此与压缩前的表完全相同，出错的位置和期望的符号不变
+ * 3.Goto表：先按行位移查找gotoNext/gotoCheck，未找到时为该非终结符的默认goto
+ * 4.产生式右部的长度和左部的编号存放在以产生式编号为下标的数组中，归约时不需要访问Production对象
+ * 查表的时间仍为O(1)
+ * */
+public class LR1Table {
+    public static final int ERROR = 0;          //出错
+    public static final int SHIFT = 1;          //移进
+    public static final int REDUCE = 2;         //归约
+    public static final int ACCEPT = 3;         //分析通过
+    public static final int NO_GOTO = -1;       //没有对应的goto
+    private static final int KIND_BITS = 2;
+    private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+
+    private final SymbolTable symbolTable;          //文法的符号表
+    private final int startState;                   //开始项目集的序号
+    private final int stateCount;                   //项目集的数目（最大序号+1）
+    private final int symbolCount;                  //文法符号的数目
+    private final Production[] productions;         //以编号为下标的产生式，用于输出
+    private final int[] productionLengths;          //产生式右部的长度
+    private final int[] productionLefts;            //产生式左部的编号
+    //Action表
+    private final int[] actionRows;                 //每个项目集使用的行
+    private final int[] actionBase;                 //每一行的位移
+    private final int[] actionNext;                 //叠放后的表项
+    private final int[] actionCheck;                //表项所属的行
+    private final int[] defaultReduces;             //每个项目集的默认归约，没有时为ERROR
+    private final int[] lookaheadOffsets;           //默认归约的展望符集合在defaultLookaheads中的位置
+    private final long[] defaultLookaheads;         //去重后的展望符集合（位图）
+    //Goto表
+    private final int[] gotoRows;                   //每个项目集使用的行
+    private final int[] gotoBase;                   //每一行的位移
+    private final int[] gotoNext;                   //叠放后的表项，为项目集序号+1
+    private final int[] gotoCheck;                  //表项所属的行
+    private final int[] defaultGotos;               //每个非终结符的默认goto
+
+    LR1Table(SymbolTable symbolTable, int startState, int stateCount, Production[] productions,
+             int[] actionRows, int[] actionBase, int[] actionNext, int[] actionCheck,
+             int[] defaultReduces, int[] lookaheadOffsets, long[] defaultLookaheads,
+             int[] gotoRows, int[] gotoBase, int[] gotoNext, int[] gotoCheck, int[] defaultGotos) {
+        this.symbolTable = symbolTable;
+        this.startState = startState;
+        this.stateCount = stateCount;
+        this.symbolCount = symbolTable.size();
+        this.productions = productions;
+        this.productionLengths = new int[productions.length];
+        this.productionLefts = new int[productions.length];
+        for(int i = 0; i < productions.length; ++i){
+            productionLengths[i] = productions[i].getRightIds().length;
+            productionLefts[i] = productions[i].getLeftId();
+        }
+        this.actionRows = actionRows;
+        this.actionBase = actionBase;
+        this.actionNext = actionNext;
+        this.actionCheck = actionCheck;
+        this.defaultReduces = defaultReduces;
+        this.lookaheadOffsets = lookaheadOffsets;
+        this.defaultLookaheads = defaultLookaheads;
+        this.gotoRows = gotoRows;
+        this.gotoBase = gotoBase;
+        this.gotoNext = gotoNext;
+        this.gotoCheck = gotoCheck;
+        this.defaultGotos = defaultGotos;
+    }
+
+    static int encode(int kind, int target){
+        return target << KIND_BITS | kind;
+    }
+
+    /**
+     * 查找Action表
+     * @param state  项目集的序号
+     * @param symbol 终结符的编号
+     * @return       编码后的action，没有时返回ERROR
+     * */
+    public int getAction(int state, int symbol){
+        if(symbol < 0)
+            return ERROR;
+        int row = actionRows[state];
+        int index = actionBase[row] + symbol;
+        if(actionCheck[index] == row)
+            return actionNext[index];
+        if((defaultLookaheads[lookaheadOffsets[state] + (symbol >>> 6)] >>> symbol & 1) != 0)
+            return defaultReduces[state];
+        return ERROR;
+    }
+
+    /**
+     * 查找Goto表
+     * 只有归约后才查找Goto表，此时表项一定存在，因此没有表项时也返回该非终结符的默认goto
+     * @param state  项目集的序号
+     * @param symbol 非终结符的编号
+     * @return       转移到的项目集序号，该非终结符没有任何goto时返回NO_GOTO
+     * */
+    public int getGoto(int state, int symbol){
+        if(symbol < 0)
+            return NO_GOTO;
+        int row = gotoRows[state];
+        int index = gotoBase[row] + symbol;
+        if(gotoCheck[index] == row)
+            return gotoNext[index] - 1;
+        return defaultGotos[symbol];
+    }
+
+    /**
+     * 获取action的类型
+     * @param action 编码后的action
+     * @return       ERROR、SHIFT、REDUCE或ACCEPT
+     * */
+    public static int kindOf(int action){
+        return action & KIND_MASK;
+    }
+
+    /**
+     * 获取action的目标
+     * @param action 编码后的action
+     * @return       移进时为项目集的序号，归约时为产生式在表中的编号
+     * */
+    public static int targetOf(int action){
+        return action >>> KIND_BITS;
+    }
+
+    public int getProductionLength(int production){
+        return productionLengths[production];
+    }
+
+    public int getProductionLeft(int production){
+        return productionLefts[production];
+    }
+
+    public Production getProduction(int production){
+        return productions[production];
+    }
+
+    /**
+     * 输出action，格式与ActionItem.toString相同，如S3、R5、ACC
+     * @param action 编码后的action
+     * @return       action的字符串形式，ERROR时为空字符串
+     * */
+    public String actionToString(int action){
+        return actionToString(action, productions);
+    }
+
+    static String actionToString(int action, Production[] productions){
+        switch(kindOf(action)){
+            case SHIFT:
+                return ActionItem.ACTION_S + targetOf(action);
+            case REDUCE:
+                return ActionItem.ACTION_R + productions[targetOf(action)].getIndex();
+            case ACCEPT:
+                return ActionItem.ACTION_ACC;
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * 压缩后的表占用的int数（long按两个int计算），用于与稠密表的stateCount * symbolCount * 2比较
+     * @return int数
+     * */
+    public int getTableSize(){
+        return actionRows.length + actionBase.length + actionNext.length + actionCheck.length
+                + defaultReduces.length + lookaheadOffsets.length + defaultLookaheads.length * 2
+                + gotoRows.length + gotoBase.length + gotoNext.length + gotoCheck.length + defaultGotos.length;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    public int getStartState() {
+        return startState;
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    @Override
+    public String toString() {
+        return "LR1Table{" +
+                "states=" + stateCount +
+                ", symbols=" + symbolCount +
+                ", actionRows=" + actionBase.length +
+                ", gotoRows=" + gotoBase.length +
+                ", size=" + getTableSize() +
+                ", denseSize=" + 2L * stateCount * symbolCount +
+                '}';
+    }
+}
@@ -0,0 +1,397 @@
+package com.compiler.lr1;
+
+import com.compiler.model.Production;
+import com.compiler.model.SymbolTable;
+
+import java.util.*;
+
+/**
+ * LR(1)分析表的构造器
+ * 构造时使用以 state * symbolCount + symbol 为下标的稠密数组，便于填表和输出，
+ * 填完后由build压缩为LR1Table：
+ * 1.每个项目集出现最多的归约作为默认归约，它的展望符集合用位图表示，内容相同的位图只保存一份
+ * 2.每个非终结符出现最多的goto作为默认goto
+ * 3.去掉默认项后剩余的Action行和Goto行，内容相同的行只保存一份
+ * 4.按行位移（row displacement）将所有行叠放到共享的next/check数组中，从表项最多的行开始，
+ *   为每一行找到第一个所有表项都不冲突的位移
+ * */
+public class LR1TableBuilder {
+    private final SymbolTable symbolTable;          //文法的符号表
+    private final int startState;                   //开始项目集的序号
+    private final int stateCount;                   //项目集的数目（最大序号+1）
+    private final int symbolCount;                  //文法符号的数目
+    private final int[] actions;                    //稠密的Action表
+    private final int[] gotos;                      //稠密的Goto表
+    private final Production[] productions;         //以编号为下标的产生式
+    private final Map<Production, Integer> productionIds = new HashMap<>();    //产生式在表中的编号
+
+    /**
+     * 创建空的分析表
+     * @param symbolTable 文法的符号表
+     * @param startState  开始项目集的序号
+     * @param stateCount  项目集的数目（最大序号+1）
+     * @param productions 文法的所有产生式，按顺序编号
+     * */
+    public LR1TableBuilder(SymbolTable symbolTable, int startState, int stateCount, List<Production> productions) {
+        this.symbolTable = symbolTable;
+        this.startState = startState;
+        this.stateCount = stateCount;
+        this.symbolCount = symbolTable.size();
+        this.actions = new int[stateCount * symbolCount];
+        this.gotos = new int[stateCount * symbolCount];
+        Arrays.fill(gotos, LR1Table.NO_GOTO);
+        this.productions = productions.toArray(new Production[0]);
+        for(int i = 0; i < this.productions.length; ++i){
+            productionIds.put(this.productions[i], i);
+        }
+    }
+
+    /**
+     * 将action编码后填入Action表
+     * @param state      项目集的序号
+     * @param symbol     终结符的编号
+     * @param actionItem action对象
+     * */
+    public void setAction(int state, int symbol, ActionItem actionItem){
+        int action;
+        switch(actionItem.getActionType()){
+            case ActionItem.ACTION_S:
+                action = LR1Table.encode(LR1Table.SHIFT, actionItem.getProductionItemSet().getIndex());
+                break;
+            case ActionItem.ACTION_R:
+                Integer production = productionIds.get(actionItem.getProduction());
+                if(production == null){
+                    throw new RuntimeException("归约用的产生式不在文法中:" + actionItem.getProduction());
+                }
+                action = LR1Table.encode(LR1Table.REDUCE, production);
+                break;
+            default:
+                action = LR1Table.encode(LR1Table.ACCEPT, 0);
+                break;
+        }
+        actions[state * symbolCount + symbol] = action;
+    }
+
+    public void setGoto(int state, int symbol, GotoItem gotoItem){
+        gotos[state * symbolCount + symbol] = gotoItem.getNumber();
+    }
+
+    /**
+     * 直接填入编码后的action，用于不生成ActionItem的构造方式
+     * @param state  项目集的序号
+     * @param symbol 终结符的编号
+     * @param action 编码后的action
+     * */
+    void setAction(int state, int symbol, int action){
+        actions[state * symbolCount + symbol] = action;
+    }
+
+    /**
+     * 填入编码后的action，已有不同的action时记录冲突
+     * 移进-归约冲突保留移进，归约-归约冲突保留文法中靠前的产生式，与接受冲突时保留接受
+     * @param state     项目集的序号
+     * @param symbol    终结符的编号
+     * @param action    编码后的action
+     * @param conflicts 用于保存冲突信息
+     * */
+    void setAction(int state, int symbol, int action, List<String> conflicts){
+        int old = getAction(state, symbol);
+        if(old == LR1Table.ERROR){
+            setAction(state, symbol, action);
+            return;
+        }
+        if(old == action)
+            return;
+        int oldKind = LR1Table.kindOf(old);
+        int kind = LR1Table.kindOf(action);
+        boolean replace = kind == LR1Table.ACCEPT
+                || (oldKind == LR1Table.REDUCE && LR1Table.targetOf(action) < LR1Table.targetOf(old));
+        String type = oldKind == LR1Table.SHIFT ? "移进-归约"
+                : oldKind == LR1Table.ACCEPT || kind == LR1Table.ACCEPT ? "接受-归约" : "归约-归约";
+        conflicts.add(type + "冲突: 项目集I" + state + ", 展望符'" + symbolTable.get(symbol).getContent()
+                + "', " + actionToString(old) + "/" + actionToString(action)
+                + ", 选择" + actionToString(replace ? action : old));
+        if(replace)
+            setAction(state, symbol, action);
+    }
+
+    void setGoto(int state, int symbol, int target){
+        gotos[state * symbolCount + symbol] = target;
+    }
+
+    /**
+     * 查找Action表
+     * @param state  项目集的序号
+     * @param symbol 终结符的编号
+     * @return       编码后的action，没有时返回ERROR
+     * */
+    public int getAction(int state, int symbol){
+        if(symbol < 0)
+            return LR1Table.ERROR;
+        return actions[state * symbolCount + symbol];
+    }
+
+    /**
+     * 查找Goto表
+     * @param state  项目集的序号
+     * @param symbol 非终结符的编号
+     * @return       转移到的项目集序号，没有时返回NO_GOTO
+     * */
+    public int getGoto(int state, int symbol){
+        if(symbol < 0)
+            return LR1Table.NO_GOTO;
+        return gotos[state * symbolCount + symbol];
+    }
+
+    /**
+     * 输出action，如S3、R5、ACC
+     * @param action 编码后的action
+     * @return       action的字符串形式，ERROR时为空字符串
+     * */
+    public String actionToString(int action){
+        return LR1Table.actionToString(action, productions);
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * 压缩分析表
+     * @return 压缩后的LR(1)分析表
+     * */
+    public LR1Table build(){
+        int words = (symbolCount + 63) >>> 6;
+        //每个项目集的默认归约及其展望符集合
+        int[] defaultReduces = new int[stateCount];
+        int[] lookaheadOffsets = new int[stateCount];
+        Map<LongKey, Integer> lookaheadIndex = new HashMap<>();
+        List<long[]> lookaheadSets = new ArrayList<>();
+        List<int[]> actionRows = new ArrayList<>();
+        for(int state = 0; state < stateCount; ++state){
+            int base = state * symbolCount;
+            int defaultReduce = mostFrequentReduce(actions, base, symbolCount);
+            defaultReduces[state] = defaultReduce;
+            long[] lookaheads = new long[words];
+            int[] row = new int[symbolCount];
+            for(int symbol = 0; symbol < symbolCount; ++symbol){
+                int action = actions[base + symbol];
+                if(action != LR1Table.ERROR && action == defaultReduce)
+                    lookaheads[symbol >>> 6] |= 1L << symbol;
+                else
+                    row[symbol] = action;
+            }
+            Integer offset = lookaheadIndex.get(new LongKey(lookaheads));
+            if(offset == null){
+                offset = lookaheadSets.size() * words;
+                lookaheadIndex.put(new LongKey(lookaheads), offset);
+                lookaheadSets.add(lookaheads);
+            }
+            lookaheadOffsets[state] = offset;
+            actionRows.add(row);
+        }
+        long[] defaultLookaheads = new long[lookaheadSets.size() * words];
+        for(int i = 0; i < lookaheadSets.size(); ++i){
+            System.arraycopy(lookaheadSets.get(i), 0, defaultLookaheads, i * words, words);
+        }
+        //每个非终结符的默认goto
+        int[] defaultGotos = new int[symbolCount];
+        for(int symbol = 0; symbol < symbolCount; ++symbol){
+            defaultGotos[symbol] = mostFrequentGoto(gotos, symbol, stateCount, symbolCount);
+        }
+        List<int[]> gotoRows = new ArrayList<>();
+        for(int state = 0; state < stateCount; ++state){
+            int[] row = new int[symbolCount];
+            for(int symbol = 0; symbol < symbolCount; ++symbol){
+                int target = gotos[state * symbolCount + symbol];
+                //goto表项以target+1保存，0表示没有
+                row[symbol] = target == defaultGotos[symbol] ? 0 : target + 1;
+            }
+            gotoRows.add(row);
+        }
+        Comb actionComb = Comb.pack(actionRows, symbolCount);
+        Comb gotoComb = Comb.pack(gotoRows, symbolCount);
+        return new LR1Table(symbolTable, startState, stateCount, productions,
+                actionComb.rowOf, actionComb.base, actionComb.next, actionComb.check,
+                defaultReduces, lookaheadOffsets, defaultLookaheads,
+                gotoComb.rowOf, gotoComb.base, gotoComb.next, gotoComb.check, defaultGotos);
+    }
+
+    /**
+     * 找到一行中出现次数最多的归约
+     * @return 编码后的归约action，没有归约时返回ERROR
+     * */
+    private static int mostFrequentReduce(int[] actions, int base, int symbolCount){
+        Map<Integer, Integer> counts = new HashMap<>();
+        int best = LR1Table.ERROR;
+        int bestCount = 0;
+        for(int symbol = 0; symbol < symbolCount; ++symbol){
+            int action = actions[base + symbol];
+            if(LR1Table.kindOf(action) != LR1Table.REDUCE)
+                continue;
+            int count = counts.merge(action, 1, Integer::sum);
+            if(count > bestCount || (count == bestCount && action < best)){
+                best = action;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 找到一列中出现次数最多的goto
+     * @return 项目集的序号，这一列没有goto时返回NO_GOTO
+     * */
+    private static int mostFrequentGoto(int[] gotos, int symbol, int stateCount, int symbolCount){
+        Map<Integer, Integer> counts = new HashMap<>();
+        int best = LR1Table.NO_GOTO;
+        int bestCount = 0;
+        for(int state = 0; state < stateCount; ++state){
+            int target = gotos[state * symbolCount + symbol];
+            if(target == LR1Table.NO_GOTO)
+                continue;
+            int count = counts.merge(target, 1, Integer::sum);
+            if(count > bestCount || (count == bestCount && target < best)){
+                best = target;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 以内容比较的long[]，用于展望符集合去重
+     * */
+    private static class LongKey {
+        private final long[] words;
+
+        private LongKey(long[] words) {
+            this.words = words;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof LongKey && Arrays.equals(words, ((LongKey) o).words);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(words);
+        }
+    }
+
+    /**
+     * 按行位移叠放的稀疏表，0表示空表项
+     * 第r行第c列的表项保存在next[base[r] + c]，并且check[base[r] + c] == r，check不等于r时表项为空
+     * */
+    private static class Comb {
+        private int[] rowOf;        //每个项目集使用的行（内容相同的项目集共用一行）
+        private int[] base;         //每一行的位移
+        private int[] next;         //叠放后的表项
+        private int[] check;        //表项所属的行，-1表示空位
+
+        /**
+         * @param rows        每个项目集的一行，0表示空表项
+         * @param symbolCount 每一行的长度
+         * @return            叠放后的表
+         * */
+        private static Comb pack(List<int[]> rows, int symbolCount){
+            Comb comb = new Comb();
+            //内容相同的行只保留一份
+            comb.rowOf = new int[rows.size()];
+            Map<IntKey, Integer> rowIndex = new HashMap<>();
+            List<int[]> uniqueRows = new ArrayList<>();
+            for(int state = 0; state < rows.size(); ++state){
+                IntKey key = new IntKey(rows.get(state));
+                Integer row = rowIndex.get(key);
+                if(row == null){
+                    row = uniqueRows.size();
+                    rowIndex.put(key, row);
+                    uniqueRows.add(rows.get(state));
+                }
+                comb.rowOf[state] = row;
+            }
+            //从表项最多的行开始叠放
+            Integer[] order = new Integer[uniqueRows.size()];
+            int[][] columns = new int[uniqueRows.size()][];
+            for(int row = 0; row < uniqueRows.size(); ++row){
+                order[row] = row;
+                int[] values = uniqueRows.get(row);
+                int count = 0;
+                for(int value : values){
+                    if(value != 0)
+                        ++count;
+                }
+                columns[row] = new int[count];
+                count = 0;
+                for(int symbol = 0; symbol < symbolCount; ++symbol){
+                    if(values[symbol] != 0)
+                        columns[row][count++] = symbol;
+                }
+            }
+            Arrays.sort(order, (a, b) -> columns[b].length != columns[a].length ?
+                    columns[b].length - columns[a].length : a - b);
+            comb.base = new int[uniqueRows.size()];
+            int[] check = new int[symbolCount * 2];
+            Arrays.fill(check, -1);
+            int[] next = new int[check.length];
+            int size = 0;
+            for(int row : order){
+                int[] cols = columns[row];
+                int base = 0;
+                while(!fits(check, cols, base))
+                    ++base;
+                //保证查找任意一列时下标都不越界
+                int needed = base + symbolCount;
+                if(needed > check.length){
+                    int capacity = Math.max(check.length * 2, needed);
+                    int oldLength = check.length;
+                    check = Arrays.copyOf(check, capacity);
+                    Arrays.fill(check, oldLength, capacity, -1);
+                    next = Arrays.copyOf(next, capacity);
+                }
+                for(int symbol : cols){
+                    check[base + symbol] = row;
+                    next[base + symbol] = uniqueRows.get(row)[symbol];
+                }
+                comb.base[row] = base;
+                size = Math.max(size, needed);
+            }
+            comb.check = Arrays.copyOf(check, Math.max(size, symbolCount));
+            comb.next = Arrays.copyOf(next, comb.check.length);
+            return comb;
+        }
+
+        private static boolean fits(int[] check, int[] cols, int base){
+            for(int symbol : cols){
+                int i = base + symbol;
+                if(i < check.length && check[i] != -1)
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 以内容比较的int[]，用于行去重
+     * */
+    private static class IntKey {
+        private final int[] values;
+        private final int hash;
+
+        private IntKey(int[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IntKey && Arrays.equals(values, ((IntKey) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
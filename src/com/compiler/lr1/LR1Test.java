@@ -2,6 +2,7 @@ package com.compiler.lr1;
 
 import com.compiler.model.*;
 import com.compiler.parser.ParserUtils;
+import com.compiler.parser.TokenBuffer;
 
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -101,9 +102,9 @@ public class LR1Test {
         String programPath = "src/com/compiler/parser/program.txt";
         if(ParserUtils.parse(parsePath, programPath)){
             //获取token
-            List<Token> tokenList = ParserUtils.tokenList;
+            TokenBuffer tokenBuffer = ParserUtils.tokenBuffer;
             String productionPath = "src/com/compiler/lr1/production.txt";
-            LR1Utils.startLR1(tokenList, productionPath);
+            LR1Utils.startLR1(tokenBuffer, productionPath);
         }
     }
 
@@ -1,6 +1,7 @@
 package com.compiler.lr1;
 
 import com.compiler.model.*;
+import com.compiler.parser.TokenBuffer;
 
 import java.io.*;
 import java.util.*;
@@ -9,7 +10,6 @@ import java.util.*;
  * LR(1)语法分析的工具类
  * */
 public class LR1Utils {
-    public static List<Token> tokenList = null;
 
     /**
      * 从配置文件中读取三型文法
@@ -85,222 +85,205 @@ public class LR1Utils {
      * ①假定I是一个项目集，I的任何项目都属于CLOSURE(I)
      * ②若有项目A->α•Bβ,a属于CLOSURE(I),B->δ是文法中的产生式，β∈V*，b∈FIRST(βa),则B->•δ,b也属于CLOSURE(I)
      * ③重复②，直到CLOSURE(I)不再增大为止
+     * 项目按LR(0)项目分组，每组的展望符为一个BitSet，先求LR(0)闭包，再按位或传播展望符集合（ItemTable.closureLookaheads），
+     * 闭包中的对象数为LR(0)项目数，而不是LR(0)项目数×展望符数
+     * @param kernel 编码后的核心项目（有序）
+     * @param items  文法的ItemTable
+     * @param added  以非终结符编号为下标，记录已加入闭包的项目集的标记
+     * @param stamp  当前项目集的标记，每次调用不同
+     * @return       闭包，项目按LR(0)项目编号排序
      * */
-    public static Set<ProductionItem> closure(Set<ProductionItem> itemSet, Grammar grammar){
-        Set<ProductionItem> resultItems = new HashSet<>();      //结果项目集
-        resultItems.addAll(itemSet);        //先添加原项目
-        Stack<ProductionItem> stack = new Stack<>();            //用于判断项目集是否不再增大
-        stack.addAll(itemSet);      //栈初始化
-        while(!stack.isEmpty()){
-            //获取文法的项目
-            ProductionItem productionItem = stack.pop();
-            int delimiterPos = productionItem.getDelimiterPos();    //获取分隔符位置
-            Symbol delimiterSymbol;     //记录分割符的后一个元素
-            if(delimiterPos == productionItem.getProduction().getRight().size())
-                //说明分割符在最后
-                delimiterSymbol=Symbol.END;
-            else delimiterSymbol = productionItem.getProduction().getRight().get(delimiterPos);
-            //判断分隔符的后一个元素是否是非终结符
-            if(!delimiterSymbol.isVt()){
-                //是非终结符则获取该非终结符对应的产生式
-                List<Production> productionList = grammar.getProductionMap().get(delimiterSymbol);
-                //获取FIRST(βa)中的βa
-                List<Symbol> firstSymbols = productionItem.getFirstSymbol();
-                //获取FIRST(βa)
-                Set<Symbol> firstSet = grammar.getFirstSetBySymbols(firstSymbols).getSet();
-                //根据First集合，生成项目集中新增的项目
-                //FIXME:对于含空串的产生式，这里将发生空指针错误
-                for (Production production : productionList){
-                    for(Symbol symbol : firstSet){
-                        ProductionItem currentItem = ProductionItem.create(production,symbol);
-                        //查找原项目集
-                        if(!resultItems.contains(currentItem)){
-                            //原项目集中没有当前项目则添加
-                            resultItems.add(currentItem);
-                            //将其添加到处理栈中，进行闭包运算
-                            stack.push(currentItem);
-                        }
-                    }
-                }
+    static ProductionItemSet.Closure closure(long[] kernel, ItemTable items, int[] added, int stamp){
+        //核心项目有序，同一LR(0)项目的展望符相邻
+        int count = 0;
+        int[] kernelItems = new int[kernel.length];
+        BitSet[] kernelLookaheads = new BitSet[kernel.length];
+        for(long productionItem : kernel){
+            int item = ProductionItem.itemOf(productionItem);
+            if(count == 0 || kernelItems[count - 1] != item){
+                kernelItems[count] = item;
+                kernelLookaheads[count++] = new BitSet(items.symbolTable.size());
             }
+            kernelLookaheads[count - 1].set(ProductionItem.expectOf(productionItem));
         }
-        return resultItems;
+        int[] closure = items.closure(Arrays.copyOf(kernelItems, count), added, stamp);
+        BitSet[] lookaheads = items.closureLookaheads(closure, Arrays.copyOf(kernelLookaheads, count));
+        //按LR(0)项目编号排序，低32位为原来的下标
+        long[] order = new long[closure.length];
+        for(int i = 0; i < closure.length; ++i){
+            order[i] = (long) closure[i] << 32 | i;
+        }
+        Arrays.sort(order);
+        int[] sortedItems = new int[closure.length];
+        BitSet[] sortedLookaheads = new BitSet[closure.length];
+        for(int i = 0; i < order.length; ++i){
+            sortedItems[i] = (int) (order[i] >>> 32);
+            sortedLookaheads[i] = lookaheads[(int) order[i]];
+        }
+        return new ProductionItemSet.Closure(sortedItems, sortedLookaheads);
     }
 
-    //GOTO函数的缓存，避免重复计算
     /**
-     * 原ProductionItemSet + Symbol = 现ProductionItemSet
-     * */
-    public static final Map<ProductionItemSet,Map<Symbol,ProductionItemSet>> GOTO_MAP = new HashMap<>();
-    /**
-     * 项目集的转换函数GOTO
+     * 项目集的转换函数GOTO，一次求出项目集在所有文法符号上的后继项目集
      * GOTO(I,X) = CLOSURE(J)
      * I为 LR(1)的项目集,X是文法符号,J={任何形如[A->αX•β,a]的项目 | [A->α•Xβ,a]∈I}
-     * 首先以[S'->•S,#]为初态集的初始项目，对其求闭包和转换函数，直到项目集不再增大为止
-     * @param productionItemSet 原项目集
-     * @param symbol            当前匹配的文法符号
-     * @param grammar           文法
-     * @return                  GOTO操作后的项目集(可能与原项目集相同),也可能为空
+     * 原项目集的闭包只在这里临时求出，后继项目集只保存核心项目
+     * @param productionItemSet 原项目集，后继项目集的标号保存在其中
+     * @param itemSets          已有的项目集，新的后继项目集加入其中
+     * @param stack             新的后继项目集加入其中
      * */
-    public static ProductionItemSet Goto(ProductionItemSet productionItemSet,Symbol symbol,Grammar grammar){
-        if(GOTO_MAP.containsKey(productionItemSet)){
-            Map<Symbol,ProductionItemSet> map = GOTO_MAP.get(productionItemSet);
-            if(map.containsKey(symbol))
-                //如果GOTO_MAP中包含当前的项目集和需要匹配的文法符号，则直接返回，否则进行求解
-                return map.get(symbol);
+    private static void Goto(ProductionItemSet productionItemSet, ProductionItemSet.Table itemSets,
+                             Deque<ProductionItemSet> stack){
+        ItemTable items = productionItemSet.getItemTable();
+        int symbolCount = items.symbolTable.size();
+        ProductionItemSet.Closure closure = productionItemSet.closure();
+        //按分隔符之后的文法符号计数排序，闭包按LR(0)项目有序，每组内仍然有序，分隔符后移一位即为后继项目集的核心
+        int[] offsets = new int[symbolCount + 1];
+        for(int i = 0; i < closure.items.length; ++i){
+            int symbol = items.nextSymbol(closure.items[i]);
+            if(symbol >= 0)
+                offsets[symbol + 1] += closure.lookaheads[i].cardinality();
         }
-        Set<ProductionItem> currentProductionItemSet = new HashSet<>();
-        for(ProductionItem productionItem : productionItemSet.getProductionItemSet()){
-            //对于原项目集中的每一个文法项目，判断其是否与文法符号匹配
-            int delimiterPos = productionItem.getDelimiterPos();    //获取分割符位置
-            if(delimiterPos < productionItem.getProduction().getRight().size()){
-                //只有当分隔符不在文法项目的末尾时才可以进行匹配
-                Symbol nextSymbol = productionItem.getProduction().getRight().get(delimiterPos);
-                if(nextSymbol.equals(symbol)){
-                    //如果相同（匹配）,则将分隔符进行移动，并将移动后的结果到结果集中
-                    currentProductionItemSet.add(ProductionItem.create(productionItem));
-                }
+        for(int symbol = 0; symbol < symbolCount; ++symbol){
+            offsets[symbol + 1] += offsets[symbol];
+        }
+        long[] moved = new long[offsets[symbolCount]];
+        int[] next = Arrays.copyOf(offsets, symbolCount);
+        for(int i = 0; i < closure.items.length; ++i){
+            int symbol = items.nextSymbol(closure.items[i]);
+            if(symbol < 0)
+                continue;
+            BitSet lookahead = closure.lookaheads[i];
+            for(int expect = lookahead.nextSetBit(0); expect >= 0; expect = lookahead.nextSetBit(expect + 1)){
+                moved[next[symbol]++] = ProductionItem.encode(closure.items[i] + 1, expect);
             }
         }
-        if(currentProductionItemSet.isEmpty())  return null;
-        //创建后继项目集
-        ProductionItemSet resultItemSet = ProductionItemSet.create(closure(currentProductionItemSet,grammar));
-        //添加到GOTO_MAP中
-        LR1Utils.addToDoubleMap(GOTO_MAP,productionItemSet,symbol,resultItemSet);
-        return resultItemSet;
-    }
-
-    public static <OuterK, InnerK, InnerV> InnerV addToDoubleMap(
-            Map<OuterK, Map<InnerK, InnerV>> outerMap, OuterK outerK, InnerK innerK, InnerV innerV) {
-        Map<InnerK, InnerV> innerMap = outerMap.computeIfAbsent(outerK, k -> new HashMap<>());
-        return innerMap.put(innerK, innerV);
+        int[] transitions = new int[symbolCount];
+        Arrays.fill(transitions, -1);
+        for(int symbol = 0; symbol < symbolCount; ++symbol){
+            if(offsets[symbol] == offsets[symbol + 1])
+                continue;
+            long[] kernel = Arrays.copyOfRange(moved, offsets[symbol], offsets[symbol + 1]);
+            int total = itemSets.size();
+            ProductionItemSet resultItemSet = itemSets.intern(kernel);
+            if(itemSets.size() != total)
+                //新的项目集，将其加入到栈中
+                stack.push(resultItemSet);
+            transitions[symbol] = resultItemSet.getIndex();
+        }
+        productionItemSet.setTransitions(transitions);
     }
 
     /**
      * 生成当前文法的项目集集合
      * @param grammar 文法
-     * @return        项目集集合
+     * @return        以标号为下标的项目集，第一个为开始项目集，每个项目集的后继项目集都已求出
      * */
     public static List<ProductionItemSet> generateProductionItemSets(Grammar grammar){
+        ItemTable items = new ItemTable(grammar);
         Production startProduction = grammar.getProductionMap().get(grammar.getStart()).get(0);
-        //创建增广文法对应的项目
-        ProductionItem startProductionItem = ProductionItem.create(startProduction,Symbol.END);
-        //封装为Set
-        Set<ProductionItem> tmpSet = new HashSet<>();
-        tmpSet.add(startProductionItem);
+        //创建增广文法对应的项目S'->•S,#
+        int startItem = items.firstItems[items.productionList.indexOf(startProduction)];
+        long[] startKernel = {ProductionItem.encode(startItem, SymbolTable.END)};
+        ProductionItemSet.Table itemSets = new ProductionItemSet.Table(items);
         //创建对应的项目集
-        ProductionItemSet startProductionItemSet = ProductionItemSet.create(closure(tmpSet, grammar));
-        List<ProductionItemSet> resultItemSets = new ArrayList<>();
-        resultItemSets.add(startProductionItemSet);
+        ProductionItemSet startProductionItemSet = itemSets.intern(startKernel);
         //使用栈来进行项目集的求闭包操作
-        Stack<ProductionItemSet> stack = new Stack<>();
+        Deque<ProductionItemSet> stack = new ArrayDeque<>();
         stack.push(startProductionItemSet);
         while (!stack.isEmpty()){
-            ProductionItemSet currentItemSet = stack.pop();
-            //对项目集中的每一个文法项目，求其可能的后继文法符号
-            List<Symbol> nextSymbolList = new ArrayList<>();
-            for(ProductionItem productionItem : currentItemSet.getProductionItemSet()){
-                int delimiterPos = productionItem.getDelimiterPos();
-                int productionLength = productionItem.getProduction().getRight().size();
-                if(delimiterPos < productionLength){
-                    //只有分隔符不在最后时才有后继的文法符号
-                    //获取分隔符之后的符号
-                    nextSymbolList.add(productionItem.getProduction().getRight().get(delimiterPos));
-                }
-            }
-            //对于每一个可能的后继符号，用GOTO函数求其后继项目集
-            for(Symbol symbol : nextSymbolList){
-                ProductionItemSet nextItemSet = Goto(currentItemSet,symbol,grammar);
-                //如果得到的后继项目集在结果集中没有出现，则加入到结果集
-                if(nextItemSet != null && !resultItemSets.contains(nextItemSet)){
-                    resultItemSets.add(nextItemSet);
-                    //将其加入到栈中
-                    stack.push(nextItemSet);
-                }
-            }
+            Goto(stack.pop(), itemSets, stack);
         }
-        return resultItemSets;
+        return itemSets.getItemSets();
+    }
+
+    /**
+     * 得到Action表和Goto表
+     * @param grammar               语法
+     * @param productionItemSetList generateProductionItemSets得到的项目集，第一个项目集为开始项目集
+     * @return                      LR(1)分析表
+     */
+    public static LR1Table createLR1Table(Grammar grammar,List<ProductionItemSet> productionItemSetList){
+        return createLR1Table(grammar, productionItemSetList, true);
     }
 
     /**
      * 得到Action表和Goto表
-     * @param grammar       in   语法
-     * @param productionItemSetList in  项目集
-     * @param actionTable   out  action表
-     * @param gotoTable     out  goto表
+     * 移进-归约冲突保留移进，归约-归约冲突保留文法中靠前的产生式，输出分析表时同时输出冲突
+     * @param grammar               语法
+     * @param productionItemSetList generateProductionItemSets得到的项目集，第一个项目集为开始项目集
+     * @param print                 是否输出LR(1)分析表
+     * @return                      LR(1)分析表
      */
-    public static void createLR1Table(Grammar grammar,List<ProductionItemSet> productionItemSetList,
-                                      Map<ProductionItemSet, Map<Symbol,ActionItem>> actionTable,
-                                      Map<ProductionItemSet, Map<Symbol,GotoItem>> gotoTable){
-        //获取语法的开始符号
-        Symbol start = grammar.getStart();
+    public static LR1Table createLR1Table(Grammar grammar,List<ProductionItemSet> productionItemSetList,boolean print){
+        SymbolTable symbolTable = grammar.getSymbolTable();
+        int symbolCount = symbolTable.size();
+        ItemTable items = productionItemSetList.get(0).getItemTable();
+        int stateCount = 0;
+        for(ProductionItemSet itemSet : productionItemSetList){
+            stateCount = Math.max(stateCount, itemSet.getIndex() + 1);
+        }
+        LR1TableBuilder table = new LR1TableBuilder(symbolTable, productionItemSetList.get(0).getIndex(), stateCount,
+                items.productionList);
+        List<String> conflicts = new ArrayList<>();
         //遍历文法的所有项目集
-        //Collections.sort(productionItemSetList);
         for(ProductionItemSet itemSet : productionItemSetList){
-            //遍历项目集中的项目
-            for(ProductionItem item : itemSet.getProductionItemSet()){
-                //获得当前项目的符号
-                Symbol currentSymbol;
-                {
-                    int position = item.getDelimiterPos();
-                    List<Symbol> right = item.getProduction().getRight();
-                    int length = right.size();
-                    if(position < length)
-                        currentSymbol = right.get(position);
-                    else currentSymbol = Symbol.END;
-                }
-                //非终结符，则加入到GOTO表中
-                if(!currentSymbol.isVt()){
-                    ProductionItemSet productionItemSet = Goto(itemSet,currentSymbol,grammar);
-                    if (productionItemSet != null) {
-                        GotoItem gotoItem = new GotoItem(productionItemSet);
-                        //TODO:增加冲突处理
-                        addToDoubleMap(gotoTable,itemSet,currentSymbol,gotoItem);
-                    }
+            int state = itemSet.getIndex();
+            //终结符移进，非终结符加入到GOTO表中，两者不会冲突
+            for(int symbol = 0; symbol < symbolCount; ++symbol){
+                int target = itemSet.getTransition(symbol);
+                if(target < 0)
+                    continue;
+                if(symbolTable.isTerminal(symbol))
+                    table.setAction(state, symbol, LR1Table.encode(LR1Table.SHIFT, target));
+                else
+                    table.setGoto(state, symbol, target);
+            }
+            //项目为A->b•,a的形式，则根据展望符进行归约操作，右部为空的产生式的归约项目不是核心项目，需要临时求闭包
+            ProductionItemSet.Closure closure = itemSet.closure();
+            for(int i = 0; i < closure.items.length; ++i){
+                int item = closure.items[i];
+                if(items.nextSymbol(item) >= 0)
+                    continue;
+                int production = items.productionOf[item];
+                if(items.lefts[production] == items.start){
+                    //如果该产生式是S'->S•,#，则为ACC
+                    table.setAction(state, SymbolTable.END, LR1Table.encode(LR1Table.ACCEPT, 0), conflicts);
+                    continue;
                 }
-                else {
-                    //如果是终结符且是结束符号
-                    if(Symbol.END.equals(currentSymbol)){
-                        //项目为A->b•,a的形式，则进行归约操作
-                        Production production = item.getProduction();
-                        if(start.equals(production.getLeft())){
-                            //如果该产生式是S'->S•,#，则为ACC
-                            ActionItem actionItem = ActionItem.createActionACC();
-                            //TODO:增加冲突处理
-                            addToDoubleMap(actionTable,itemSet,currentSymbol,actionItem);
-                        }
-                        else {
-                            //根据展望符进行归约操作
-                            ActionItem actionItem = ActionItem.createActionR(production);
-                            //TODO:增加冲突处理
-                            addToDoubleMap(actionTable,itemSet,item.getExpect(),actionItem);
-                        }
-                    }
-                    else{
-                        //如果是终结符但不是结束符号，则进行移进操作
-                        ActionItem actionItem = ActionItem.createActionS(Goto(itemSet,currentSymbol,grammar));
-                        //TODO:增加冲突处理
-                        addToDoubleMap(actionTable,itemSet,currentSymbol,actionItem);
-                    }
+                int action = LR1Table.encode(LR1Table.REDUCE, production);
+                BitSet lookahead = closure.lookaheads[i];
+                for(int symbol = lookahead.nextSetBit(0); symbol >= 0; symbol = lookahead.nextSetBit(symbol + 1)){
+                    table.setAction(state, symbol, action, conflicts);
                 }
             }
         }
         //打印LR1分析表
-        printLR1Table(productionItemSetList,grammar,actionTable,gotoTable);
+        if(print){
+            for(String conflict : conflicts){
+                System.out.println(conflict);
+            }
+            int[] states = new int[productionItemSetList.size()];
+            for(int i = 0; i < states.length; ++i){
+                states[i] = productionItemSetList.get(i).getIndex();
+            }
+            printLR1Table("LR(1)", states, grammar, table);
+        }
+        //压缩分析表
+        return table.build();
     }
 
     /**
      * 打印LR(1)分析表
-     * @param productionItemSetList 项目集
-     * @param grammar               语法
-     * @param actionMap             action表
-     * @param gotoMap               goto表
+     * @param name    分析表的名称，如LR(1)、LALR(1)
+     * @param states  按输出顺序排列的项目集序号
+     * @param grammar 语法
+     * @param table   压缩前的LR(1)分析表
      * */
-    private static void printLR1Table(List<ProductionItemSet> productionItemSetList, Grammar grammar,
-                                      Map<ProductionItemSet,Map<Symbol,ActionItem>> actionMap,
-                                      Map<ProductionItemSet,Map<Symbol,GotoItem>> gotoMap){
+    static void printLR1Table(String name, int[] states, Grammar grammar, LR1TableBuilder table){
+        SymbolTable symbolTable = grammar.getSymbolTable();
         //打印Action表头
-        System.out.println("LR(1)------------ACTION:------------------------");
+        System.out.println(name + "------------ACTION:------------------------");
         System.out.print("state\t");
         //所有终结符
         for(Symbol symbol : grammar.getVtSet()){
@@ -308,28 +291,20 @@ public class LR1Utils {
         }
         System.out.print(Symbol.END.getContent() + "\t");
         System.out.println();
-        for(ProductionItemSet itemSet : productionItemSetList){
-            System.out.print(itemSet.getIndex() + "\t\t");
-            //根据项目集获得action表
-            Map<Symbol,ActionItem> map = actionMap.get(itemSet);
+        for(int state : states){
+            System.out.print(state + "\t\t");
             //查找每个终结符
             for(Symbol symbol : grammar.getVtSet()){
-                ActionItem actionItem = map.get(symbol);
-                if(actionItem != null){
-                    System.out.print(actionItem);
-                }
+                System.out.print(table.actionToString(table.getAction(state, symbolTable.idOf(symbol))));
                 System.out.print("\t");
             }
             //作为终结符的#号
-            ActionItem actionItem = map.get(Symbol.END);
-            if(actionItem != null){
-                System.out.print(actionItem);
-            }
+            System.out.print(table.actionToString(table.getAction(state, SymbolTable.END)));
             System.out.print("\t");
             System.out.println();
         }
         //打印GOTO表表头
-        System.out.println("LR(1)---------------GOTO:----------------------");
+        System.out.println(name + "---------------GOTO:----------------------");
         System.out.print("state\t");
         //对于所有非终结符
         for(Symbol symbol : grammar.getVnSet()){
@@ -339,16 +314,20 @@ public class LR1Utils {
             System.out.print(symbol.getContent() + "\t");
         }
         System.out.println();
-        for(ProductionItemSet itemSet : productionItemSetList){
-            System.out.print(itemSet.getIndex() + "\t\t");
-            Map<Symbol,GotoItem> map = gotoMap.get(itemSet);
+        for(int state : states){
+            System.out.print(state + "\t\t");
+            //没有goto的项目集只输出序号
+            boolean hasGoto = false;
+            for(int symbol = 0; symbol < symbolTable.size(); ++symbol){
+                hasGoto |= table.getGoto(state, symbol) != LR1Table.NO_GOTO;
+            }
             for(Symbol symbol : grammar.getVnSet()){
                 //跳过增广文法的S'
-                if(map == null || symbol.equals(grammar.getStart()))
+                if(!hasGoto || symbol.equals(grammar.getStart()))
                     continue;
-                GotoItem gotoItem = map.get(symbol);
-                if(gotoItem != null){
-                    System.out.print(gotoItem.getNumber());
+                int gotoState = table.getGoto(state, symbolTable.idOf(symbol));
+                if(gotoState != LR1Table.NO_GOTO){
+                    System.out.print(gotoState);
                 }
                 System.out.print("\t");
             }
@@ -357,254 +336,383 @@ public class LR1Utils {
     }
 
     /**
-     * 根据生成的Action表和Goto表对输入的符号串进行匹配(使用Symbol进行匹配)
+     * 根据生成的LR(1)分析表对输入的符号串进行匹配(使用Symbol进行匹配)
      * @param inputSymbols      待匹配的符号串
-     * @param startItemSet      开始项目集
-     * @param actionMap         Action表
-     * @param gotoMap           Goto表
+     * @param table             LR(1)分析表
+     * @return                  是否匹配成功
+     * */
+    public static boolean match(List<Symbol> inputSymbols,LR1Table table){
+        return matchInput(new ListInput(inputSymbols, table.getSymbolTable()), table, null);
+    }
+
+    /**
+     * 根据生成的LR(1)分析表对输入的符号串进行匹配(使用token进行匹配)
+     * @param inputTokens       待匹配的符号串(Token)
+     * @param table             LR(1)分析表
+     * @return                  是否匹配成功
+     * */
+    public static boolean matchTokenList(List<Token> inputTokens,LR1Table table){
+        return matchTokenStream(TokenStream.of(inputTokens), table);
+    }
+
+    //词法分析出错，没有读取到输入符号
+    private static final int INPUT_ERROR = -2;
+
+    /**
+     * 语法分析的输入，每次提供一个待匹配的文法符号的编号
+     * */
+    private interface SymbolInput {
+        /**
+         * 读取下一个输入符号
+         * @return 下一个输入符号的编号，输入结束时返回SymbolTable.END，不是文法中的终结符时返回SymbolTable.NO_SYMBOL，
+         *         词法分析出错时返回INPUT_ERROR
+         * */
+        int next();
+
+        /**
+         * 当前输入符号的位置，用于输出错误信息
+         * @return 形如"错误位置:行:1, 列:2, 内容:{'a'}"的字符串
+         * */
+        String location();
+    }
+
+    /**
+     * 以文法符号列表作为语法分析的输入
+     * */
+    private static class ListInput implements SymbolInput {
+        private final List<Symbol> symbols;
+        private final SymbolTable symbolTable;
+        private int position = -1;              //当前符号的下标
+
+        private ListInput(List<Symbol> symbols, SymbolTable symbolTable) {
+            this.symbols = symbols;
+            this.symbolTable = symbolTable;
+        }
+
+        @Override
+        public int next() {
+            if(++position >= symbols.size())
+                return SymbolTable.END;
+            return symbolTable.idOf(symbols.get(position));
+        }
+
+        @Override
+        public String location() {
+            if(position >= symbols.size())
+                return endLocation();
+            return "错误位置:第" + (position + 1) + "个符号, 内容:{'" + symbols.get(position).getContent() + "'}";
+        }
+    }
+
+    /**
+     * 以token流作为语法分析的输入
+     * */
+    private static class StreamInput implements SymbolInput {
+        private final TokenStream tokenStream;
+        private final SymbolTable symbolTable;
+        private final int idSymbol;             //标识符对应的文法符号
+        private final int constSymbol;          //常量对应的文法符号
+        private Token currentToken;
+
+        private StreamInput(TokenStream tokenStream, SymbolTable symbolTable) {
+            this.tokenStream = tokenStream;
+            this.symbolTable = symbolTable;
+            this.idSymbol = symbolTable.terminalIdOf(ID_CONTENT);
+            this.constSymbol = symbolTable.terminalIdOf(CONST_CONTENT);
+        }
+
+        @Override
+        public int next() {
+            currentToken = tokenStream.next();
+            if(tokenStream.hasError())
+                return INPUT_ERROR;
+            if(currentToken == null)
+                return SymbolTable.END;
+            //如果是id或者常量，常量不影响语法分析，直接得出结果
+            if(currentToken.getType() == TokenType.IDENTIFIER)
+                return idSymbol;
+            if(currentToken.getType() == TokenType.CONST)
+                return constSymbol;
+            //其它需要提取内容
+            return symbolTable.terminalIdOf(currentToken.getContent());
+        }
+
+        @Override
+        public String location() {
+            if(currentToken == null)
+                return endLocation();
+            return formatLocation(currentToken.getRow(), currentToken.getCol(), currentToken.getContent());
+        }
+    }
+
+    /**
+     * 以按列存储的token序列作为语法分析的输入
+     * 直接读取token的类型和内容编号，内容相同的token只查找一次符号表，只在出错时才获取token的内容
+     * */
+    private static class BufferInput implements SymbolInput {
+        private static final int UNKNOWN = -3;  //还没有查找过符号表
+        private final TokenBuffer tokenBuffer;
+        private final SymbolTable symbolTable;
+        private final int idSymbol;             //标识符对应的文法符号
+        private final int constSymbol;          //常量对应的文法符号
+        private final int[] contentSymbols;     //内容编号对应的文法符号
+        private int position = -1;              //当前token的下标
+
+        private BufferInput(TokenBuffer tokenBuffer, SymbolTable symbolTable) {
+            this.tokenBuffer = tokenBuffer;
+            this.symbolTable = symbolTable;
+            this.idSymbol = symbolTable.terminalIdOf(ID_CONTENT);
+            this.constSymbol = symbolTable.terminalIdOf(CONST_CONTENT);
+            this.contentSymbols = new int[tokenBuffer.getIdCount()];
+            Arrays.fill(contentSymbols, UNKNOWN);
+        }
+
+        @Override
+        public int next() {
+            if(++position >= tokenBuffer.size())
+                return SymbolTable.END;
+            TokenType kind = tokenBuffer.getKind(position);
+            if(kind == TokenType.IDENTIFIER)
+                return idSymbol;
+            if(kind == TokenType.CONST)
+                return constSymbol;
+            int id = tokenBuffer.getId(position);
+            if(contentSymbols[id] == UNKNOWN)
+                contentSymbols[id] = symbolTable.terminalIdOf(tokenBuffer.getIdText(id));
+            return contentSymbols[id];
+        }
+
+        @Override
+        public String location() {
+            if(position >= tokenBuffer.size())
+                return endLocation();
+            return formatLocation(tokenBuffer.getRow(position), tokenBuffer.getCol(position), tokenBuffer.getText(position));
+        }
+    }
+
+    //标识符和常量在文法中对应的终结符
+    private static final String ID_CONTENT = "id";
+    private static final String CONST_CONTENT = "const";
+
+    private static String formatLocation(int row, int col, String content){
+        return "错误位置:行:" + (row + 1) + ", 列:" + (col + 1) + ", 内容:{'" + content + "'}";
+    }
+
+    private static String endLocation(){
+        return "错误位置:输入结束, 内容:{'" + Symbol.END.getContent() + "'}";
+    }
+
+    /**
+     * 根据生成的LR(1)分析表对token流进行匹配
+     * 每次只从token流中取出一个token，因此遇到第一个语法错误时，剩余的程序还没有进行词法分析
+     * @param tokenStream       待匹配的token流
+     * @param table             LR(1)分析表
+     * @return                  是否匹配成功
+     * */
+    public static boolean matchTokenStream(TokenStream tokenStream,LR1Table table){
+        return matchInput(new StreamInput(tokenStream, table.getSymbolTable()), table, null);
+    }
+
+    /**
+     * 根据生成的LR(1)分析表对按列存储的token序列进行匹配
+     * @param tokenBuffer       待匹配的token序列
+     * @param table             LR(1)分析表
+     * @return                  是否匹配成功
+     * */
+    public static boolean matchTokenBuffer(TokenBuffer tokenBuffer,LR1Table table){
+        return matchInput(new BufferInput(tokenBuffer, table.getSymbolTable()), table, null);
+    }
+
+    /**
+     * 根据生成的LR(1)分析表检查token序列是否符合语法，不输出分析过程
+     * 不修改任何静态变量，多个线程可以使用同一个分析表同时检查不同的token序列
+     * @param tokenBuffer       待匹配的token序列
+     * @param table             LR(1)分析表
+     * @return                  匹配成功时返回null，否则返回错误信息
+     * */
+    public static String checkTokenBuffer(TokenBuffer tokenBuffer,LR1Table table){
+        StringBuilder errorInfo = new StringBuilder();
+        if(matchInput(new BufferInput(tokenBuffer, table.getSymbolTable()), table, errorInfo))
+            return null;
+        return errorInfo.toString();
+    }
+
+    /**
+     * 根据生成的LR(1)分析表对输入进行匹配
+     * 状态栈和符号栈中只保存项目集的序号和文法符号的编号，action为编码后的int，每一步只需要查一次或两次数组
+     * @param input             语法分析的输入
+     * @param table             LR(1)分析表
+     * @param errorInfo         为null时输出分析过程和错误信息，否则不输出分析过程，错误信息追加到errorInfo中
      * @return                  是否匹配成功
      * */
-    public static boolean match(List<Symbol> inputSymbols,ProductionItemSet startItemSet,
-                                Map<ProductionItemSet,Map<Symbol,ActionItem>> actionMap,
-                                Map<ProductionItemSet,Map<Symbol,GotoItem>> gotoMap){
-        inputSymbols.add(Symbol.END);
+    private static boolean matchInput(SymbolInput input,LR1Table table,StringBuilder errorInfo){
+        boolean trace = errorInfo == null;
+        int step = 1;           //当前是第几步
+        SymbolTable symbolTable = table.getSymbolTable();
         //状态栈
-        Stack<ProductionItemSet> stateStack = new Stack<>();
+        int[] stateStack = new int[16];
         //符号栈
-        Stack<Symbol> symbolStack = new Stack<>();
-        //放入开始状态
-        stateStack.push(startItemSet);
-        //放入结束符号#
-        symbolStack.push(Symbol.END);
-        int currentSymbolPosition = 0;  //输入符号串目前读取到的位置
+        int[] symbolStack = new int[16];
+        int top = 0;
+        stateStack[top] = table.getStartState();
+        symbolStack[top] = SymbolTable.END;
+        //上次读取输入后移进ε的项目集和它在栈中的位置，归约弹出该位置之下的元素后删除
+        //同一项目集再次移进ε时，如果它没有被弹出，或者位置相同（之下的栈没有改变），之后的动作只会重复，分析不会结束
+        int[] epsilonStates = new int[16];
+        int[] epsilonTops = new int[16];
+        boolean[] epsilonPopped = new boolean[16];
+        int epsilonCount = 0;
+        //读取第一个符号
+        int currentSymbol = input.next();
+        if(currentSymbol == INPUT_ERROR)
+            return false;
         while(true){
-            //获取状态栈栈顶元素
-            if(stateStack.isEmpty()){
-                System.out.println("匹配错误：状态栈为空！");
-                return false;
-            }
-            ProductionItemSet currentItemSet = stateStack.peek();
-            //获取当前待匹配的输入元素
-            if(currentSymbolPosition >= inputSymbols.size()){
-                System.out.println("匹配错误：输入串为空！");
-                return false;
-            }
-            Symbol currentSymbol = inputSymbols.get(currentSymbolPosition);
+            int currentState = stateStack[top];
             //根据栈顶元素和待匹配的输入元素获取对应的action
-            ActionItem actionItem = actionMap.get(currentItemSet).get(currentSymbol);
-            GotoItem gotoItem = null;
-            if(actionItem == null){
+            int action = table.getAction(currentState, currentSymbol);
+            int matchedSymbol = currentSymbol;
+            int gotoState = LR1Table.NO_GOTO;
+            if(action == LR1Table.ERROR){
                 //尝试移进空进行匹配
-                actionItem = actionMap.get(currentItemSet).get(new Symbol(Symbol.EPSILON));
-                if(actionItem != null){
-                    //使用空能匹配
-                    currentSymbol = new Symbol(Symbol.EPSILON);
-                    --currentSymbolPosition;
-                }
+                action = table.getAction(currentState, SymbolTable.EPSILON);
+                matchedSymbol = SymbolTable.EPSILON;
             }
-            if(actionItem == null){
-                if(tokenList == null) {
-                    System.out.println("匹配" + currentSymbol.getContent() + "时出错：未找到与栈顶项目集、栈顶输入元素匹配的Action操作！");
-                }
-                else{
-                    //输出详细的错误信息
-                    StringBuffer errorInfo = new StringBuffer();
-                    Token errorToken = tokenList.get(currentSymbolPosition);
-                    errorInfo.append("LR1移进出错！\n");
-                    errorInfo.append("错误位置:").append("行:").append(errorToken.getRow() + 1)
-                            .append(", 列:").append(errorToken.getCol() + 1)
-                            .append(", 内容:{'").append(errorToken.getContent());
-                    errorInfo.append("'}, 期望匹配：{");
-                    Map<Symbol,ActionItem> map = actionMap.get(currentItemSet);
-                    for(Map.Entry<Symbol,ActionItem> entry : map.entrySet()){
-                        errorInfo.append("'").append(entry.getKey().getContent()).append("',");
+            switch(LR1Table.kindOf(action)){
+                case LR1Table.SHIFT:
+                    //移进操作
+                    if(matchedSymbol == SymbolTable.EPSILON){
+                        for(int i = 0; i < epsilonCount; ++i){
+                            if(epsilonStates[i] == currentState && (!epsilonPopped[i] || epsilonTops[i] == top)){
+                                printStreamError("LR1移进出错！", input, "错误原因:项目集I" + currentState
+                                        + "未读取输入时再次移进空，分析无法结束!", errorInfo);
+                                return false;
+                            }
+                        }
+                        if(epsilonCount == epsilonStates.length){
+                            epsilonStates = Arrays.copyOf(epsilonStates, epsilonCount * 2);
+                            epsilonTops = Arrays.copyOf(epsilonTops, epsilonCount * 2);
+                            epsilonPopped = Arrays.copyOf(epsilonPopped, epsilonCount * 2);
+                        }
+                        epsilonStates[epsilonCount] = currentState;
+                        epsilonTops[epsilonCount] = top;
+                        epsilonPopped[epsilonCount++] = false;
                     }
-                    errorInfo.deleteCharAt(errorInfo.length() - 1);
-                    errorInfo.append("}");
-                    System.out.println(errorInfo.toString());
-                }
-                return false;
-            }
-            else if(actionItem.getActionType().equals(ActionItem.ACTION_ACC)){
-                //如果是ACC
-                //只有当输入字符串匹配到最后一个字符#时，才算匹配成功
-                if(currentSymbol.equals(Symbol.END)) {
-                    printMatch(inputSymbols,stateStack,currentSymbolPosition,actionItem,gotoItem);
-                    System.out.println("分析成功！");
-                    return true;
-                }
-                else{
-                    //匹配失败
-                    if(tokenList == null) {
-                        System.out.println("匹配" + currentSymbol.getContent() + "时出错：在输入串不为空时匹配了ACC！");
+                    if(++top == stateStack.length){
+                        stateStack = Arrays.copyOf(stateStack, top * 2);
+                        symbolStack = Arrays.copyOf(symbolStack, top * 2);
                     }
-                    else{
-                        //输出详细的错误信息
-                        StringBuffer errorInfo = new StringBuffer();
-                        Token errorToken = tokenList.get(currentSymbolPosition);
-                        errorInfo.append("LR1 ACC分析出错！\n");
-                        errorInfo.append("错误位置:").append("行:").append(errorToken.getRow() + 1)
-                                .append(", 列:").append(errorToken.getCol() + 1)
-                                .append(", 内容:{'").append(errorToken.getContent());
-                        errorInfo.append("'}");
-                        errorInfo.append("错误原因:在输入串不为空时匹配了ACC!");
-                        System.out.println(errorInfo.toString());
+                    stateStack[top] = LR1Table.targetOf(action);
+                    symbolStack[top] = matchedSymbol;
+                    if(matchedSymbol != SymbolTable.EPSILON){
+                        //移进空时不消耗输入，否则读取下一个符号
+                        currentSymbol = input.next();
+                        if(currentSymbol == INPUT_ERROR)
+                            return false;
+                        epsilonCount = 0;
                     }
-                    return false;
-                }
-            }
-            else if(actionItem.getActionType().equals(ActionItem.ACTION_S)){
-                //移进操作
-                stateStack.push(actionItem.getProductionItemSet());     //向状态栈中添加新项目集
-                symbolStack.push(currentSymbol);    //向符号栈中添加当前符号
-                currentSymbolPosition++;    //匹配下一个输入符号
-            }
-            else if(actionItem.getActionType().equals(ActionItem.ACTION_R)){
-                //归约操作
-                Production currentProduction = actionItem.getProduction();  //获取归约用的产生式
-                //根据产生式右部的符号数目，弹出对应数目的状态栈和符号栈
-                int length = currentProduction.getRight().size();
-                if(stateStack.size() < length || symbolStack.size() - 1 < length){
-                    if(tokenList == null) {
-                        System.out.println("匹配" + currentSymbol.getContent() + "时出错：归约异常——符号栈/状态栈元素数量小于归约用的产生式右部的长度！");
+                    break;
+                case LR1Table.REDUCE:
+                    //归约操作
+                    int production = LR1Table.targetOf(action);
+                    int length = table.getProductionLength(production);
+                    int left = table.getProductionLeft(production);
+                    if(top < length){
+                        printStreamError("LR1归约出错！", input, "归约产生式:" + table.getProduction(production)
+                                + "错误原因:符号栈/状态栈元素数量小于归约用的产生式右部的长度!", errorInfo);
+                        return false;
                     }
-                    else{
-                        //输出详细的错误信息
-                        StringBuffer errorInfo = new StringBuffer();
-                        Token errorToken = tokenList.get(currentSymbolPosition);
-                        errorInfo.append("LR1归约出错！\n");
-                        errorInfo.append("错误位置:").append("行:").append(errorToken.getRow() + 1)
-                                .append(", 列:").append(errorToken.getCol() + 1)
-                                .append(", 内容:{'").append(errorToken.getContent());
-                        errorInfo.append("'}");
-                        errorInfo.append("归约产生式:").append(currentProduction);
-                        errorInfo.append("错误原因:符号栈/状态栈元素数量小于归约用的产生式右部的长度!");
-                        System.out.println(errorInfo.toString());
+                    //弹出产生式右部，将产生式左部添加到符号栈
+                    top -= length;
+                    while(epsilonCount > 0 && epsilonTops[epsilonCount - 1] > top + 1)
+                        --epsilonCount;
+                    for(int i = epsilonCount - 1; i >= 0 && epsilonTops[i] == top + 1; --i)
+                        epsilonPopped[i] = true;
+                    gotoState = table.getGoto(stateStack[top], left);
+                    if(gotoState == LR1Table.NO_GOTO){
+                        printStreamError("LR1归约出错！", input, "错误原因:对应的goto表项为空！", errorInfo);
+                        return false;
                     }
-                    return false;
-                }
-                for(int i = 0; i < currentProduction.getRight().size(); ++i){
-                    stateStack.pop();
-                    symbolStack.pop();
-                }
-                //将产生式左部添加到符号栈
-                symbolStack.push(currentProduction.getLeft());
-                //获取这个字符在gotoMap中对应的状态，添加到状态栈
-               gotoItem = gotoMap.get(stateStack.peek()).get(currentProduction.getLeft());
-                if(gotoItem == null){
-                    if(tokenList == null) {
-                        System.out.println("匹配" + currentSymbol.getContent() + "时出错：归约异常——对应的goto表项为空！");
+                    ++top;
+                    stateStack[top] = gotoState;
+                    symbolStack[top] = left;
+                    break;
+                case LR1Table.ACCEPT:
+                    //只有当输入字符串匹配到最后一个字符#时，才算匹配成功
+                    if(currentSymbol == SymbolTable.END){
+                        if(trace){
+                            printStreamMatch(step,table,stateStack,symbolStack,top,matchedSymbol,action,gotoState);
+                            System.out.println("分析成功！");
+                        }
+                        return true;
                     }
-                    else{
-                        //输出详细的错误信息
-                        StringBuffer errorInfo = new StringBuffer();
-                        Token errorToken = tokenList.get(currentSymbolPosition);
-                        errorInfo.append("LR1归约出错！\n");
-                        errorInfo.append("错误位置:").append("行:").append(errorToken.getRow() + 1)
-                                .append(", 列:").append(errorToken.getCol() + 1)
-                                .append(", 内容:{'").append(errorToken.getContent());
-                        errorInfo.append("'}");
-                        errorInfo.append("错误原因:对应的goto表项为空！");
-                        System.out.println(errorInfo.toString());
+                    printStreamError("LR1 ACC分析出错！", input, "错误原因:在输入串不为空时匹配了ACC!", errorInfo);
+                    return false;
+                default:
+                    StringBuilder expected = new StringBuilder();
+                    for(int symbol = 0; symbol < symbolTable.size(); ++symbol){
+                        if(table.getAction(currentState, symbol) != LR1Table.ERROR)
+                            expected.append("'").append(symbolTable.get(symbol).getContent()).append("',");
                     }
+                    if(expected.length() > 0)
+                        expected.deleteCharAt(expected.length() - 1);
+                    printStreamError("LR1移进出错！", input, ", 期望匹配：{" + expected + "}", errorInfo);
                     return false;
-                }
-                ProductionItemSet nextItemSet = gotoItem.getNextProductionItemSet();
-                stateStack.push(nextItemSet);
             }
-            //复制栈,Java对自定义对象是引用传递
-            Stack<ProductionItemSet> tmpStack = (Stack<ProductionItemSet>) stateStack.clone();
-            printMatch(inputSymbols,tmpStack,currentSymbolPosition,actionItem,gotoItem);
+            if(trace)
+                printStreamMatch(step++,table,stateStack,symbolStack,top,matchedSymbol,action,gotoState);
         }
     }
 
     /**
-     * 根据生成的Action表和Goto表对输入的符号串进行匹配(使用token进行匹配)
-     * @param inputTokens      待匹配的符号串(Token)
-     * @param startItemSet      开始项目集
-     * @param actionMap         Action表
-     * @param gotoMap           Goto表
-     * @return                  是否匹配成功
+     * 输出匹配时的错误信息
+     * @param title     错误标题
+     * @param input     语法分析的输入，错误位置为当前输入符号的位置
+     * @param reason    错误原因
+     * @param errorInfo 为null时直接输出，否则追加到errorInfo中
      * */
-    public static boolean matchTokenList(List<Token> inputTokens,ProductionItemSet startItemSet,
-                                Map<ProductionItemSet,Map<Symbol,ActionItem>> actionMap,
-                                Map<ProductionItemSet,Map<Symbol,GotoItem>> gotoMap){
-        List<Symbol> inputSymbols = new ArrayList<>();
-        //读取token
-        for(Token token : inputTokens){
-            //如果是id或者常量
-            if(token.getType() == TokenType.IDENTIFIER) {
-                //常量不影响语法分析，直接得出结果
-                inputSymbols.add(new Symbol("id"));
-            }
-            else if(token.getType() == TokenType.CONST){
-                inputSymbols.add(new Symbol("const"));
-            }
-            else{
-                //其它需要提取内容
-                inputSymbols.add(new Symbol(token.getContent(),true,false));
-            }
-        }
-        //inputSymbols.add(Symbol.END);
-        return match(inputSymbols,startItemSet,actionMap,gotoMap);
+    private static void printStreamError(String title, SymbolInput input, String reason, StringBuilder errorInfo){
+        boolean print = errorInfo == null;
+        if(print)
+            errorInfo = new StringBuilder();
+        errorInfo.append(title).append("\n");
+        errorInfo.append(input.location());
+        errorInfo.append(reason);
+        if(print)
+            System.out.println(errorInfo.toString());
     }
 
-    private static int index = 1;       //当前是第几步
     /**
-     * 输出LR(1)的分析过程
-     * index=1, state={0}, symbol={#}, input={bccd#}, action=S3, goto=null;
-     * @param symbolList                符号串
-     * @param currentSymbolPosition     当前匹配到的符号的位置
-     * @param stateStack                状态栈
-     * @param actionItem                action对象
-     * @param gotoItem                  goto对象
+     * 输出LR(1)的分析过程，剩余的输入可能还没有读取，因此只输出状态栈和符号栈
+     * index=1, state={0,3}, currentSymbol='a', action=S3, goto=null, symbol={'#','a'}
+     * @param index         当前是第几步
+     * @param table         LR(1)分析表
+     * @param stateStack    状态栈
+     * @param symbolStack   符号栈
+     * @param top           栈顶的位置
+     * @param currentSymbol 当前匹配的符号
+     * @param action        编码后的action
+     * @param gotoState     归约后转移到的项目集序号，没有时为NO_GOTO
      * */
-    private static void printMatch(List<Symbol> symbolList,Stack<ProductionItemSet> stateStack,
-                                   int currentSymbolPosition,ActionItem actionItem,GotoItem gotoItem){
-        currentSymbolPosition = currentSymbolPosition - 1;
+    private static void printStreamMatch(int index, LR1Table table, int[] stateStack, int[] symbolStack, int top,
+                                         int currentSymbol, int action, int gotoState){
+        SymbolTable symbolTable = table.getSymbolTable();
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append("index=").append(index).append(",\t");
-        index++;
-        //从状态栈中提取状态
-        Stack<Integer> state = new Stack<>();
-        while(!stateStack.isEmpty()){
-            ProductionItemSet productionItemSet = stateStack.pop();
-            state.push(productionItemSet.getIndex());
-        }
-        //输出状态栈
         stringBuilder.append("state={");
-        while(!state.isEmpty()){
-            stringBuilder.append(state.pop()).append(",");
+        for(int i = 0; i <= top; ++i){
+            stringBuilder.append(stateStack[i]).append(",");
         }
         stringBuilder.deleteCharAt(stringBuilder.length() - 1);
         stringBuilder.append("},\t");
-        //输出当前符号
-        stringBuilder.append("currentSymbol='").append(symbolList.get(currentSymbolPosition).getContent()).
-                append("'\t");
-        //输出Action
-        stringBuilder.append("action=").append(actionItem).append(",\t");
-        //输出Goto
-        stringBuilder.append("goto=");
-        //判断是否需要输出
-        if(actionItem.getActionType().equals(ActionItem.ACTION_R)){
-            stringBuilder.append(gotoItem.getNumber());
-        }else{
-            stringBuilder.append("null");
-        }
-        //输出符号栈
-        stringBuilder.append(",\tsymbol={'#'");
-        int i = 0;
-        for(; i < currentSymbolPosition; ++i){
-            stringBuilder.append(",'").append(symbolList.get(i).getContent()).append("'");
-        }
-        stringBuilder.append("},\t");
-        //输出输入串
-        stringBuilder.append("input={");
-        for(; i < symbolList.size(); ++i){
-            stringBuilder.append("'").append(symbolList.get(i).getContent()).append("',");
+        stringBuilder.append("currentSymbol='").append(symbolTable.get(currentSymbol).getContent()).append("'\t");
+        stringBuilder.append("action=").append(table.actionToString(action)).append(",\t");
+        stringBuilder.append("goto=").append(gotoState == LR1Table.NO_GOTO ? "null" : String.valueOf(gotoState));
+        stringBuilder.append(",\tsymbol={");
+        for(int i = 0; i <= top; ++i){
+            stringBuilder.append("'").append(symbolTable.get(symbolStack[i]).getContent()).append("',");
         }
         stringBuilder.deleteCharAt(stringBuilder.length() - 1);
-        stringBuilder.append("}\t");
+        stringBuilder.append("}");
         System.out.println(stringBuilder.toString());
     }
 
@@ -614,13 +722,56 @@ public class LR1Utils {
      * @param productionPath 语法分析的产生式列表
      * */
     public static void startLR1(List<Token> tokenList, String productionPath) {
-        LR1Utils.tokenList = tokenList;
+        startLR1(TokenStream.of(tokenList), productionPath);
+    }
+
+    /**
+     * 开始LR(1)语法分析，分析过程中逐个从token流中读取token
+     * @param tokenStream    词法分析器产生的token流
+     * @param productionPath 语法分析的产生式列表
+     * @return               是否分析成功
+     * */
+    public static boolean startLR1(TokenStream tokenStream, String productionPath) {
+        LR1Table table = buildLR1Table(productionPath);
+        return table != null && matchTokenStream(tokenStream, table);
+    }
+
+    /**
+     * 开始LR(1)语法分析，直接读取按列存储的token序列
+     * @param tokenBuffer    词法分析得到的token序列
+     * @param productionPath 语法分析的产生式列表
+     * @return               是否分析成功
+     * */
+    public static boolean startLR1(TokenBuffer tokenBuffer, String productionPath) {
+        LR1Table table = buildLR1Table(productionPath);
+        return table != null && matchTokenBuffer(tokenBuffer, table);
+    }
+
+    /**
+     * 读取产生式，生成LR(1)分析表
+     * @param productionPath 语法分析的产生式列表
+     * @return               LR(1)分析表，未读取到任何产生式时返回null
+     * */
+    public static LR1Table buildLR1Table(String productionPath) {
+        return buildLR1Table(productionPath, true);
+    }
+
+    /**
+     * 读取产生式，生成LR(1)分析表
+     * @param productionPath 语法分析的产生式列表
+     * @param print          是否输出产生式、文法、项目集和分析表
+     * @return               LR(1)分析表，未读取到任何产生式时返回null
+     * */
+    public static LR1Table buildLR1Table(String productionPath, boolean print) {
         List<Production> productionList = readProductionTXT(productionPath);
         if (productionList.size() > 0) {
             //将产生式集合的第一个产生的左部作为语法的开始符号
             Symbol startSymbol = productionList.get(0).getLeft();
             //创建语法
             Grammar grammar = Grammar.creat(startSymbol, productionList);
+            List<ProductionItemSet> productionItemSetList = generateProductionItemSets(grammar);
+            if (!print)
+                return LR1Utils.createLR1Table(grammar, productionItemSetList, false);
             LinkedHashMap<Symbol, List<Production>> symbolListLinkedHashMap = grammar.getProductionMap();
             //输出产生式
             System.out.println("----------------产生式列表：------------------");
@@ -630,21 +781,19 @@ public class LR1Utils {
                     System.out.println(production);
                 }
             }
-            List<ProductionItemSet> productionItemSetList = generateProductionItemSets(grammar);
             System.out.println("----------------文法：------------------");
             System.out.println(grammar);
             for (ProductionItemSet productionItemSet : productionItemSetList) {
                 System.out.println(productionItemSet);
             }
             //创建LR1分析表
-            Map<ProductionItemSet, Map<Symbol, ActionItem>> actionMap = new HashMap<>();
-            Map<ProductionItemSet, Map<Symbol, GotoItem>> gotoMap = new HashMap<>();
             System.out.println("--------------------LR(1)分析表：----------------");
-            LR1Utils.createLR1Table(grammar, productionItemSetList, actionMap, gotoMap);
+            LR1Table table = LR1Utils.createLR1Table(grammar, productionItemSetList);
             System.out.println("LR(1)分析过程");
-            matchTokenList(tokenList,productionItemSetList.get(0),actionMap,gotoMap);
+            return table;
         } else {
             System.out.println("语法分析错误！未读取到任何产生式");
+            return null;
         }
     }
 }
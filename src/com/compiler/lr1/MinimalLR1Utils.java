@@ -0,0 +1,395 @@
+package com.compiler.lr1;
+
+import com.compiler.model.Production;
+import com.compiler.model.SymbolTable;
+
+import java.util.*;
+
+/**
+ * 最小LR(1)分析表的构造（Pager的PGM方法）
+ * 与规范LR(1)相同地求项目集和展望符，但得到的后继项目集与已有的同心项目集弱相容时直接合并，而不是新建项目集：
+ * 1.项目集由核心项目（有序）和每个核心项目的展望符集合表示，非核心项目的展望符在求闭包时计算
+ * 2.核心项目为i=1..n，已有项目集的展望符为A_i，新项目集为B_i，
+ *   若对所有i≠j都有 (A_i∩B_j)∪(A_j∩B_i)=∅，或A_i∩A_j≠∅，或B_i∩B_j≠∅，则两者弱相容，
+ *   合并弱相容的项目集不会引入规范LR(1)中没有的归约-归约冲突
+ * 3.展望符被B_i包含时直接使用已有项目集；合并使已有项目集的展望符增大时，重新计算它的后继项目集
+ * 4.驱动程序把ε当作终结符，只在展望符没有其他动作时移进ε，Pager的判断不考虑这种移进：
+ *   闭包中有ε的移进时，若使用已有项目集或合并会使某一方原来移进ε的展望符改为归约，则不使用、不合并；
+ *   经ε到达的后继项目集只使用展望符完全相同的项目集，否则前驱项目集原本出错的输入会移进ε后归约，可能不读入输入地循环
+ * 5.重新计算后不再可达的项目集被删除，其余项目集按广度优先的顺序重新编号
+ * 项目集数接近LALR(1)。只有规范LR(1)的某个项目集中同一展望符既可以归约又可以移进ε时（驱动程序选择归约，不报告冲突），
+ * 合并后的后继项目集才可能把其他项目集中移进ε的展望符改为归约，使接受的语言与规范LR(1)分析表不同
+ * 项目用ItemTable中的int表示，不创建ProductionItem对象
+ * */
+public class MinimalLR1Utils {
+
+    /**
+     * 读取产生式，生成最小LR(1)分析表，冲突总是输出
+     * @param productionPath 语法分析的产生式列表
+     * @param print          是否输出项目集和分析表
+     * @return               最小LR(1)分析表，未读取到任何产生式时返回null
+     * */
+    public static LR1Table buildMinimalLR1Table(String productionPath, boolean print) {
+        List<Production> productionList = LR1Utils.readProductionTXT(productionPath);
+        if(productionList.isEmpty()){
+            System.out.println("语法分析错误！未读取到任何产生式");
+            return null;
+        }
+        //将产生式集合的第一个产生的左部作为语法的开始符号
+        Grammar grammar = Grammar.creat(productionList.get(0).getLeft(), productionList);
+        List<String> conflicts = new ArrayList<>();
+        LR1Table table = createMinimalLR1Table(grammar, conflicts, print);
+        for(String conflict : conflicts){
+            System.out.println(conflict);
+        }
+        if(print)
+            System.out.println("最小LR(1)分析过程");
+        return table;
+    }
+
+    /**
+     * 生成最小LR(1)分析表
+     * @param grammar   文法
+     * @param conflicts 用于保存冲突信息，每个冲突一条
+     * @param print     是否输出项目集和分析表
+     * @return          最小LR(1)分析表
+     * */
+    public static LR1Table createMinimalLR1Table(Grammar grammar, List<String> conflicts, boolean print){
+        ItemTable items = new ItemTable(grammar);
+        StateCollection collection = new StateCollection(items);
+        List<State> states = collection.reachableStates();
+        SymbolTable symbolTable = grammar.getSymbolTable();
+        LR1TableBuilder table = new LR1TableBuilder(symbolTable, 0, states.size(), items.productionList);
+        for(int state = 0; state < states.size(); ++state){
+            State current = states.get(state);
+            int[] closure = collection.closure(current);
+            BitSet[] lookaheads = collection.closureLookaheads;
+            //移进和goto不会冲突，展望符为空的项目没有后继项目集
+            for(int item : closure){
+                int symbol = items.nextSymbol(item);
+                if(symbol < 0 || current.transitions[symbol] < 0)
+                    continue;
+                if(symbolTable.isTerminal(symbol))
+                    table.setAction(state, symbol, LR1Table.encode(LR1Table.SHIFT, current.transitions[symbol]));
+                else
+                    table.setGoto(state, symbol, current.transitions[symbol]);
+            }
+            for(int i = 0; i < closure.length; ++i){
+                int item = closure[i];
+                if(items.nextSymbol(item) >= 0)
+                    continue;
+                int production = items.productionOf[item];
+                if(items.lefts[production] == items.start){
+                    //S'->S•，为ACC
+                    table.setAction(state, SymbolTable.END, LR1Table.encode(LR1Table.ACCEPT, 0), conflicts);
+                    continue;
+                }
+                BitSet lookahead = lookaheads[i];
+                int action = LR1Table.encode(LR1Table.REDUCE, production);
+                for(int symbol = lookahead.nextSetBit(0); symbol >= 0; symbol = lookahead.nextSetBit(symbol + 1)){
+                    table.setAction(state, symbol, action, conflicts);
+                }
+            }
+        }
+        if(print){
+            for(int state = 0; state < states.size(); ++state){
+                int[] closure = collection.closure(states.get(state));
+                StringBuilder stringBuilder = new StringBuilder();
+                stringBuilder.append("ProductionItemSet{I").append(state).append(":");
+                for(int i = 0; i < closure.length; ++i){
+                    stringBuilder.append(items.toString(closure[i], collection.closureLookaheads[i])).append("\t");
+                }
+                stringBuilder.deleteCharAt(stringBuilder.length() - 1);
+                stringBuilder.append("}");
+                System.out.println(stringBuilder);
+            }
+            System.out.println("最小LR(1)项目集数: " + states.size() + ", 合并次数: " + collection.merges);
+            int[] indexes = new int[states.size()];
+            for(int i = 0; i < indexes.length; ++i){
+                indexes[i] = i;
+            }
+            System.out.println("--------------------最小LR(1)分析表：----------------");
+            LR1Utils.printLR1Table("最小LR(1)", indexes, grammar, table);
+        }
+        return table.build();
+    }
+
+    /**
+     * 项目集
+     * */
+    private static class State {
+        private final int id;                   //在states中的下标
+        private final int[] kernel;             //核心项目（有序）
+        private final BitSet[] lookaheads;      //每个核心项目的展望符
+        private int[] transitions;              //在各文法符号上的后继项目集的id，重新编号后为新序号，-1表示没有
+        private boolean queued;                 //是否在待计算后继的队列中
+        private int index = -1;                 //删除不可达的项目集后的序号
+
+        private State(int id, int[] kernel, BitSet[] lookaheads) {
+            this.id = id;
+            this.kernel = kernel;
+            this.lookaheads = lookaheads;
+        }
+
+        /**
+         * @return 展望符是否都被已有的展望符包含
+         * */
+        private boolean covers(BitSet[] other){
+            for(int i = 0; i < lookaheads.length; ++i){
+                BitSet extra = (BitSet) other[i].clone();
+                extra.andNot(lookaheads[i]);
+                if(!extra.isEmpty())
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * Pager的弱相容判断
+         * @return 与展望符为other的同心项目集是否弱相容
+         * */
+        private boolean weaklyCompatible(BitSet[] other){
+            for(int i = 0; i < lookaheads.length; ++i){
+                for(int j = i + 1; j < lookaheads.length; ++j){
+                    if(!lookaheads[i].intersects(other[j]) && !lookaheads[j].intersects(other[i]))
+                        continue;
+                    if(!lookaheads[i].intersects(lookaheads[j]) && !other[i].intersects(other[j]))
+                        return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 合并展望符
+         * @return 展望符是否增大
+         * */
+        private boolean merge(BitSet[] other){
+            boolean changed = false;
+            for(int i = 0; i < lookaheads.length; ++i){
+                int cardinality = lookaheads[i].cardinality();
+                lookaheads[i].or(other[i]);
+                changed |= lookaheads[i].cardinality() != cardinality;
+            }
+            return changed;
+        }
+    }
+
+    /**
+     * 合并弱相容项目集的LR(1)项目集族
+     * */
+    private static class StateCollection {
+        private final ItemTable items;
+        private final int symbolCount;
+        private final List<State> states = new ArrayList<>();
+        private final Map<ItemTable.KernelKey, List<State>> statesByKernel = new HashMap<>();
+        private final int[] added;              //求闭包时记录已加入的非终结符
+        private int stamp = 0;
+        private final int[] itemIndex;          //项目在当前闭包中的下标
+        private BitSet[] closureLookaheads;     //最近一次求得的闭包中每个项目的展望符
+        private int merges = 0;                 //合并的次数
+
+        private StateCollection(ItemTable items) {
+            this.items = items;
+            this.symbolCount = items.symbolTable.size();
+            this.added = new int[symbolCount];
+            this.itemIndex = new int[items.productionOf.length];
+            int[] startKernel = items.startKernel();
+            BitSet[] startLookaheads = new BitSet[startKernel.length];
+            for(int i = 0; i < startKernel.length; ++i){
+                startLookaheads[i] = new BitSet(symbolCount);
+                startLookaheads[i].set(SymbolTable.END);
+            }
+            Deque<State> queue = new ArrayDeque<>();
+            queue.add(addState(startKernel, startLookaheads));
+            while(!queue.isEmpty()){
+                State state = queue.poll();
+                state.queued = false;
+                computeTransitions(state, queue);
+            }
+        }
+
+        private State addState(int[] kernel, BitSet[] lookaheads){
+            State state = new State(states.size(), kernel, lookaheads);
+            state.queued = true;
+            states.add(state);
+            statesByKernel.computeIfAbsent(new ItemTable.KernelKey(kernel), k -> new ArrayList<>()).add(state);
+            return state;
+        }
+
+        /**
+         * 求项目集的闭包及闭包中每个项目的展望符（保存在closureLookaheads中）
+         * @param state 项目集
+         * @return      闭包中的所有项目，核心项目在前
+         * */
+        private int[] closure(State state){
+            int[] closure = items.closure(state.kernel, added, ++stamp);
+            closureLookaheads = items.closureLookaheads(closure, state.lookaheads);
+            return closure;
+        }
+
+        /**
+         * 计算项目集的所有后继项目集，与已有的同心项目集弱相容时合并
+         * @param state 项目集
+         * @param queue 待计算后继的项目集
+         * */
+        private void computeTransitions(State state, Deque<State> queue){
+            int[] closure = closure(state);
+            BitSet[] lookaheads = closureLookaheads;
+            //按后继符号分组，组内按项目编号排序，得到后继项目集的核心
+            long[] moves = new long[closure.length];
+            int moveCount = 0;
+            for(int i = 0; i < closure.length; ++i){
+                int symbol = items.nextSymbol(closure[i]);
+                //展望符为空的项目（如只能推出无法终止的非终结符时）在规范LR(1)中不存在，不计算它的后继
+                if(symbol < 0 || lookaheads[i].isEmpty())
+                    continue;
+                itemIndex[closure[i]] = i;
+                moves[moveCount++] = (long) symbol << 32 | (closure[i] + 1);
+            }
+            Arrays.sort(moves, 0, moveCount);
+            int[] transitions = new int[symbolCount];
+            Arrays.fill(transitions, -1);
+            for(int from = 0; from < moveCount; ){
+                int to = from;
+                while(to < moveCount && moves[to] >>> 32 == moves[from] >>> 32)
+                    ++to;
+                int[] kernel = new int[to - from];
+                BitSet[] kernelLookaheads = new BitSet[kernel.length];
+                for(int i = from; i < to; ++i){
+                    kernel[i - from] = (int) moves[i];
+                    kernelLookaheads[i - from] = (BitSet) lookaheads[itemIndex[kernel[i - from] - 1]].clone();
+                }
+                int symbol = (int) (moves[from] >>> 32);
+                transitions[symbol] = findOrAdd(kernel, kernelLookaheads, symbol == SymbolTable.EPSILON, queue);
+                from = to;
+            }
+            state.transitions = transitions;
+        }
+
+        /**
+         * 查找或创建后继项目集
+         * 经ε到达的后继项目集只使用展望符完全相同的已有项目集，不使用包含它的项目集，也不合并：
+         * 驱动程序在没有其他动作时才移进ε，后继项目集中多出的归约展望符会被前驱项目集在原本出错的输入上使用，
+         * 归约后可能又回到前驱项目集，不读入输入地无限循环
+         * @param epsilon 是否为经ε到达的后继项目集
+         * @return        项目集在states中的下标
+         * */
+        private int findOrAdd(int[] kernel, BitSet[] lookaheads, boolean epsilon, Deque<State> queue){
+            List<State> candidates = statesByKernel.get(new ItemTable.KernelKey(kernel));
+            if(candidates != null && epsilon){
+                for(State candidate : candidates){
+                    if(Arrays.equals(candidate.lookaheads, lookaheads))
+                        return candidate.id;
+                }
+            }
+            else if(candidates != null){
+                //闭包中有ε的移进时，还需要检查合并是否改变ε的移进，没有时为null
+                int[] closure = epsilonClosure(kernel);
+                BitSet[] actions = closure == null ? null : reduceAndEpsilon(closure, lookaheads);
+                //展望符已被包含时不需要修改
+                for(State candidate : candidates){
+                    if(candidate.covers(lookaheads)
+                            && (closure == null || !hidesEpsilonShift(actions, reduceAndEpsilon(closure, candidate.lookaheads))))
+                        return candidate.id;
+                }
+                for(State candidate : candidates){
+                    if(!candidate.weaklyCompatible(lookaheads))
+                        continue;
+                    if(closure != null){
+                        BitSet[] candidateActions = reduceAndEpsilon(closure, candidate.lookaheads);
+                        if(hidesEpsilonShift(actions, candidateActions) || hidesEpsilonShift(candidateActions, actions))
+                            continue;
+                    }
+                    ++merges;
+                    if(candidate.merge(lookaheads) && !candidate.queued){
+                        //展望符增大，需要重新计算后继项目集
+                        candidate.queued = true;
+                        queue.add(candidate);
+                    }
+                    return candidate.id;
+                }
+            }
+            State state = addState(kernel, lookaheads);
+            queue.add(state);
+            return state.id;
+        }
+
+        /**
+         * 求核心项目的LR(0)闭包，闭包中没有ε的移进时返回null
+         * */
+        private int[] epsilonClosure(int[] kernel){
+            int[] closure = items.closure(kernel, added, ++stamp);
+            for(int item : closure){
+                if(items.nextSymbol(item) == SymbolTable.EPSILON)
+                    return closure;
+            }
+            return null;
+        }
+
+        /**
+         * 求项目集中归约的展望符，以及移进ε后可能继续分析的展望符
+         * 对A->α•εβ,a，移进ε后只有FIRST(βa)中的符号可能继续分析
+         * @param closure          核心项目的LR(0)闭包
+         * @param kernelLookaheads 每个核心项目的展望符
+         * @return                 [0]为归约的展望符，[1]为ε的移进的展望符
+         * */
+        private BitSet[] reduceAndEpsilon(int[] closure, BitSet[] kernelLookaheads){
+            BitSet[] lookaheads = items.closureLookaheads(closure, kernelLookaheads);
+            BitSet reduce = new BitSet(symbolCount);
+            BitSet epsilon = new BitSet(symbolCount);
+            for(int i = 0; i < closure.length; ++i){
+                int symbol = items.nextSymbol(closure[i]);
+                if(lookaheads[i].isEmpty())
+                    continue;
+                if(symbol < 0 && items.lefts[items.productionOf[closure[i]]] != items.start)
+                    reduce.or(lookaheads[i]);
+                else if(symbol == SymbolTable.EPSILON){
+                    epsilon.or(items.firstAfter(closure[i]));
+                    if(items.nullableRest[closure[i] + 1])
+                        epsilon.or(lookaheads[i]);
+                }
+            }
+            return new BitSet[]{reduce, epsilon};
+        }
+
+        /**
+         * 驱动程序只在展望符没有其他动作时移进ε，因此合并后新增的归约展望符若属于原项目集ε的移进的展望符，
+         * 原来移进ε的输入会改为归约，接受的语言可能改变，而且不会产生冲突
+         * @param from 原项目集的reduceAndEpsilon
+         * @param into 合并到的项目集的reduceAndEpsilon
+         * @return     合并是否使原项目集的ε的移进被归约代替
+         * */
+        private static boolean hidesEpsilonShift(BitSet[] from, BitSet[] into){
+            BitSet hidden = (BitSet) into[0].clone();
+            hidden.andNot(from[0]);
+            return hidden.intersects(from[1]);
+        }
+
+        /**
+         * 删除不可达的项目集，按广度优先的顺序重新编号，开始项目集为0，后继项目集也改为新序号
+         * @return 以新序号为下标的项目集
+         * */
+        private List<State> reachableStates(){
+            List<State> result = new ArrayList<>();
+            State start = states.get(0);
+            start.index = 0;
+            result.add(start);
+            for(int i = 0; i < result.size(); ++i){
+                for(int target : result.get(i).transitions){
+                    if(target >= 0 && states.get(target).index < 0){
+                        states.get(target).index = result.size();
+                        result.add(states.get(target));
+                    }
+                }
+            }
+            for(State state : result){
+                for(int symbol = 0; symbol < symbolCount; ++symbol){
+                    if(state.transitions[symbol] >= 0)
+                        state.transitions[symbol] = states.get(state.transitions[symbol]).index;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -1,95 +1,98 @@
 package com.compiler.lr1;
 
-import java.util.HashMap;
-import java.util.Objects;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 
 /**
  * 项目集
+ * 项目为ProductionItem编码后的long，只保存有序的核心项目，散列值在创建时计算
+ * 核心项目相同的项目集闭包也相同，因此以核心项目判断项目集是否相同，闭包在需要时重新计算
  * */
-public class ProductionItemSet implements Comparable<ProductionItemSet>, Cloneable{
-    //所有项目集的集合，以项目集转换为字符串的内容为键
-    public static final HashMap<String, ProductionItemSet> itemSets = new HashMap<>();
-    private static int total = 0;                               //项目集总数
-    private final Set<ProductionItem> productionItemSet;        //项目集
-    private final String content;                               //项目集转换为字符串的内容
-    private final int index;                                    //当前项目集的标号
-
-    public ProductionItemSet(Set<ProductionItem> productionItemSet, String content, int index) {
-        this.productionItemSet = productionItemSet;
-        this.content = content;
+public class ProductionItemSet implements Comparable<ProductionItemSet>{
+    private final Table table;                      //项目集所属的散列表，用于求闭包
+    private final long[] kernel;                    //有序的核心项目
+    private final int hash;                         //核心项目的散列值
+    private final int index;                        //当前项目集的标号
+    private int[] transitions;                      //在各文法符号上的后继项目集的标号，-1表示没有
+
+    private ProductionItemSet(Table table, long[] kernel, int hash, int index) {
+        this.table = table;
+        this.kernel = kernel;
+        this.hash = hash;
         this.index = index;
-        ++total;        //每执行一次构造函数，项目集总数+1
+    }
+
+    public long[] getKernel() {
+        return kernel;
     }
 
     /**
-     * 根据文法的项目的集合创建项目集（去除重复）
-     * @param productionItemSet 文法项目的集合
-     * @return                  项目集
+     * 重新计算项目集的闭包，结果不保存
+     * @return 闭包，项目按LR(0)项目分组
      * */
-    public static ProductionItemSet create(Set<ProductionItem> productionItemSet){
-        StringBuilder stringBuilder = new StringBuilder();
-        //排序，保证顺序不同但内容相同的set生成的stringBuilder是相同的
-        productionItemSet.stream().sorted().forEach(
-                productionItem -> stringBuilder.append(productionItem.getContent()).append(";")
-        );
-        String content = stringBuilder.toString();
-        //通过content查找hashmap判断是否存在过
-        if(itemSets.containsKey(content)){
-            return itemSets.get(content);       //直接返回已有集合
-        }
-        else{
-            ProductionItemSet itemSet = new ProductionItemSet(productionItemSet,content,total);
-            itemSets.put(content,itemSet);
-            return itemSet;
-        }
+    Closure closure(){
+        return table.closure(kernel);
     }
 
-    public static HashMap<String, ProductionItemSet> getItemSets() {
-        return itemSets;
+    /**
+     * 重新计算项目集的闭包，结果不保存
+     * @return 项目集中的所有项目（有序）
+     * */
+    public long[] getProductionItems() {
+        Closure closure = closure();
+        int size = 0;
+        for(BitSet lookahead : closure.lookaheads){
+            size += lookahead.cardinality();
+        }
+        long[] productionItems = new long[size];
+        size = 0;
+        for(int i = 0; i < closure.items.length; ++i){
+            BitSet lookahead = closure.lookaheads[i];
+            for(int expect = lookahead.nextSetBit(0); expect >= 0; expect = lookahead.nextSetBit(expect + 1)){
+                productionItems[size++] = ProductionItem.encode(closure.items[i], expect);
+            }
+        }
+        return productionItems;
     }
 
-    public static int getTotal() {
-        return total;
+    public int getIndex() {
+        return index;
     }
 
-    public Set<ProductionItem> getProductionItemSet() {
-        return productionItemSet;
+    ItemTable getItemTable() {
+        return table.items;
     }
 
-    public String getContent() {
-        return content;
+    /**
+     * @param symbol 文法符号的编号
+     * @return       在该文法符号上的后继项目集的标号，没有或还未计算时返回-1
+     * */
+    public int getTransition(int symbol){
+        return transitions == null ? -1 : transitions[symbol];
     }
 
-    public int getIndex() {
-        return index;
+    void setTransitions(int[] transitions) {
+        this.transitions = transitions;
     }
 
     @Override
     public boolean equals(Object obj) {
         if(this == obj) return true;
         if(obj == null || getClass() != obj.getClass()) return false;
-        //根据content判断是否相等
         ProductionItemSet productionItemSet = (ProductionItemSet) obj;
-        return Objects.equals(content,productionItemSet.content);
+        return hash == productionItemSet.hash && Arrays.equals(kernel, productionItemSet.kernel);
     }
 
     @Override
-    public int compareTo(ProductionItemSet obj){
-        Integer a = this.index;
-        Integer b = obj.index;
-        return a.compareTo(b);
+    public int hashCode() {
+        return hash;
     }
 
     @Override
-    protected ProductionItemSet clone() throws CloneNotSupportedException {
-        try {
-            ProductionItemSet obj = (ProductionItemSet) super.clone();
-            return obj;
-        } catch (CloneNotSupportedException e) {
-            e.printStackTrace();
-        }
-        return null;
+    public int compareTo(ProductionItemSet obj){
+        return Integer.compare(index, obj.index);
     }
 
     @Override
@@ -97,11 +100,99 @@ public class ProductionItemSet implements Comparable<ProductionItemSet>, Cloneab
         //ProductionItemSet{I0:S'->S,#}
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append("ProductionItemSet{I").append(index).append(":");
-        for(ProductionItem productionItem : productionItemSet){
-            stringBuilder.append(productionItem.getContent()).append("\t");
+        for(long productionItem : getProductionItems()){
+            stringBuilder.append(ProductionItem.toString(productionItem, table.items)).append("\t");
         }
         stringBuilder.deleteCharAt(stringBuilder.length() - 1);
         stringBuilder.append("}");
         return stringBuilder.toString();
     }
+
+    /**
+     * 项目集的闭包，项目按LR(0)项目分组，每组的展望符为一个BitSet
+     * */
+    static class Closure {
+        final int[] items;                  //LR(0)项目编号（有序）
+        final BitSet[] lookaheads;          //每个项目的展望符，不能修改
+
+        Closure(int[] items, BitSet[] lookaheads) {
+            this.items = items;
+            this.lookaheads = lookaheads;
+        }
+    }
+
+    /**
+     * 项目集的散列表（开放定址，线性探查），以有序的核心项目为键，相同的核心项目只创建一个项目集
+     * 项目集按加入的顺序从0开始标号
+     * */
+    static class Table {
+        private final ItemTable items;
+        private final List<ProductionItemSet> itemSets = new ArrayList<>();    //以标号为下标的项目集
+        private ProductionItemSet[] slots = new ProductionItemSet[64];         //长度为2的幂，装填因子不超过1/2
+        private final int[] added;                  //求闭包时记录已加入的非终结符
+        private int stamp = 0;
+
+        Table(ItemTable items) {
+            this.items = items;
+            this.added = new int[items.symbolTable.size()];
+        }
+
+        /**
+         * 求核心项目的闭包
+         * @param kernel 有序的核心项目
+         * @return       闭包，项目按LR(0)项目分组
+         * */
+        Closure closure(long[] kernel){
+            return LR1Utils.closure(kernel, items, added, ++stamp);
+        }
+
+        /**
+         * 查找核心项目相同的项目集，没有时创建
+         * @param kernel 有序的核心项目，创建项目集时直接使用，之后不能修改
+         * @return       项目集，新建的项目集的标号为size()-1
+         * */
+        ProductionItemSet intern(long[] kernel){
+            int hash = Arrays.hashCode(kernel);
+            int mask = slots.length - 1;
+            int slot = (hash ^ hash >>> 16) & mask;
+            while(slots[slot] != null){
+                ProductionItemSet itemSet = slots[slot];
+                if(itemSet.hash == hash && Arrays.equals(itemSet.kernel, kernel))
+                    return itemSet;
+                slot = (slot + 1) & mask;
+            }
+            ProductionItemSet itemSet = new ProductionItemSet(this, kernel, hash, itemSets.size());
+            itemSets.add(itemSet);
+            slots[slot] = itemSet;
+            if(itemSets.size() * 2 > slots.length)
+                resize();
+            return itemSet;
+        }
+
+        private void resize(){
+            ProductionItemSet[] old = slots;
+            slots = new ProductionItemSet[old.length * 2];
+            int mask = slots.length - 1;
+            for(ProductionItemSet itemSet : old){
+                if(itemSet == null)
+                    continue;
+                int slot = (itemSet.hash ^ itemSet.hash >>> 16) & mask;
+                while(slots[slot] != null)
+                    slot = (slot + 1) & mask;
+                slots[slot] = itemSet;
+            }
+        }
+
+        int size(){
+            return itemSets.size();
+        }
+
+        ProductionItemSet get(int index){
+            return itemSets.get(index);
+        }
+
+        List<ProductionItemSet> getItemSets() {
+            return itemSets;
+        }
+    }
 }
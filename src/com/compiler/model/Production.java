@@ -12,6 +12,8 @@ public class Production {
     private final boolean isEpsilon;    //是否是空
     public static int count = 0;       //产生式计数器
     private final int index;            //产生式序号
+    private int leftId = SymbolTable.NO_SYMBOL;     //产生式左部在符号表中的编号
+    private int[] rightIds;                         //产生式右部在符号表中的编号
 
     public Production(Symbol left, List<Symbol> right) {
         this.left = left;
@@ -75,6 +77,24 @@ public class Production {
         return index;
     }
 
+    /**
+     * 记录产生式左部和右部在符号表中的编号，由SymbolTable调用
+     * @param leftId   左部的编号
+     * @param rightIds 右部的编号
+     * */
+    void bind(int leftId, int[] rightIds){
+        this.leftId = leftId;
+        this.rightIds = rightIds;
+    }
+
+    public int getLeftId() {
+        return leftId;
+    }
+
+    public int[] getRightIds() {
+        return rightIds;
+    }
+
     @Override
     public String toString() {
         StringBuilder string = new StringBuilder();
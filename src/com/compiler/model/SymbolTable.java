@@ -0,0 +1,101 @@
+package com.compiler.model;
+
+import java.util.*;
+
+/**
+ * 文法符号表
+ * 将文法中的每个终结符和非终结符编号为一个较小的整数，语法分析时只比较编号，不再对Symbol求哈希
+ * 1.编号从0开始连续分配，0固定为结束符号#，1固定为空符号ε
+ * 2.编号是否为终结符记录在terminals中
+ * 3.产生式的左部和右部在加入符号表时被转换为编号
+ * */
+public class SymbolTable {
+    public static final int END = 0;                //结束符号#的编号
+    public static final int EPSILON = 1;            //空符号ε的编号
+    public static final int NO_SYMBOL = -1;         //不在符号表中的符号
+
+    private final List<Symbol> symbols = new ArrayList<>();            //以编号为下标的文法符号
+    private final Map<Symbol, Integer> ids = new HashMap<>();          //文法符号对应的编号
+    private final Map<String, Integer> terminalIds = new HashMap<>();  //终结符的内容对应的编号，用于查找token
+    private final BitSet terminals = new BitSet();                     //为终结符的编号
+
+    public SymbolTable() {
+        intern(Symbol.END);
+        intern(new Symbol(Symbol.EPSILON));
+    }
+
+    /**
+     * 获取文法符号的编号，第一次出现时分配新的编号
+     * @param symbol 文法符号
+     * @return       编号
+     * */
+    public int intern(Symbol symbol){
+        Integer id = ids.get(symbol);
+        if(id != null)
+            return id;
+        id = symbols.size();
+        symbols.add(symbol);
+        ids.put(symbol, id);
+        if(symbol.isVt()){
+            terminals.set(id);
+            if(!symbol.isEnd())
+                terminalIds.putIfAbsent(symbol.getContent(), id);
+        }
+        return id;
+    }
+
+    /**
+     * 将产生式的左部和右部转换为编号，保存在产生式中
+     * @param production 产生式
+     * */
+    public void intern(Production production){
+        int left = intern(production.getLeft());
+        List<Symbol> right = production.getRight();
+        int[] rightIds = new int[right.size()];
+        for(int i = 0; i < rightIds.length; ++i){
+            rightIds[i] = intern(right.get(i));
+        }
+        production.bind(left, rightIds);
+    }
+
+    /**
+     * 获取文法符号的编号
+     * @param symbol 文法符号
+     * @return       编号，不在符号表中时返回NO_SYMBOL
+     * */
+    public int idOf(Symbol symbol){
+        Integer id = ids.get(symbol);
+        return id == null ? NO_SYMBOL : id;
+    }
+
+    /**
+     * 根据内容获取终结符的编号，用于将token转换为文法符号
+     * @param content 终结符的内容
+     * @return        编号，不是文法中的终结符时返回NO_SYMBOL
+     * */
+    public int terminalIdOf(String content){
+        Integer id = terminalIds.get(content);
+        return id == null ? NO_SYMBOL : id;
+    }
+
+    public Symbol get(int id){
+        return symbols.get(id);
+    }
+
+    public boolean isTerminal(int id){
+        return terminals.get(id);
+    }
+
+    public int size(){
+        return symbols.size();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder("SymbolTable{");
+        for(int id = 0; id < symbols.size(); ++id){
+            stringBuilder.append(id).append("=").append(symbols.get(id).getContent()).append(";");
+        }
+        return stringBuilder.append("}").toString();
+    }
+}
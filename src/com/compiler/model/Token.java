@@ -1,8 +1,6 @@
 package com.compiler.model;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 
 /**
  * Token类
@@ -27,6 +25,20 @@ public class Token {
             ",", ";", ".", "[", "]", "{", "}", "(", ")", "\"", "'"
     ));
 
+    /**
+     * 获取所有的保留字（关键词、限定符、界符、运算符）及其类型
+     * 同一个字符串属于多种类型时，按genType中的判断顺序取第一个类型
+     * @return 以保留字为键，类型为值
+     * */
+    public static Map<String, TokenType> getReservedWords(){
+        Map<String, TokenType> reservedWords = new LinkedHashMap<>();
+        KEYWORDS.forEach(word -> reservedWords.putIfAbsent(word, TokenType.KEYWORDS));
+        QUALIFIER.forEach(word -> reservedWords.putIfAbsent(word, TokenType.QUALIFIER));
+        SYMBOL.forEach(word -> reservedWords.putIfAbsent(word, TokenType.SYMBOL));
+        OPERATOR.forEach(word -> reservedWords.putIfAbsent(word, TokenType.OPERATOR));
+        return reservedWords;
+    }
+
     public Token() {
     }
 
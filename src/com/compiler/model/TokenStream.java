@@ -0,0 +1,34 @@
+package com.compiler.model;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Token流
+ * 语法分析每次从流中取出一个token，词法分析只在需要时才识别下一个token
+ * */
+public interface TokenStream {
+    /**
+     * 获取下一个token
+     * @return 下一个token，没有更多的token或出错时返回null
+     * */
+    Token next();
+
+    /**
+     * 是否因为出错而结束
+     * @return true表示出错
+     * */
+    default boolean hasError(){
+        return false;
+    }
+
+    /**
+     * 将已有的token列表包装为token流
+     * @param tokenList token列表
+     * @return          token流
+     * */
+    static TokenStream of(List<Token> tokenList){
+        Iterator<Token> iterator = tokenList.iterator();
+        return () -> iterator.hasNext() ? iterator.next() : null;
+    }
+}
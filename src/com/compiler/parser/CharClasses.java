@@ -0,0 +1,216 @@
+package com.compiler.parser;
+
+import java.util.*;
+
+/**
+ * 字符等价类（字母表压缩）
+ * 在NFA的所有转换中行为完全相同的字符属于同一个字符类，如标识符中的所有字母
+ * 子集构造、DFA最小化和词法分析都以字符类代替单个字符
+ * 1.ASCII字符直接查表
+ * 2.其余字符按区间有序存储，二分查找
+ * 3.第0类表示不在字母表中的字符，没有任何转换
+ * */
+public class CharClasses {
+    public static final int NONE = 0;               //不在字母表中的字符
+    private static final int ASCII_SIZE = 128;
+
+    private final int classCount;                   //字符类数（包括第0类）
+    private final int[] asciiClass;                 //ASCII字符对应的字符类
+    private final char[] rangeStart;                //非ASCII区间的开始字符（有序）
+    private final char[] rangeEnd;                  //非ASCII区间的结束字符（含）
+    private final int[] rangeClass;                 //非ASCII区间对应的字符类
+    private final char[][] classChars;              //每个字符类包含的字符（有序）
+
+    private CharClasses(int classCount, int[] asciiClass, char[] rangeStart, char[] rangeEnd, int[] rangeClass,
+                        char[][] classChars) {
+        this.classCount = classCount;
+        this.asciiClass = asciiClass;
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+        this.rangeClass = rangeClass;
+        this.classChars = classChars;
+    }
+
+    /**
+     * 根据已有的字符类表创建字符类，用于加载生成的词法分析表
+     * @param asciiClass ASCII字符对应的字符类
+     * @param rangeStart 非ASCII区间的开始字符（有序）
+     * @param rangeEnd   非ASCII区间的结束字符（含）
+     * @param rangeClass 非ASCII区间对应的字符类
+     * @param classChars 每个字符类包含的字符（有序）
+     * @return           字符类
+     * */
+    public static CharClasses of(int[] asciiClass, char[] rangeStart, char[] rangeEnd, int[] rangeClass,
+                                 char[][] classChars){
+        if(asciiClass.length != ASCII_SIZE || rangeStart.length != rangeEnd.length || rangeStart.length != rangeClass.length){
+            throw new RuntimeException("字符类表的长度不正确");
+        }
+        return new CharClasses(classChars.length, asciiClass, rangeStart, rangeEnd, rangeClass, classChars);
+    }
+
+    /**
+     * 根据NFA的转换划分字符类
+     * 字符c的特征为所有以c为路径的边(起点,终点)组成的集合，特征相同的字符属于同一个字符类
+     * 如果给出了token类型的分类自动机，还要求字符在分类自动机中的转换相同
+     * @param nfaStates  按编号存储的NFA结点
+     * @param classifier token类型的分类自动机，可以为null
+     * @return           字符类
+     * */
+    public static CharClasses build(List<NFAState> nfaStates, TokenClassifier classifier){
+        long n = nfaStates.size();
+        //求出每个字符的特征
+        TreeMap<Character, List<Long>> signatures = new TreeMap<>();
+        for(NFAState nfaState : nfaStates){
+            for(Map.Entry<String, Set<NFAState>> edge : nfaState.getEdges().entrySet()){
+                if(edge.getKey().equals(NFAState.EPSILON))
+                    continue;
+                List<Long> signature = signatures.computeIfAbsent(edge.getKey().charAt(0), k -> new ArrayList<>());
+                for(NFAState nextState : edge.getValue()){
+                    signature.add(nfaState.getIndex() * n + nextState.getIndex());
+                }
+            }
+        }
+        //特征相同的字符划分为同一个字符类，字符类按其最小字符的顺序编号
+        Map<List<Object>, Integer> classIndex = new HashMap<>();
+        List<StringBuilder> members = new ArrayList<>();
+        members.add(new StringBuilder());
+        int[] asciiClass = new int[ASCII_SIZE];
+        List<char[]> ranges = new ArrayList<>();
+        List<Integer> classes = new ArrayList<>();
+        for(Map.Entry<Character, List<Long>> entry : signatures.entrySet()){
+            char ch = entry.getKey();
+            List<Long> nfaSignature = entry.getValue();
+            Collections.sort(nfaSignature);
+            List<Object> signature = Arrays.asList(nfaSignature, classifier == null ? null : classifier.signature(ch));
+            //cls为int，与classes中的Integer比较时按值比较
+            int cls = classIndex.getOrDefault(signature, NONE);
+            if(cls == NONE){
+                cls = members.size();
+                classIndex.put(signature, cls);
+                members.add(new StringBuilder());
+            }
+            members.get(cls).append(ch);
+            if(ch < ASCII_SIZE){
+                asciiClass[ch] = cls;
+            }
+            else{
+                //与上一个区间相邻且属于同一个字符类时合并区间
+                int last = ranges.size() - 1;
+                if(last >= 0 && ranges.get(last)[1] + 1 == ch && classes.get(last) == cls)
+                    ranges.get(last)[1] = ch;
+                else{
+                    ranges.add(new char[]{ch, ch});
+                    classes.add(cls);
+                }
+            }
+        }
+        char[] rangeStart = new char[ranges.size()];
+        char[] rangeEnd = new char[ranges.size()];
+        int[] rangeClass = new int[ranges.size()];
+        for(int i = 0; i < ranges.size(); ++i){
+            rangeStart[i] = ranges.get(i)[0];
+            rangeEnd[i] = ranges.get(i)[1];
+            rangeClass[i] = classes.get(i);
+        }
+        char[][] classChars = new char[members.size()][];
+        for(int i = 0; i < members.size(); ++i){
+            classChars[i] = members.get(i).toString().toCharArray();
+        }
+        return new CharClasses(members.size(), asciiClass, rangeStart, rangeEnd, rangeClass, classChars);
+    }
+
+    /**
+     * 获取字符对应的字符类
+     * @param ch 输入字符
+     * @return   字符类，NONE表示该字符不在字母表中
+     * */
+    public int classOf(char ch){
+        if(ch < ASCII_SIZE)
+            return asciiClass[ch];
+        //二分查找区间
+        int low = 0;
+        int high = rangeStart.length - 1;
+        while(low <= high){
+            int mid = (low + high) >>> 1;
+            if(ch < rangeStart[mid])
+                high = mid - 1;
+            else if(ch > rangeEnd[mid])
+                low = mid + 1;
+            else
+                return rangeClass[mid];
+        }
+        return NONE;
+    }
+
+    /**
+     * 获取字符类的代表字符（字符类中最小的字符）
+     * @param cls 字符类
+     * @return    代表字符
+     * */
+    public char representative(int cls){
+        return classChars[cls][0];
+    }
+
+    /**
+     * 获取字符类包含的所有字符
+     * @param cls 字符类
+     * @return    字符类中的字符（有序）
+     * */
+    public char[] getChars(int cls){
+        return classChars[cls];
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    int[] getAsciiClass() {
+        return asciiClass;
+    }
+
+    char[] getRangeStart() {
+        return rangeStart;
+    }
+
+    char[] getRangeEnd() {
+        return rangeEnd;
+    }
+
+    int[] getRangeClass() {
+        return rangeClass;
+    }
+
+    /**
+     * 输出字符类，连续的字符以区间的形式输出，如[a-z0]
+     * @param cls 字符类
+     * @return    字符类的字符串形式
+     * */
+    public String describe(int cls){
+        char[] chars = classChars[cls];
+        if(chars.length == 1)
+            return String.valueOf(chars[0]);
+        StringBuilder stringBuilder = new StringBuilder("[");
+        int i = 0;
+        while(i < chars.length){
+            int j = i;
+            while(j + 1 < chars.length && chars[j + 1] == chars[j] + 1)
+                ++j;
+            stringBuilder.append(chars[i]);
+            if(j - i >= 2)
+                stringBuilder.append('-').append(chars[j]);
+            else if(j > i)
+                stringBuilder.append(chars[j]);
+            i = j + 1;
+        }
+        return stringBuilder.append("]").toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder("CharClasses{");
+        for(int cls = 1; cls < classCount; ++cls){
+            stringBuilder.append(cls).append("=").append(describe(cls)).append(";");
+        }
+        return stringBuilder.append("}").toString();
+    }
+}
@@ -0,0 +1,209 @@
+package com.compiler.parser;
+
+import com.compiler.model.TokenType;
+
+import java.util.*;
+
+/**
+ * 编译后的DFA
+ * 将DFAUtils.DFAGraph中以Map描述的转换图编译为稠密的int[]转换表，供词法分析的主循环使用
+ * 1.DFA结点编号为0..n-1
+ * 2.转换表按 state * classCount + charClass 下标存储，-1表示没有转换路径
+ * 3.字符通过CharClasses映射为字符类，ASCII字符直接查表
+ * 4.每个结点带有以该结点结束的token的类型，词法分析时直接得到token的类型
+ * 不可变，可以被多个词法分析器并行使用
+ * */
+public class CompiledDFA implements LexerDFA {
+    private final int stateCount;                   //DFA结点数
+    private final int classCount;                   //字符类数，第0类表示不在字母表中的字符
+    private final int startState;                   //开始结点的编号
+    private final int[] transitions;                //转换表
+    private final boolean[] accepting;              //是否是终态
+    private final TokenType[] kinds;                //以该结点结束的token的类型
+    private final CharClasses charClasses;          //字符类
+
+    private CompiledDFA(int stateCount, int startState, int[] transitions, boolean[] accepting, TokenType[] kinds,
+                        CharClasses charClasses) {
+        this.stateCount = stateCount;
+        this.classCount = charClasses.getClassCount();
+        this.startState = startState;
+        this.transitions = transitions;
+        this.accepting = accepting;
+        this.kinds = kinds;
+        this.charClasses = charClasses;
+    }
+
+    /**
+     * 根据DFA转换图编译DFA
+     * @param startDFA    DFA的开始结点
+     * @param dfaStates   DFA结点集合
+     * @param dfaGraph    DFA转换图
+     * @param charClasses 字符类
+     * @return            编译后的DFA
+     * */
+    public static CompiledDFA compile(DFAState startDFA, Set<DFAState> dfaStates,
+                                      Map<DFAState, Map<Integer, DFAState>> dfaGraph, CharClasses charClasses){
+        if(startDFA == null){
+            throw new RuntimeException("DFA尚未生成，无法编译");
+        }
+        //从开始结点出发按字符类的顺序广度优先为DFA结点编号，开始结点编号为0，保证每次生成的编号相同
+        Map<DFAState, Integer> stateIndex = new HashMap<>();
+        List<DFAState> stateList = new ArrayList<>();
+        stateIndex.put(startDFA, 0);
+        stateList.add(startDFA);
+        for(int i = 0; i < stateList.size(); ++i){
+            Map<Integer, DFAState> edges = dfaGraph.get(stateList.get(i));
+            if(edges == null)
+                continue;
+            for(int cls = 1; cls < charClasses.getClassCount(); ++cls){
+                DFAState nextState = edges.get(cls);
+                if(nextState != null && !stateIndex.containsKey(nextState)){
+                    stateIndex.put(nextState, stateList.size());
+                    stateList.add(nextState);
+                }
+            }
+        }
+        //不可达的结点
+        for(DFAState dfaState : dfaStates){
+            if(!stateIndex.containsKey(dfaState)){
+                stateIndex.put(dfaState, stateList.size());
+                stateList.add(dfaState);
+            }
+        }
+        //填充转换表
+        int stateCount = stateList.size();
+        int classCount = charClasses.getClassCount();
+        int[] transitions = new int[stateCount * classCount];
+        Arrays.fill(transitions, NO_STATE);
+        boolean[] accepting = new boolean[stateCount];
+        TokenType[] kinds = new TokenType[stateCount];
+        for(int i = 0; i < stateCount; ++i){
+            DFAState dfaState = stateList.get(i);
+            accepting[i] = dfaState.getEnd();
+            kinds[i] = dfaState.getKind();
+            Map<Integer, DFAState> edges = dfaGraph.get(dfaState);
+            if(edges == null)
+                continue;
+            for(Map.Entry<Integer, DFAState> edge : edges.entrySet()){
+                transitions[i * classCount + edge.getKey()] = stateIndex.get(edge.getValue());
+            }
+        }
+        return new CompiledDFA(stateCount, 0, transitions, accepting, kinds, charClasses);
+    }
+
+    /**
+     * 根据已有的转换表创建DFA，用于加载生成的词法分析表
+     * @param startState  开始结点的编号
+     * @param transitions 转换表
+     * @param accepting   是否是终态
+     * @param kinds       以该结点结束的token的类型
+     * @param charClasses 字符类
+     * @return            编译后的DFA
+     * */
+    public static CompiledDFA of(int startState, int[] transitions, boolean[] accepting, TokenType[] kinds,
+                                 CharClasses charClasses){
+        int stateCount = accepting.length;
+        if(transitions.length != stateCount * charClasses.getClassCount() || kinds.length != stateCount){
+            throw new RuntimeException("DFA转换表的长度不正确");
+        }
+        return new CompiledDFA(stateCount, startState, transitions, accepting, kinds, charClasses);
+    }
+
+    /**
+     * DFA的状态转换
+     * @param state 当前结点编号
+     * @param ch    输入字符
+     * @return      下一个结点的编号，没有转换路径时返回NO_STATE
+     * */
+    @Override
+    public int next(int state, char ch){
+        return transitions[state * classCount + charClasses.classOf(ch)];
+    }
+
+    @Override
+    public int skipSelfLoop(int state, char[] chars, int from, int end){
+        int base = state * classCount;
+        int i = from;
+        while(i < end){
+            char ch = chars[i];
+            if(ScanUtils.isDelimiter(ch) || transitions[base + charClasses.classOf(ch)] != state)
+                break;
+            ++i;
+        }
+        return i;
+    }
+
+    @Override
+    public boolean isAccepting(int state){
+        return accepting[state];
+    }
+
+    /**
+     * 获取以当前结点结束的token的类型
+     * @param state 当前结点编号
+     * @return      token的类型，DFA未分类时为null
+     * */
+    @Override
+    public TokenType getKind(int state){
+        return kinds[state];
+    }
+
+    /**
+     * 获取当前结点可以接受的字符，用于输出错误信息
+     * @param state 当前结点编号
+     * @return      形如'a','b'的字符串
+     * */
+    @Override
+    public String expected(int state){
+        StringBuilder stringBuilder = new StringBuilder();
+        int base = state * classCount;
+        for(int cls = 1; cls < classCount; ++cls){
+            if(transitions[base + cls] != NO_STATE){
+                for(char ch : charClasses.getChars(cls)){
+                    stringBuilder.append("'").append(ch).append("',");
+                }
+            }
+        }
+        if(stringBuilder.length() > 0)
+            stringBuilder.deleteCharAt(stringBuilder.length() - 1);
+        return stringBuilder.toString();
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    @Override
+    public int getStartState() {
+        return startState;
+    }
+
+    public CharClasses getCharClasses() {
+        return charClasses;
+    }
+
+    int[] getTransitions() {
+        return transitions;
+    }
+
+    boolean[] getAccepting() {
+        return accepting;
+    }
+
+    TokenType[] getKinds() {
+        return kinds;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledDFA{" +
+                "states=" + stateCount +
+                ", classes=" + classCount +
+                ", start=" + startState +
+                '}';
+    }
+}
@@ -0,0 +1,169 @@
+package com.compiler.parser;
+
+import com.compiler.model.Production;
+import com.compiler.model.Symbol;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 编译好的词法分析器
+ * 根据正规文法生成一次，之后不再改变，可以被多个线程共享
+ * 1.生成过程只使用局部的NFA结点列表和DFABuilder，不读写ParserUtils和DFAUtils中的静态变量
+ * 2.只保存不可变的CompiledDFA
+ * 3.每次词法分析创建一个新的Lexer，扫描位置等可变的状态都保存在Lexer中，Lexer不能在线程之间共享
+ * 4.同时保存由DFA展开得到的Utf8DFA，可以不解码直接对UTF-8字节进行词法分析
+ * */
+public class CompiledLexer {
+    private final CompiledDFA dfa;          //编译后的DFA
+    private final Utf8DFA utf8DFA;          //以UTF-8字节为输入的DFA
+
+    private CompiledLexer(CompiledDFA dfa) {
+        this.dfa = dfa;
+        this.utf8DFA = Utf8DFA.of(dfa);
+    }
+
+    /**
+     * 根据已有的DFA创建词法分析器
+     * @param dfa 编译后的DFA
+     * @return    词法分析器
+     * */
+    public static CompiledLexer of(CompiledDFA dfa){
+        if(dfa == null){
+            throw new RuntimeException("DFA不能为空");
+        }
+        return new CompiledLexer(dfa);
+    }
+
+    /**
+     * 根据正规文法生成词法分析器
+     * 正规文法 -> NFA -> DFA -> 标注token类型 -> 最小化DFA -> 编译后的DFA转换表
+     * @param parsePath 正规文法的路径
+     * @return          词法分析器
+     * */
+    public static CompiledLexer build(String parsePath){
+        return build(ParserUtils.readRegularGrammar(parsePath));
+    }
+
+    /**
+     * 根据正规文法的产生式生成词法分析器
+     * @param productions 正规文法的产生式
+     * @return            词法分析器
+     * */
+    public static CompiledLexer build(List<Production> productions){
+        List<NFAState> nfaStates = new ArrayList<>();
+        NFAState startNFA = ParserUtils.regularGrammarToNFA(productions, nfaStates, new HashMap<Symbol, NFAState>());
+        if(startNFA == null){
+            throw new RuntimeException("正规文法为空，无法生成词法分析器");
+        }
+        DFABuilder builder = new DFABuilder(nfaStates, TokenClassifier.create());
+        builder.nfaToDFA(startNFA);
+        builder.classify();
+        builder.minimize();
+        return new CompiledLexer(builder.compile());
+    }
+
+    /**
+     * 获取词法分析器
+     * 与ParserUtils.loadDFA相同，优先使用预先生成的词法分析表和DFA缓存，都不可用时再生成并写入缓存
+     * @param parsePath 正规文法的路径
+     * @return          词法分析器
+     * */
+    public static CompiledLexer load(String parsePath){
+        String grammarHash;
+        try {
+            grammarHash = ScannerGenerator.grammarHash(parsePath);
+        } catch (IOException e) {
+            throw new RuntimeException("读取正规文法失败: " + parsePath, e);
+        }
+        CompiledDFA dfa = ScannerGenerator.loadGenerated(ScannerGenerator.CLASS_NAME, grammarHash);
+        if(dfa == null)
+            dfa = DFACache.load(DFACache.DEFAULT_DIR, grammarHash);
+        if(dfa != null)
+            return new CompiledLexer(dfa);
+        CompiledLexer lexer = build(parsePath);
+        DFACache.save(lexer.dfa, DFACache.DEFAULT_DIR, grammarHash);
+        return lexer;
+    }
+
+    /**
+     * 创建对源文件进行词法分析的Lexer，出错时不输出错误信息，通过Lexer.getErrorMessage获取
+     * @param source 源文件
+     * @return       新的Lexer
+     * */
+    public Lexer scanner(SourceFile source){
+        return new Lexer(dfa, source, 0, source.length(), false, false);
+    }
+
+    /**
+     * 对源文件进行词法分析
+     * @param source 源文件
+     * @return       识别到的token序列，出错时输出错误信息并返回null
+     * */
+    public TokenBuffer tokenize(SourceFile source){
+        return new Lexer(dfa, source).tokenize();
+    }
+
+    /**
+     * 创建直接对UTF-8字节进行词法分析的Utf8Lexer，出错时不输出错误信息，通过Utf8Lexer.getErrorMessage获取
+     * @param source UTF-8源文件
+     * @return       新的Utf8Lexer
+     * */
+    public Utf8Lexer scanner(Utf8Source source){
+        return new Utf8Lexer(utf8DFA, source, false);
+    }
+
+    /**
+     * 直接对UTF-8字节进行词法分析，不解码为字符
+     * @param source UTF-8源文件
+     * @return       识别到的token序列，位置为字节偏移，出错时输出错误信息并返回null
+     * */
+    public Utf8TokenBuffer tokenize(Utf8Source source){
+        return new Utf8Lexer(utf8DFA, source).tokenize();
+    }
+
+    /**
+     * 对一段文本进行词法分析
+     * @param text 文本
+     * @return     识别到的token序列，出错时输出错误信息并返回null
+     * */
+    public TokenBuffer tokenize(CharSequence text){
+        return tokenize(SourceFile.of(text));
+    }
+
+    /**
+     * 分块并行地对源文件进行词法分析，结果与tokenize相同
+     * @param source 源文件
+     * @return       识别到的token序列，出错时输出错误信息并返回null
+     * */
+    public TokenBuffer tokenizeParallel(SourceFile source){
+        return ParallelLexer.lex(dfa, source);
+    }
+
+    /**
+     * 编辑源文件后增量地更新token序列
+     * @param previous      编辑前的token序列
+     * @param offset        编辑的位置
+     * @param removedLength 删除的字符数
+     * @param insertedText  插入的文本
+     * @return              编辑后的token序列，出错时输出错误信息并返回null
+     * */
+    public TokenBuffer relex(TokenBuffer previous, int offset, int removedLength, CharSequence insertedText){
+        return IncrementalLexer.relex(dfa, previous, offset, removedLength, insertedText);
+    }
+
+    public CompiledDFA getDFA() {
+        return dfa;
+    }
+
+    public Utf8DFA getUtf8DFA() {
+        return utf8DFA;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledLexer{" + dfa + '}';
+    }
+}
@@ -0,0 +1,394 @@
+package com.compiler.parser;
+
+import com.compiler.model.TokenType;
+
+import java.util.*;
+
+/**
+ * DFA的生成过程
+ * 每次生成DFA都使用一个新的DFABuilder，中间结果（DFA结点集合、转换图、字符类）都保存在实例中，
+ * 不依赖任何静态变量，因此可以在多个线程中同时根据不同的NFA生成DFA
+ * 使用顺序：nfaToDFA -> classify（可选） -> minimize（可选） -> compile
+ * */
+public class DFABuilder {
+    private final List<NFAState> nfaStates;                 //按编号存储的NFA结点
+    private final TokenClassifier classifier;               //token类型的分类自动机，可以为null
+    private final Map<BitSet, DFAState> dfaMap = new HashMap<>();       //NFA集合对应的DFA结点，避免重复创建
+    //DFA集合
+    private final Set<DFAState> dfaStates = new HashSet<>();
+    //DFA转换图，第一个DFAState用于定位DFA结点，第二个map以字符类为键描述DFA结点的转换关系
+    private final Map<DFAState,Map<Integer,DFAState>> dfaGraph = new HashMap<>();
+    private DFAState startDFA;
+    //字符类，由NFA的转换和token类型的分类自动机划分得到
+    private CharClasses charClasses;
+
+    /**
+     * @param nfaStates  按编号存储的NFA结点
+     * @param classifier token类型的分类自动机，为null时不划分token类型
+     * */
+    public DFABuilder(List<NFAState> nfaStates, TokenClassifier classifier) {
+        this.nfaStates = nfaStates;
+        this.classifier = classifier;
+    }
+
+    /**
+     * 子集法将NFA转换为DFA
+     * 1.对NFA的开始状态求空闭包，得到NFASet
+     * 2.根据NFASet创建DFA的开始状态
+     * 3.DFAState入工作表
+     * 4.while(工作表不空)
+     * 5.   获得当前的DFA结点
+     * 6.   对DFA结点中的每个NFA结点，沿其出边按字符类求move后的结果（只处理实际存在的出边）
+     * 7.   对move后的结果求空闭包
+     * 8.   if(DFA结果集中不包含新的DFA)
+     * 9.       添加状态转换图，新DFA入工作表
+     * NFA结点集合使用BitSet表示，直接以BitSet为键判断DFA是否重复
+     * 同一字符类中的字符转换完全相同，因此只需对每个字符类的代表字符求move
+     * */
+    public void nfaToDFA(NFAState startNFA){
+        BitSet[] closures = DFAUtils.epsilonClosures(nfaStates);
+        //字母表压缩
+        charClasses = CharClasses.build(nfaStates, classifier);
+        //得到NFA开始状态对应的空闭包NFA集合
+        BitSet startNFASet = (BitSet) closures[startNFA.getIndex()].clone();
+        startDFA = createDFAState(startNFASet);       //得到DFA开始结点
+        Deque<DFAState> workList = new ArrayDeque<>();
+        workList.push(startDFA);
+        dfaStates.add(startDFA);
+        while(!workList.isEmpty()){
+            DFAState currentDFA = workList.pop();
+            //沿出边进行move操作
+            BitSet[] movedSets = DFAUtils.move(currentDFA, nfaStates, charClasses);
+            for(int cls = 1; cls < movedSets.length; ++cls){
+                if(movedSets[cls] == null)
+                    continue;
+                //对move后的结果集求空闭包
+                BitSet closureNFASet = DFAUtils.closure(movedSets[cls], closures);
+                //根据求空闭包后的结果创建对应的DFA
+                DFAState dfaState = createDFAState(closureNFASet);
+                //如果是新的DFA则添加到结果集中
+                if(dfaStates.add(dfaState)){
+                    workList.push(dfaState);       //新DFA入工作表
+                }
+                //添加DFA转换图
+                addEdge(currentDFA, cls, dfaState);
+            }
+        }
+    }
+
+    /**
+     * 创建DFA结点
+     * 相同的NFA集合只会创建一个DFA结点，因此DFA结点之间直接按对象比较
+     * @param nfaIds 该DFA结点对应的NFA结点编号的集合
+     * @return       创建好的DFA结点
+     * */
+    private DFAState createDFAState(BitSet nfaIds){
+        DFAState dfaState = dfaMap.get(nfaIds);
+        if(dfaState == null){
+            dfaState = DFAState.create(nfaStates, nfaIds);
+            dfaMap.put(nfaIds, dfaState);
+        }
+        return dfaState;
+    }
+
+    /**
+     * 创建DFA转换图
+     * @param currentDFA 当前的DFA结点
+     * @param cls        转换路径对应的字符类
+     * @param nextDFA    下一个DFA结点
+     * */
+    private void addEdge(DFAState currentDFA, int cls, DFAState nextDFA){
+        dfaGraph.computeIfAbsent(currentDFA, k -> new HashMap<>()).put(cls, nextDFA);
+    }
+
+    /**
+     * 将DFA与token类型的分类自动机做乘积，使每个DFA结点都带有确定的token类型
+     * 1.从(DFA开始结点,分类自动机开始状态)出发广度优先遍历
+     * 2.乘积结点沿字符类转换时，分类自动机以字符类的代表字符转换
+     * 3.每个乘积结点的类型为分类自动机状态对应的类型（非终态也需要类型，空白符会直接结束当前token）
+     * 4.重写dfaStates、dfaGraph和startDFA
+     * 需要在nfaToDFA之后、minimize之前调用，之后的最小化只合并类型相同的结点
+     * */
+    public void classify(){
+        if(startDFA == null || classifier == null)
+            return;
+        Map<DFAState,Map<Integer,DFAState>> productStates = new HashMap<>();
+        Map<DFAState,Map<Integer,DFAState>> productGraph = new HashMap<>();
+        Map<DFAState,DFAState> originOf = new HashMap<>();
+        Map<DFAState,Integer> classifierOf = new HashMap<>();
+        Deque<DFAState> workList = new ArrayDeque<>();
+        DFAState productStart = productState(startDFA, classifier.start(), productStates, originOf, classifierOf, workList);
+        while(!workList.isEmpty()){
+            DFAState currentState = workList.poll();
+            Map<Integer,DFAState> edges = dfaGraph.get(originOf.get(currentState));
+            if(edges == null)
+                continue;
+            int classifierState = classifierOf.get(currentState);
+            for(Map.Entry<Integer,DFAState> edge : edges.entrySet()){
+                int nextClassifierState = classifier.next(classifierState, charClasses.representative(edge.getKey()));
+                DFAState nextState = productState(edge.getValue(), nextClassifierState, productStates, originOf, classifierOf, workList);
+                productGraph.computeIfAbsent(currentState, k -> new HashMap<>()).put(edge.getKey(), nextState);
+            }
+        }
+        startDFA = productStart;
+        dfaStates.clear();
+        dfaStates.addAll(originOf.keySet());
+        dfaGraph.clear();
+        dfaGraph.putAll(productGraph);
+    }
+
+    /**
+     * 获取(DFA结点,分类自动机状态)对应的乘积结点，新结点入工作表
+     * */
+    private DFAState productState(DFAState dfaState, int classifierState,
+                                         Map<DFAState,Map<Integer,DFAState>> productStates,
+                                         Map<DFAState,DFAState> originOf, Map<DFAState,Integer> classifierOf,
+                                         Deque<DFAState> workList){
+        Map<Integer,DFAState> states = productStates.computeIfAbsent(dfaState, k -> new HashMap<>());
+        DFAState productState = states.get(classifierState);
+        if(productState == null){
+            TokenType kind = classifier.kind(classifierState);
+            //只有乘积的开始结点是开始结点
+            boolean isStart = originOf.isEmpty();
+            productState = new DFAState(nfaStates, dfaState.getNFAIds(), isStart, dfaState.getEnd(), kind,
+                    dfaState.getKey() + "@" + kind);
+            states.put(classifierState, productState);
+            originOf.put(productState, dfaState);
+            classifierOf.put(productState, classifierState);
+            workList.offer(productState);
+        }
+        return productState;
+    }
+
+    /**
+     * Hopcroft算法最小化DFA
+     * 1.补充一个虚拟的死状态，使DFA完全化（死状态单独作为一个块，保证最小化前后出错的位置不变）
+     * 2.按(是否终态,token类型)对DFA结点进行初始划分，除最大的块外，所有(块,符号)入工作表
+     * 3.while(工作表不空)
+     * 4.   取出(B,a)，求出所有经a能到达B的结点X
+     * 5.   对于与X相交的每个块Y，若Y∩X与Y-X均不为空则分裂Y
+     * 6.   对于每个符号c，若(Y,c)在工作表中则将新块入表，否则将较小的一块入表
+     * 7.每个块合并为一个DFA结点，重写dfaStates、dfaGraph和startDFA
+     * 需要在nfaToDFA之后调用
+     * */
+    public void minimize(){
+        if(startDFA == null)
+            return;
+        //为DFA结点编号，死状态的编号为n
+        List<DFAState> stateList = new ArrayList<>(dfaStates);
+        Map<DFAState,Integer> stateIndex = new HashMap<>();
+        for(int i = 0; i < stateList.size(); ++i){
+            stateIndex.put(stateList.get(i), i);
+        }
+        int n = stateList.size();
+        int dead = n;
+        int total = n + 1;
+        //以字符类作为符号，第0类没有转换，不参与划分
+        int k = charClasses.getClassCount() - 1;
+        //完全化后的转换函数
+        int[] delta = new int[total * k];
+        Arrays.fill(delta, dead);
+        for(int i = 0; i < n; ++i){
+            Map<Integer,DFAState> edges = dfaGraph.get(stateList.get(i));
+            if(edges == null)
+                continue;
+            for(Map.Entry<Integer,DFAState> edge : edges.entrySet()){
+                delta[i * k + edge.getKey() - 1] = stateIndex.get(edge.getValue());
+            }
+        }
+        //逆转换函数，按(符号,目标结点)压缩存储前驱结点
+        int[] inverseStart = new int[k * total + 1];
+        for(int s = 0; s < total; ++s){
+            for(int a = 0; a < k; ++a){
+                ++inverseStart[a * total + delta[s * k + a] + 1];
+            }
+        }
+        for(int i = 1; i < inverseStart.length; ++i){
+            inverseStart[i] += inverseStart[i - 1];
+        }
+        int[] inverse = new int[total * k];
+        int[] fill = Arrays.copyOf(inverseStart, inverseStart.length - 1);
+        for(int s = 0; s < total; ++s){
+            for(int a = 0; a < k; ++a){
+                inverse[fill[a * total + delta[s * k + a]]++] = s;
+            }
+        }
+        //初始划分：死状态，其余结点按(是否终态,token类型)划分
+        int[] elements = new int[total];         //按块排列的结点
+        int[] location = new int[total];         //结点在elements中的位置
+        int[] blockOf = new int[total];          //结点所属的块
+        int[] first = new int[total];            //块在elements中的开始位置
+        int[] end = new int[total];              //块在elements中的结束位置(不含)
+        int[] marked = new int[total];           //块中被标记的结点数
+        int blockCount = 0;
+        int position = 0;
+        elements[position] = dead;
+        location[dead] = position++;
+        blockOf[dead] = blockCount;
+        first[blockCount] = 0;
+        end[blockCount++] = position;
+        Map<List<Object>, List<Integer>> initialBlocks = new LinkedHashMap<>();
+        for(int s = 0; s < n; ++s){
+            DFAState dfaState = stateList.get(s);
+            initialBlocks.computeIfAbsent(Arrays.asList(dfaState.getEnd(), dfaState.getKind()), key -> new ArrayList<>()).add(s);
+        }
+        for(List<Integer> block : initialBlocks.values()){
+            first[blockCount] = position;
+            for(int s : block){
+                elements[position] = s;
+                location[s] = position++;
+                blockOf[s] = blockCount;
+            }
+            end[blockCount++] = position;
+        }
+        //工作表，除最大的块以外的所有块入表
+        BitSet inWork = new BitSet(total * k);
+        Deque<Integer> work = new ArrayDeque<>();
+        int largest = 0;
+        for(int b = 1; b < blockCount; ++b){
+            if(end[b] - first[b] > end[largest] - first[largest])
+                largest = b;
+        }
+        for(int b = 0; b < blockCount; ++b){
+            if(b == largest)
+                continue;
+            for(int a = 0; a < k; ++a){
+                inWork.set(b * k + a);
+                work.push(b * k + a);
+            }
+        }
+        int[] splitter = new int[total];
+        List<Integer> touched = new ArrayList<>();
+        while(!work.isEmpty()){
+            int pair = work.pop();
+            inWork.clear(pair);
+            int splitBlock = pair / k;
+            int a = pair % k;
+            //求出所有经a能到达splitBlock的结点，先复制splitBlock，避免分裂时被修改
+            int splitterSize = 0;
+            for(int i = first[splitBlock]; i < end[splitBlock]; ++i){
+                splitter[splitterSize++] = elements[i];
+            }
+            for(int i = 0; i < splitterSize; ++i){
+                int target = splitter[i];
+                for(int j = inverseStart[a * total + target]; j < inverseStart[a * total + target + 1]; ++j){
+                    int s = inverse[j];
+                    int b = blockOf[s];
+                    //将被标记的结点移动到块的前部
+                    int swapPosition = first[b] + marked[b];
+                    int swapState = elements[swapPosition];
+                    elements[swapPosition] = s;
+                    elements[location[s]] = swapState;
+                    location[swapState] = location[s];
+                    location[s] = swapPosition;
+                    if(marked[b]++ == 0)
+                        touched.add(b);
+                }
+            }
+            //分裂与X相交的块
+            for(int b : touched){
+                int size = end[b] - first[b];
+                if(marked[b] < size){
+                    int newBlock = blockCount++;
+                    first[newBlock] = first[b];
+                    end[newBlock] = first[b] + marked[b];
+                    first[b] = end[newBlock];
+                    for(int i = first[newBlock]; i < end[newBlock]; ++i){
+                        blockOf[elements[i]] = newBlock;
+                    }
+                    int smaller = (end[newBlock] - first[newBlock]) <= (end[b] - first[b]) ? newBlock : b;
+                    for(int c = 0; c < k; ++c){
+                        int push = inWork.get(b * k + c) ? newBlock : smaller;
+                        if(!inWork.get(push * k + c)){
+                            inWork.set(push * k + c);
+                            work.push(push * k + c);
+                        }
+                    }
+                }
+                marked[b] = 0;
+            }
+            touched.clear();
+        }
+        //每个块合并为一个DFA结点
+        DFAState[] blockState = new DFAState[blockCount];
+        for(int b = 0; b < blockCount; ++b){
+            if(b == blockOf[dead])
+                continue;
+            blockState[b] = mergeDFAStates(stateList, elements, first[b], end[b]);
+        }
+        Map<DFAState,Map<Integer,DFAState>> minimizedGraph = new HashMap<>();
+        for(int b = 0; b < blockCount; ++b){
+            if(blockState[b] == null)
+                continue;
+            //块中任意结点的转换关系都相同
+            int representative = elements[first[b]];
+            for(int a = 0; a < k; ++a){
+                int target = delta[representative * k + a];
+                if(target == dead)
+                    continue;
+                minimizedGraph.computeIfAbsent(blockState[b], key -> new HashMap<>())
+                        .put(a + 1, blockState[blockOf[target]]);
+            }
+        }
+        startDFA = blockState[blockOf[stateIndex.get(startDFA)]];
+        dfaStates.clear();
+        for(DFAState dfaState : blockState){
+            if(dfaState != null)
+                dfaStates.add(dfaState);
+        }
+        dfaGraph.clear();
+        dfaGraph.putAll(minimizedGraph);
+    }
+
+    /**
+     * 将等价的DFA结点合并为一个DFA结点
+     * @param stateList DFA结点列表
+     * @param elements  按块排列的结点编号
+     * @param from      块的开始位置
+     * @param to        块的结束位置(不含)
+     * @return          合并后的DFA结点，块中只有一个结点时直接返回该结点
+     * */
+    private DFAState mergeDFAStates(List<DFAState> stateList, int[] elements, int from, int to){
+        if(to - from == 1)
+            return stateList.get(elements[from]);
+        BitSet nfaIds = new BitSet();
+        List<String> keys = new ArrayList<>();
+        boolean isStart = false;
+        boolean isEnd = false;
+        for(int i = from; i < to; ++i){
+            DFAState dfaState = stateList.get(elements[i]);
+            nfaIds.or(dfaState.getNFAIds());
+            keys.add(dfaState.getKey());
+            isStart |= dfaState.getStart();
+            isEnd |= dfaState.getEnd();
+        }
+        Collections.sort(keys);
+        //块中所有结点的类型相同
+        TokenType kind = stateList.get(elements[from]).getKind();
+        return new DFAState(nfaStates, nfaIds, isStart, isEnd, kind, String.join("|", keys));
+    }
+
+    /**
+     * 将DFA转换图编译为稠密的转换表
+     * @return 编译后的DFA
+     * */
+    public CompiledDFA compile(){
+        return CompiledDFA.compile(startDFA, dfaStates, dfaGraph, charClasses);
+    }
+
+    public DFAState getStartDFA() {
+        return startDFA;
+    }
+
+    public Set<DFAState> getDFAStates() {
+        return dfaStates;
+    }
+
+    public Map<DFAState, Map<Integer, DFAState>> getDFAGraph() {
+        return dfaGraph;
+    }
+
+    public CharClasses getCharClasses() {
+        return charClasses;
+    }
+}
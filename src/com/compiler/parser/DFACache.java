@@ -0,0 +1,224 @@
+package com.compiler.parser;
+
+import com.compiler.model.TokenType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.zip.CRC32;
+
+/**
+ * 编译后的DFA的二进制缓存
+ * 以ScannerGenerator.grammarHash（正规文法及token分类规则的SHA-256）命名缓存文件，
+ * 正规文法没有改变时直接以内存映射的方式读取，不再构造NFA和DFA
+ * 正规文法、保留字或TokenType改变后SHA-256随之改变，找不到对应的缓存文件时重新生成DFA并写入新的缓存文件
+ * 文件格式（大端序）：
+ * 1.文件头：MAGIC、FORMAT_VERSION、正规文法的SHA-256、写入时TokenType的名称（按ordinal的顺序，以,分隔）
+ * 2.DFA：开始结点、结点数、字符类数、转换表（结点数不超过Short.MAX_VALUE时每项2字节，否则4字节）、是否终态、
+ *   token类型（TokenType.ordinal + 1，0表示没有）
+ * 3.字符类：ASCII字符的字符类、非ASCII区间、每个字符类包含的字符
+ * 4.以上所有内容的CRC32，文件损坏或不完整时不使用缓存
+ * */
+public class DFACache {
+    public static final String DEFAULT_DIR = ".dfa-cache";     //默认的缓存目录
+    private static final String SUFFIX = ".dfa";
+    private static final int MAGIC = 0x44464143;                //"DFAC"
+    private static final int FORMAT_VERSION = 2;                //缓存文件的格式版本
+    private static final TokenType[] KINDS = TokenType.values();
+    private static final String KIND_NAMES = kindNames();       //当前TokenType的名称，与文件头中的不同时不使用缓存
+
+    private static String kindNames(){
+        StringBuilder stringBuilder = new StringBuilder();
+        for(TokenType kind : KINDS){
+            if(stringBuilder.length() > 0)
+                stringBuilder.append(',');
+            stringBuilder.append(kind.name());
+        }
+        return stringBuilder.toString();
+    }
+
+    /**
+     * 获取正规文法对应的缓存文件路径
+     * @param cacheDir    缓存目录
+     * @param grammarHash 正规文法的SHA-256
+     * @return            缓存文件路径
+     * */
+    public static Path cachePath(String cacheDir, String grammarHash){
+        return Paths.get(cacheDir, grammarHash + SUFFIX);
+    }
+
+    /**
+     * 以内存映射的方式读取缓存的DFA
+     * @param cacheDir    缓存目录
+     * @param grammarHash 当前正规文法的SHA-256
+     * @return            编译后的DFA，缓存不存在、已损坏、格式或TokenType不同时返回null
+     * */
+    public static CompiledDFA load(String cacheDir, String grammarHash){
+        Path path = cachePath(cacheDir, grammarHash);
+        if(!Files.isRegularFile(path))
+            return null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer, grammarHash);
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            System.out.println("DFA缓存读取失败: " + path + " " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static CompiledDFA read(ByteBuffer buffer, String grammarHash){
+        //先校验CRC32，之后的读取不需要再检查内容
+        if(buffer.limit() < 4)
+            return null;
+        int contentLength = buffer.limit() - 4;
+        CRC32 crc32 = new CRC32();
+        ByteBuffer content = buffer.duplicate();
+        content.limit(contentLength);
+        crc32.update(content);
+        if((int) crc32.getValue() != buffer.getInt(contentLength))
+            return null;
+        if(buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION)
+            return null;
+        byte[] hash = new byte[buffer.getShort()];
+        buffer.get(hash);
+        if(!new String(hash, StandardCharsets.UTF_8).equals(grammarHash))
+            return null;
+        //token类型以ordinal保存，TokenType增加或调整顺序后旧的编号没有意义
+        byte[] kindNames = new byte[buffer.getShort()];
+        buffer.get(kindNames);
+        if(!new String(kindNames, StandardCharsets.UTF_8).equals(KIND_NAMES))
+            return null;
+        //DFA
+        int startState = buffer.getInt();
+        int stateCount = buffer.getInt();
+        int classCount = buffer.getInt();
+        boolean wide = buffer.get() != 0;
+        int[] transitions = new int[stateCount * classCount];
+        for(int i = 0; i < transitions.length; ++i){
+            transitions[i] = wide ? buffer.getInt() : buffer.getShort();
+        }
+        boolean[] accepting = new boolean[stateCount];
+        for(int i = 0; i < stateCount; ++i){
+            accepting[i] = buffer.get() != 0;
+        }
+        TokenType[] kinds = new TokenType[stateCount];
+        for(int i = 0; i < stateCount; ++i){
+            int kind = buffer.get();
+            if(kind < 0 || kind > KINDS.length)
+                return null;
+            kinds[i] = kind == 0 ? null : KINDS[kind - 1];
+        }
+        //字符类
+        int[] asciiClass = new int[buffer.getInt()];
+        for(int i = 0; i < asciiClass.length; ++i){
+            asciiClass[i] = buffer.getChar();
+        }
+        int rangeCount = buffer.getInt();
+        char[] rangeStart = new char[rangeCount];
+        char[] rangeEnd = new char[rangeCount];
+        int[] rangeClass = new int[rangeCount];
+        for(int i = 0; i < rangeCount; ++i){
+            rangeStart[i] = buffer.getChar();
+            rangeEnd[i] = buffer.getChar();
+            rangeClass[i] = buffer.getChar();
+        }
+        char[][] classChars = new char[classCount][];
+        for(int cls = 0; cls < classCount; ++cls){
+            classChars[cls] = new char[buffer.getInt()];
+            buffer.asCharBuffer().get(classChars[cls]);
+            buffer.position(buffer.position() + classChars[cls].length * 2);
+        }
+        CharClasses charClasses = CharClasses.of(asciiClass, rangeStart, rangeEnd, rangeClass, classChars);
+        return CompiledDFA.of(startState, transitions, accepting, kinds, charClasses);
+    }
+
+    /**
+     * 将编译后的DFA写入缓存文件，先写入临时文件再重命名，避免其他进程读到不完整的文件
+     * @param dfa         编译后的DFA
+     * @param cacheDir    缓存目录
+     * @param grammarHash 正规文法的SHA-256
+     * @return            是否写入成功
+     * */
+    public static boolean save(CompiledDFA dfa, String cacheDir, String grammarHash){
+        try {
+            byte[] content = write(dfa, grammarHash);
+            Path path = cachePath(cacheDir, grammarHash);
+            Files.createDirectories(path.getParent());
+            Path tempPath = Files.createTempFile(path.getParent(), grammarHash, ".tmp");
+            Files.write(tempPath, content);
+            try {
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            System.out.println("DFA缓存写入失败: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static byte[] write(CompiledDFA dfa, String grammarHash) throws IOException {
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(byteStream);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        byte[] hash = grammarHash.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(hash.length);
+        out.write(hash);
+        byte[] kindNames = KIND_NAMES.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(kindNames.length);
+        out.write(kindNames);
+        //DFA
+        int stateCount = dfa.getStateCount();
+        boolean wide = stateCount > Short.MAX_VALUE;
+        out.writeInt(dfa.getStartState());
+        out.writeInt(stateCount);
+        out.writeInt(dfa.getClassCount());
+        out.writeByte(wide ? 1 : 0);
+        for(int target : dfa.getTransitions()){
+            if(wide)
+                out.writeInt(target);
+            else
+                out.writeShort(target);
+        }
+        for(boolean accepting : dfa.getAccepting()){
+            out.writeByte(accepting ? 1 : 0);
+        }
+        for(TokenType kind : dfa.getKinds()){
+            out.writeByte(kind == null ? 0 : kind.ordinal() + 1);
+        }
+        //字符类
+        CharClasses charClasses = dfa.getCharClasses();
+        int[] asciiClass = charClasses.getAsciiClass();
+        out.writeInt(asciiClass.length);
+        for(int cls : asciiClass){
+            out.writeChar(cls);
+        }
+        char[] rangeStart = charClasses.getRangeStart();
+        char[] rangeEnd = charClasses.getRangeEnd();
+        int[] rangeClass = charClasses.getRangeClass();
+        out.writeInt(rangeStart.length);
+        for(int i = 0; i < rangeStart.length; ++i){
+            out.writeChar(rangeStart[i]);
+            out.writeChar(rangeEnd[i]);
+            out.writeChar(rangeClass[i]);
+        }
+        for(int cls = 0; cls < charClasses.getClassCount(); ++cls){
+            char[] chars = charClasses.getChars(cls);
+            out.writeInt(chars.length);
+            out.writeChars(new String(chars));
+        }
+        out.flush();
+        CRC32 crc32 = new CRC32();
+        crc32.update(byteStream.toByteArray());
+        out.writeInt((int) crc32.getValue());
+        return byteStream.toByteArray();
+    }
+}
@@ -1,82 +1,78 @@
 package com.compiler.parser;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
+import com.compiler.model.TokenType;
+
+import java.util.*;
 
 public class DFAState {
-    private static final Map<String,DFAState>  DFAMap = new HashMap<>();        //存储key对应的DFA对象，避免重复创建
-    private final Set<NFAState> NFAStates;      //DFA对应的NFA状态集合
+    private final List<NFAState> nfaStates;     //按编号存储的NFA结点，用于根据编号获取NFA结点
+    private final BitSet NFAIds;                //DFA对应的NFA状态集合（NFA结点的编号）
     private final Boolean isStart;              //是否是开始结点
     private final Boolean isEnd;                //是否是结束结点
-    private final String key;                   //当前DFA的key，用于判断DFA是否相等
+    private final TokenType kind;               //以该结点结束的token的类型，未分类时为null
+    private String key;                         //当前DFA的key，仅用于输出，需要时才生成
+
+    public DFAState(List<NFAState> nfaStates, BitSet NFAIds, Boolean isStart, Boolean isEnd, String key) {
+        this(nfaStates, NFAIds, isStart, isEnd, null, key);
+    }
 
-    public DFAState(Set<NFAState> NFAStates, Boolean isStart, Boolean isEnd, String key) {
-        this.NFAStates = NFAStates;
+    public DFAState(List<NFAState> nfaStates, BitSet NFAIds, Boolean isStart, Boolean isEnd, TokenType kind, String key) {
+        this.nfaStates = nfaStates;
+        this.NFAIds = NFAIds;
         this.isStart = isStart;
         this.isEnd = isEnd;
+        this.kind = kind;
         this.key = key;
-        DFAMap.put(key,this);       //存储创建的DFA结点
     }
 
     /**
      * 创建DFA结点
-     * @param NFAStates 该DFA结点对应的NFA结点结合
+     * 相同的NFA集合是否已经创建过DFA结点由调用者（DFABuilder）判断
+     * @param nfaStates 按编号存储的NFA结点
+     * @param NFAIds    该DFA结点对应的NFA结点编号的集合
      * @return          创建好的DFA结点
      * */
-    public static DFAState create(Set<NFAState> NFAStates){
-        //生成唯一key
-        StringBuffer stringBuffer = new StringBuffer();
-        NFAStates.stream().sorted().forEach(
-                nfaState -> stringBuffer.append(nfaState.getId().getContent()).append(",")
-        );
-        if(stringBuffer.length() > 0)
-            stringBuffer.deleteCharAt(stringBuffer.length() - 1);
-        //如果hashmap中存在key，则表示相同的DFA已经创建过，直接返回即可
-        if(DFAMap.containsKey(stringBuffer.toString())){
-            return DFAMap.get(stringBuffer.toString());
-        }
+    public static DFAState create(List<NFAState> nfaStates, BitSet NFAIds){
         //如果NFAStates集合中有一个结点为开始/结束结点，则对应的DFA结点也是
         boolean isStart = false;
         boolean isEnd = false;
-        for(NFAState nfaState : NFAStates){
+        for(int i = NFAIds.nextSetBit(0); i >= 0; i = NFAIds.nextSetBit(i + 1)){
+            NFAState nfaState = nfaStates.get(i);
             if(nfaState.isStart())
                 isStart = true;
             if(nfaState.isEnd())
                 isEnd = true;
         }
-        return new DFAState(NFAStates,isStart,isEnd,stringBuffer.toString());
-    }
-
-    //根据key判断是否相等
-    @Override
-    public int hashCode(){
-        return Objects.hash(key);
-    }
-
-    @Override
-    public boolean equals(Object obj){
-        if(this == obj)
-            return true;
-        if(obj == null || obj.getClass() != getClass())
-            return false;
-        return key.equals(((DFAState) obj).key);
+        return new DFAState(nfaStates, NFAIds, isStart, isEnd, null);
     }
 
     @Override
     public String toString(){
         StringBuffer stringBuffer = new StringBuffer();
-        stringBuffer.append("DFAState{").append(key).append("}");
+        stringBuffer.append("DFAState{").append(getKey()).append("}");
         if(isStart)
             stringBuffer.append("START STATE\t");
         if(isEnd)
-            stringBuffer.append("END STATE");
+            stringBuffer.append("END STATE\t");
+        if(kind != null)
+            stringBuffer.append(kind);
         return stringBuffer.toString();
     }
 
+    /**
+     * 获取DFA对应的NFA结点集合
+     * @return NFA结点集合
+     * */
     public Set<NFAState> getNFAStates() {
-        return NFAStates;
+        Set<NFAState> nfaStateSet = new HashSet<>();
+        for(int i = NFAIds.nextSetBit(0); i >= 0; i = NFAIds.nextSetBit(i + 1)){
+            nfaStateSet.add(nfaStates.get(i));
+        }
+        return nfaStateSet;
+    }
+
+    public BitSet getNFAIds() {
+        return NFAIds;
     }
 
     public Boolean getStart() {
@@ -87,7 +83,24 @@ public class DFAState {
         return isEnd;
     }
 
+    public TokenType getKind() {
+        return kind;
+    }
+
+    /**
+     * 获取DFA的key，由排序后的NFA结点的符号拼接而成
+     * @return DFA的key
+     * */
     public String getKey() {
+        if(key == null){
+            StringBuffer stringBuffer = new StringBuffer();
+            getNFAStates().stream().sorted().forEach(
+                    nfaState -> stringBuffer.append(nfaState.getId().getContent()).append(",")
+            );
+            if(stringBuffer.length() > 0)
+                stringBuffer.deleteCharAt(stringBuffer.length() - 1);
+            key = stringBuffer.toString();
+        }
         return key;
     }
 }
@@ -2,6 +2,7 @@ package com.compiler.parser;
 
 import com.compiler.model.Production;
 import com.compiler.model.Symbol;
+import com.compiler.model.TokenType;
 
 import java.util.*;
 
@@ -11,118 +12,160 @@ import java.util.*;
 public class DFAUtils {
 
     /**
-     * 对NFA结点求空闭包
-     * @param nfaStates 需要求空闭包的NFA状态集合
-     * @return          求空闭包之后的状态集合
+     * 预先求出每个NFA结点的空闭包
+     * @param nfaStates 按编号存储的NFA结点
+     * @return          以NFA结点编号为下标的空闭包
      * */
-    public static Set<NFAState> closure(Set<NFAState> nfaStates){
-        Set<NFAState> resultSet = new HashSet<>();      //结果集
-        resultSet.addAll(nfaStates);        //一定要把原始集合添加回来
-        Stack<NFAState> stack = new Stack<>();
-        stack.addAll(nfaStates);
-        //对每个结点求闭包
-        while(!stack.isEmpty()){
-            NFAState currentState = stack.pop();
+    public static BitSet[] epsilonClosures(List<NFAState> nfaStates){
+        int n = nfaStates.size();
+        BitSet[] closures = new BitSet[n];
+        int[] stack = new int[n];
+        for(int i = 0; i < n; ++i){
+            closures[i] = epsilonClosure(nfaStates, i, stack);
+        }
+        return closures;
+    }
+
+    /**
+     * 求单个NFA结点的空闭包
+     * @param nfaStates 按编号存储的NFA结点
+     * @param index     NFA结点的编号
+     * @param stack     深度优先遍历使用的栈，长度不小于NFA结点数
+     * @return          空闭包中的NFA结点编号集合
+     * */
+    public static BitSet epsilonClosure(List<NFAState> nfaStates, int index, int[] stack){
+        BitSet resultSet = new BitSet(nfaStates.size());
+        resultSet.set(index);       //一定要把原始结点添加回来
+        int top = 0;
+        stack[top++] = index;
+        while(top > 0){
+            NFAState currentState = nfaStates.get(stack[--top]);
             Set<NFAState> epsilonStateSet = currentState.getEdges().get(NFAState.EPSILON);
-            if(epsilonStateSet != null){
-                for(NFAState epsilonState : epsilonStateSet){
-                    //判断新结点是否在结果集中
-                    if(!resultSet.contains(epsilonState)){
-                        //不存在则添加
-                        resultSet.add(epsilonState);
-                        //加入到闭包栈中
-                        stack.push(epsilonState);
-                    }
+            if(epsilonStateSet == null)
+                continue;
+            for(NFAState epsilonState : epsilonStateSet){
+                //不存在则添加，并加入到闭包栈中
+                if(!resultSet.get(epsilonState.getIndex())){
+                    resultSet.set(epsilonState.getIndex());
+                    stack[top++] = epsilonState.getIndex();
                 }
             }
         }
         return resultSet;
     }
 
+    /**
+     * 对NFA结点集合求空闭包
+     * @param nfaIds   需要求空闭包的NFA结点编号集合
+     * @param closures 每个NFA结点的空闭包
+     * @return         求空闭包之后的结点编号集合
+     * */
+    public static BitSet closure(BitSet nfaIds, BitSet[] closures){
+        BitSet resultSet = new BitSet();
+        for(int i = nfaIds.nextSetBit(0); i >= 0; i = nfaIds.nextSetBit(i + 1)){
+            resultSet.or(closures[i]);
+        }
+        return resultSet;
+    }
+
     //DFA集合
     public final static Set<DFAState> DFAStateSet = new HashSet<>();
-    //DFA转换图，第一个DFAState用于定位DFA结点，第二个map用于描述DFA结点的转换关系
-    public final static Map<DFAState,Map<String,DFAState>> DFAGraph = new HashMap<>();
+    //DFA转换图，第一个DFAState用于定位DFA结点，第二个map以字符类为键描述DFA结点的转换关系
+    public final static Map<DFAState,Map<Integer,DFAState>> DFAGraph = new HashMap<>();
     public static DFAState startDFA;
+    //字符类，由NFA的转换和token类型的分类自动机划分得到
+    public static CharClasses charClasses;
+    //token类型的分类自动机
+    public static TokenClassifier tokenClassifier = TokenClassifier.create();
+    //编译后的DFA转换表，供词法分析使用
+    public static CompiledDFA compiledDFA;
+    //生成DFAStateSet等静态变量所使用的DFABuilder，CompiledLexer等需要独立生成DFA时直接使用DFABuilder
+    private static DFABuilder builder;
     /**
-     * 子集法将NFA转换为DFA
-     * 1.对NFA的开始状态求空闭包，得到NFASet
-     * 2.根据NFASet创建DFA的开始状态
-     * 3.DFAState入DFA栈
-     * 4.while(DFA栈不空)
-     * 5.   获得当前的DFA结点
-     * 6.   for(每个终结符)
-     * 7.       对DFA结点中的每个NFA结点，求move后的结果
-     * 8.       对move后的结果求空闭包
-     * 9.       if(DFA结果集中不包含新的DFA)
-     * 10.          添加状态转换图，新DFA入DFA栈
+     * 子集法将NFA转换为DFA，结果保存在DFAStateSet、DFAGraph、startDFA和charClasses中
+     * 具体过程见DFABuilder.nfaToDFA
+     * @param startNFA NFA的开始结点
      * */
     public static void NFAToDFA(NFAState startNFA){
-        //得到NFA开始状态对应的空闭包NFA集合
-        Set<NFAState> startNFASet = closure(Collections.singleton(startNFA));
-        startDFA = DFAState.create(startNFASet);       //得到DFA开始结点
-        Stack<DFAState> dfaStateStack = new Stack<>();
-        dfaStateStack.push(startDFA);
-        DFAStateSet.add(startDFA);
-        while(!dfaStateStack.isEmpty()){
-            DFAState currentDFA = dfaStateStack.pop();
-            //对于每个终结符进行move操作
-            for(Symbol symbol : ParserUtils.vtSet){
-                if(symbol.getContent().equals(Symbol.EPSILON))
+        builder = new DFABuilder(ParserUtils.nfaStateList, tokenClassifier);
+        builder.nfaToDFA(startNFA);
+        publish();
+    }
+
+    /**
+     * 对DFA结点求move操作，一次求出所有出边对应的NFA结点集合
+     * @param currentDFAState 需要求move操作的DFA结点
+     * @param nfaStates       按编号存储的NFA结点
+     * @param charClasses     字符类
+     * @return                以字符类为下标，move操作后的NFA结点编号集合，没有转换时为null
+     * */
+    public static BitSet[] move(DFAState currentDFAState, List<NFAState> nfaStates, CharClasses charClasses){
+        BitSet[] resultSets = new BitSet[charClasses.getClassCount()];
+        BitSet nfaIds = currentDFAState.getNFAIds();
+        //对DFA中的每个NFA结点进行move
+        for(int i = nfaIds.nextSetBit(0); i >= 0; i = nfaIds.nextSetBit(i + 1)){
+            for(Map.Entry<String, Set<NFAState>> edge : nfaStates.get(i).getEdges().entrySet()){
+                if(edge.getKey().equals(NFAState.EPSILON))
                     //不能对空求move
                     continue;
-                Set<NFAState> movedNFASet = move(currentDFA,symbol);
-                //对move后的结果集求空闭包
-                Set<NFAState> closureNFASet = closure(movedNFASet);
-                if(closureNFASet.isEmpty())
-                    //没有结果集则不创建DFA，避免空DFA
+                char path = edge.getKey().charAt(0);
+                int cls = charClasses.classOf(path);
+                if(charClasses.representative(cls) != path)
+                    //同一字符类只处理代表字符
                     continue;
-                //根据求空闭包后的结果创建对应的DFA
-                DFAState dfaState = DFAState.create(closureNFASet);
-                //如果是新的DFA则添加到结果集中
-                if(!DFAStateSet.contains(dfaState)){
-                    DFAStateSet.add(dfaState);
-                    dfaStateStack.push(dfaState);       //新DFA入栈
+                if(resultSets[cls] == null)
+                    resultSets[cls] = new BitSet();
+                BitSet resultSet = resultSets[cls];
+                for(NFAState nextState : edge.getValue()){
+                    resultSet.set(nextState.getIndex());
                 }
-                //添加DFA转换图
-                addEdge(currentDFA,symbol,dfaState);
             }
         }
+        return resultSets;
     }
 
     /**
-     * 对DFA结点求move操作，得到move操作后的NFA结点集合
-     * @param currentDFAState 需要求move操作的DFA结点
-     * @param path            move的路径(一定为终结符)
-     * @return                move操作后的NFA Set集合
+     * 将DFA与token类型的分类自动机做乘积，使每个DFA结点都带有确定的token类型
+     * 具体过程见DFABuilder.classify，需要在NFAToDFA之后、minimizeDFA之前调用
      * */
-    public static Set<NFAState> move(DFAState currentDFAState, Symbol path){
-        Set<NFAState> resultSet = new HashSet<>();
-        //对DFA中的每个NFA结点进行move
-        for(NFAState currentNFAState : currentDFAState.getNFAStates()){
-            //判断该NFA是否包含这条路径
-            if(currentNFAState.getEdges().containsKey(path.getContent())){
-                //包含则将move后的NFA结点加入结果集
-                resultSet.addAll(currentNFAState.getEdges().get(path.getContent()));
-            }
-        }
-        return resultSet;
+    public static void classifyDFA(){
+        if(builder == null)
+            return;
+        builder.classify();
+        publish();
     }
 
     /**
-     * 创建DFA转换图
-     * @param currentDFA 当前的DFA结点
-     * @param path       转换路径
-     * @param nextDFA    下一个DFA结点
+     * Hopcroft算法最小化DFA
+     * 具体过程见DFABuilder.minimize，需要在NFAToDFA之后调用
      * */
-    public static void addEdge(DFAState currentDFA, Symbol path, DFAState nextDFA){
-        Map<String,DFAState> stringDFAStateMap = DFAGraph.get(currentDFA);
-        if(stringDFAStateMap == null || stringDFAStateMap.isEmpty()){
-            //如果为空则创建新的map
-            stringDFAStateMap = new HashMap<>();
-            DFAGraph.put(currentDFA,stringDFAStateMap);
-        }
-        stringDFAStateMap.put(path.getContent(),nextDFA);
+    public static void minimizeDFA(){
+        if(builder == null)
+            return;
+        builder.minimize();
+        publish();
+    }
+
+    /**
+     * 将DFABuilder的结果复制到静态变量中，供输出和编译使用
+     * */
+    private static void publish(){
+        startDFA = builder.getStartDFA();
+        charClasses = builder.getCharClasses();
+        DFAStateSet.clear();
+        DFAStateSet.addAll(builder.getDFAStates());
+        DFAGraph.clear();
+        DFAGraph.putAll(builder.getDFAGraph());
+    }
+
+    /**
+     * 将DFA转换图编译为稠密的转换表
+     * 需要在NFAToDFA之后调用
+     * @return 编译后的DFA
+     * */
+    public static CompiledDFA compileDFA(){
+        compiledDFA = CompiledDFA.compile(startDFA, DFAStateSet, DFAGraph, charClasses);
+        return compiledDFA;
     }
 
     /**
@@ -130,12 +173,12 @@ public class DFAUtils {
      * */
     public static void printDFAMap(){
         System.out.println("--------------DFA State Map----------------");
-        for(Map.Entry<DFAState,Map<String,DFAState>> dfaMap : DFAGraph.entrySet()){
+        for(Map.Entry<DFAState,Map<Integer,DFAState>> dfaMap : DFAGraph.entrySet()){
             System.out.println(dfaMap.getKey());
             StringBuffer buffer = new StringBuffer();
             buffer.append("Edges{\n");
-            for(Map.Entry<String,DFAState> edge : dfaMap.getValue().entrySet()){
-                buffer.append("\t").append(edge.getKey()).append("->").append(edge.getValue()).append('\n');
+            for(Map.Entry<Integer,DFAState> edge : dfaMap.getValue().entrySet()){
+                buffer.append("\t").append(charClasses.describe(edge.getKey())).append("->").append(edge.getValue()).append('\n');
             }
             buffer.append("}");
             System.out.println(buffer.toString());
@@ -153,6 +196,8 @@ public class DFAUtils {
         ParserUtils.regularGrammarToNFA();
         ParserUtils.printNFAState();
         NFAToDFA(ParserUtils.startNFA);
+        classifyDFA();
+        minimizeDFA();
         printDFAMap();
     }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.compiler.parser;
+
+/**
+ * 由ScannerGenerator根据正规文法生成的词法分析表，请勿手动修改
+ * DFA结点数：113，字符类数：50
+ * */
+public final class GeneratedScanner {
+    public static final String GRAMMAR_HASH = "4f9db52c6f160cdd8f05f49625d947501abaa1c49fd7a60adb3cd7d6b3d49935";
+    private static final int START_STATE = 0;
+    private static final String[] TRANSITIONS = {
+        "\001\000\001\002\001\003\001\000\001\004\001\005\003\006\001\007\001\010\001\006\001\011\001\012\001\007\001\013\001\006\003\014\001\015\002\006\001\004\001\016\001\017\001\020\001\021\001\022\001\023\001\024\001\015\001\025\001\015\001\026\001\015\001\027\001\015\001\030\001\031\001\032\001\033\001\015\001\034\001\035\001\015\001\006\001\036\001\006\001\004\022\000\001\037 \000\001 \001!/ 7\000\001\004p\000\001\004)\000\001\004\007\000\001\004+\000\001\004\001\"\001\000\001\013\002\000\001!\011\000\001#$\000\001$,\000\001%\001\000\001%\001\"\001\000\001\013\014\000\001#'\000\001\0043\000\001\015\003\000\026\015\030\000\001\015\003\000\001\015\001&\020\015\001'\003\015\030\000\001\015\003\000\015\015\001(\001\015\001)\006\015\030\000\001\015\003\000\007\015\001*\002\015\001+\002\015\001,\010\015\030\000\001\015\003\000\015\015\001-\010\015\016\000\001.\001\000\001.\007\000\001\015\003\000\026\015\030\000\001\015\003\000\001/\007\015\0010\001\015\0011\002\015\0012\004\015\0013\003\015\030\000\001\015\003\000\015\015\001'\010\015\030\000\001\015\003\000\005\015\0014\006\015\0015\011\015\030\000\001\015\003\000\015\015\0016\010\015\030\000\001\015\003\000\004\015\0017\021\015\030\000\001\015\003\000\017\015\0018\002\015\0019\003\015\030\000\001\015\003\000\004\015\001:\021\015\030\000\001\015\003\000\007\015\001;\011\015\001<\004\015\030\000\001\015\003\000\017\015\001=\006\015\030\000\001\015\003\000\015\015\001>\010\015\030\000\001\015\003\000\007\015\001?\016\0153\000\001\0045\000\001 \001!/ A\000\001$,\000\001.\001\000\001./\000\001%\001\000\001%\002\000\001$\014\000\001#$\000\001%\020\000\001!%\000\001\015\003\000\020\015\001@\005\015\030\000\001\015\003\000\021\015\001A\004\015\030\000\001\015\003\000\015\015\001B\010\015\030\000\001\015\003\000\004\015\001C\021\015\030\000\001\015\003\000\0012\025\015\030\000\001\015\003\000\001D\025\015\030\000\001\015\003\000\013\015\001E\001F\011\015\030\000\001\015\003\000\022\015\001G\003\015\023\000\001H6\000\001\015\003\000\012\015\001I\013\015\030\000\001\015\003\000\014\015\001J\011\015\030\000\001\015\003\000\015\015\001K\010\015\030\000\001\015\003\000\017\015\0014\006\015\030\000\001\015\003\000\014\015\001L\011\015\030\000\001\015\003\000\026\015\030\000\001\015\003\000\021\015\0014\004\015\030\000\001\015\003\000\014\015\001M\011\015\030\000\001\015\003\000\024\015\0014\001\015\030\000\001\015\003\000\010\015\001N\004\015\001O\010\015\030\000\001\015\003\000\001\015\001P\024\015\030\000\001\015\003\000\021\015\001Q\004\015\030\000\001\015\003\000\015\015\001R\010\015\030\000\001\015\003\000\001S\016\015\001T\006\015\030\000\001\015\003\000\022\015\001U\003\015\030\000\001\015\003\000\010\015\001V\015\015\030\000\001\015\003\000\010\015\001W\015\015\030\000\001\015\003\000\021\015\001X\004\015\030\000\001\015\003\000\015\015\0014\010\015\030\000\001\015\003\000\012\015\001Y\013\015\030\000\001\015\003\000\001Z\025\015\030\000\001\015\003\000\020\015\001[\005\015\030\000\001\015\003\000\016\015\001\\\007\015\030\000\001\015\003\000\021\015\001]\004\015\030\000\001\015\003\000\001\015\001W\024\015\023\000\001H6\000\001\015\003\000\020\015\001U\005\015\030\000\001\015\003\000\001^\025\015\030\000\001\015\003\000\0015\025\015\030\000\001\015\003\000\002\015\0014\023\015\030\000\001\015\003\000\006\015\0014\017\015\030\000\001\015\003\000\023\015\001_\002\015\030\000\001\015\003\000\021\015\001`\004\015\030\000\001\015\003\000\012\015\001a\013\015\030\000\001\015\003\000\022\015\001b\003\015\030\000\001\015\003\000\017\015\0015\006\015\030\000\001\015\003\000\021\015\001a\004\015\030\000\001\015\003\000\010\015\0016\015\015\030\000\001\015\003\000\004\015\0014\021\015\030\000\001\015\003\000\003\015\0014\022\015\030\000\001\015\003\000\012\015\001U\013\015\030\000\001\015\003\000\017\015\001c\006\015\030\000\001\015\003\000\004\015\001d\021\015\030\000\001\015\003\000\011\015\0014\014\015\030\000\001\015\003\000\020\015\0014\005\015\030\000\001\015\003\000\012\015\001e\013\015\030\000\001\015\003\000\010\015\001f\015\015\030\000\001\015\003\000\012\015\001g\013\015\030\000\001\015\003\000\001h\025\015\030\000\001\015\003\000\004\015\001i\021\015\030\000\001\015\003\000\010\015\001j\015\015\030\000\001\015\003\000\017\015\001k\006\015\030\000\001\015\003\000\001l\025\015\030\000\001\015\003\000\001k\025\015\030\000\001\015\003\000\004\015\001m\021\015\030\000\001\015\003\000\014\015\001=\011\015\030\000\001\015\003\000\026\015\030\000\001\015\003\000\021\015\001n\004\015\030\000\001\015\003\000\002\015\001o\023\015\030\000\001\015\003\000\002\015\001g\023\015\030\000\001\015\003\000\014\015\0014\011\015\030\000\001\015\003\000\002\015\0015\023\015\030\000\001\015\003\000\025\015\0014\030\000\001\015\003\000\004\015\001g\021\015\030\000\001\015\003\000\021\015\001p\004\015\030\000\001\015\003\000\004\015\001q\021\015\030\000\001\015\003\000\003\015\001g\022\015\004\000"
+    };
+    private static final String[] ACCEPTING = {
+        "\006\002\001\001\030\002\001\001\001\002\002\001\001\002\001\001\010\002\001\001C\002"
+    };
+    private static final String[] KINDS = {
+        "\001\002\001\005\001\003\002\005\001\006\003\005\001\006\001\003\001\005\021\002\001\005\001\002\006\003\007\002\001\001\001\003\005\002\001\001\023\002\001\003\036\002\001\004\012\002"
+    };
+    private static final String[] ASCII_CLASS = {
+        "!\001\001\002\001\003\002\004\001\005\001\006\001\007\001\010\001\011\001\012\001\013\001\014\001\015\001\016\001\017\012\020\001\001\001\021\001\022\001\023\001\024\001\004\001\001\032\025\001\026\001\004\001\027\001\030\002\001\001\031\001\032\001\033\001\034\001\035\001\036\001\037\001 \001!\001\025\001\"\001#\001$\001%\001&\001'\001\025\001(\001)\001*\001+\001,\001-\001.\002\025\001/\0010\0011\0012\001\001"
+    };
+    private static final String[] RANGE_CLASS = {
+        ""
+    };
+    private static final String RANGE_START = "";
+    private static final String RANGE_END = "";
+    private static final String[] CLASS_CHARS = {
+        "",
+        "!",
+        "\"",
+        "#$?\\",
+        "%",
+        "&",
+        "'",
+        "(",
+        ")",
+        "*",
+        "+",
+        ",",
+        "-",
+        ".",
+        "/",
+        "0123456789",
+        ";",
+        "<",
+        "=",
+        ">",
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZjqyz",
+        "[",
+        "]",
+        "^",
+        "a",
+        "b",
+        "c",
+        "d",
+        "e",
+        "f",
+        "g",
+        "h",
+        "i",
+        "k",
+        "l",
+        "m",
+        "n",
+        "o",
+        "p",
+        "r",
+        "s",
+        "t",
+        "u",
+        "v",
+        "w",
+        "x",
+        "{",
+        "|",
+        "}",
+        "~"
+    };
+
+    private GeneratedScanner() {
+    }
+
+    public static CompiledDFA load(){
+        return ScannerGenerator.load(START_STATE, TRANSITIONS, ACCEPTING, KINDS, ASCII_CLASS, RANGE_CLASS,
+                RANGE_START, RANGE_END, CLASS_CHARS);
+    }
+}
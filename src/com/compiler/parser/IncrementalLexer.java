@@ -0,0 +1,84 @@
+package com.compiler.parser;
+
+/**
+ * 增量的词法分析
+ * 源文件被编辑后，只对编辑位置附近重新进行词法分析，其余的token直接从原token序列中复制
+ * 1.找到不受编辑影响的最后一个token，从它的结束位置开始重新分析（token结束后一定不处于注释中）
+ * 2.词法分析器判断token在end处结束时，最多读取end和end+1两个字符（end处为/时需要再读取一个字符判断是否为//或/*），
+ *   因此只有结束位置end满足end+1<offset的token不受影响；结束位置为offset-1的token，
+ *   修改其后第二个字符后可能由注释结束变为继续读取（如将"ab//c中第二个/替换为空格），也需要重新分析
+ * 3.重新分析到编辑后的文本之后，若得到的token的开始位置（减去偏移）恰好是原来某个token的开始位置，
+ *   说明DFA从开始结点、以相同的后续文本重新开始，之后的结果与原来完全相同，此时已重新同步
+ * 4.拼接：保留的前缀 + 重新分析得到的token + 同步点之后平移过的原token
+ * 重新分析的字符数与编辑影响的范围成正比，与源文件的大小无关
+ * */
+public class IncrementalLexer {
+
+    /**
+     * 编辑源文件后更新token序列
+     * @param dfa            词法分析使用的DFA
+     * @param previous       编辑前的token序列
+     * @param source         编辑后的源文件
+     * @param offset         编辑的位置
+     * @param removedLength  删除的字符数
+     * @param insertedLength 插入的字符数
+     * @return               编辑后的token序列，出错时输出错误信息并返回null
+     * */
+    public static TokenBuffer relex(LexerDFA dfa, TokenBuffer previous, SourceFile source,
+                                    int offset, int removedLength, int insertedLength){
+        int shift = insertedLength - removedLength;
+        int insertedEnd = offset + insertedLength;
+        //第一个可能受编辑影响的token（结束位置不小于offset-1），从它前一个token的结束位置开始重新分析
+        int restart = firstEndingAtOrAfter(previous, offset - 1);
+        int restartPosition = restart == 0 ? 0 : previous.getStart(restart - 1) + previous.getLength(restart - 1);
+        TokenBuffer buffer = previous.derive(source, restart);
+        Lexer lexer = new Lexer(dfa, source, restartPosition, source.length(), false, true);
+        int old = restart;          //原token序列中可能作为同步点的token
+        while(lexer.next(buffer)){
+            int start = buffer.getStart(buffer.size() - 1);
+            if(start < insertedEnd)
+                continue;
+            //编辑后的文本之后开始的token，查找原来是否有token从同一位置开始
+            int oldStart = start - shift;
+            while(old < previous.size() && previous.getStart(old) < oldStart)
+                ++old;
+            if(old < previous.size() && previous.getStart(old) == oldStart){
+                buffer.addShifted(previous, old + 1, shift);
+                return buffer;
+            }
+        }
+        return lexer.hasError() ? null : buffer;
+    }
+
+    /**
+     * 编辑源文件后更新token序列
+     * @param dfa           词法分析使用的DFA
+     * @param previous      编辑前的token序列
+     * @param offset        编辑的位置
+     * @param removedLength 删除的字符数
+     * @param insertedText  插入的文本
+     * @return              编辑后的token序列，可以通过getSource获取编辑后的源文件，出错时输出错误信息并返回null
+     * */
+    public static TokenBuffer relex(LexerDFA dfa, TokenBuffer previous, int offset, int removedLength,
+                                    CharSequence insertedText){
+        SourceFile source = previous.getSource().edit(offset, removedLength, insertedText);
+        return relex(dfa, previous, source, offset, removedLength, insertedText.length());
+    }
+
+    /**
+     * 二分查找第一个结束位置不小于offset的token，token按位置有序且互不重叠
+     * @return token的下标，不存在时返回token数
+     * */
+    private static int firstEndingAtOrAfter(TokenBuffer buffer, int offset){
+        int low = 0;
+        int high = buffer.size();
+        while(low < high){
+            int mid = (low + high) >>> 1;
+            if(buffer.getStart(mid) + buffer.getLength(mid) < offset)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,280 @@
+package com.compiler.parser;
+
+import com.compiler.model.TokenType;
+
+import java.util.*;
+
+/**
+ * 惰性生成的DFA
+ * 不预先对NFA做子集构造，词法分析第一次到达某个DFA结点时才根据NFA求出该结点，并缓存其转换
+ * 1.DFA结点为(NFA结点编号集合,分类自动机状态)，与classifyDFA之后的DFA结点相同，因此token类型相同
+ * 2.每个转换第一次使用时才求move和空闭包，结果记录在转换表中，之后直接查表
+ * 3.缓存的结点数达到上限时清空缓存，只保留开始结点和当前结点，内存占用与正规文法的大小无关
+ * 4.若连续多次清空缓存时平均每个结点只处理了很少的字符，说明缓存没有作用，改为直接模拟NFA，不再缓存转换
+ * 结点编号在清空缓存后会改变，词法分析器只保存当前结点的编号，因此不受影响
+ * 缓存在扫描时被修改，不是线程安全的，每个词法分析器应使用各自的LazyDFA
+ * */
+public class LazyDFA implements LexerDFA {
+    public static final int DEFAULT_MAX_STATES = 4096;     //默认缓存的结点数上限
+    private static final int MIN_STATES = 3;                //开始结点、当前结点和下一个结点
+    private static final int UNKNOWN = -2;                  //尚未求出的转换
+    private static final int MIN_CHARS_PER_STATE = 10;      //清空缓存前平均每个结点至少处理的字符数
+    private static final int MAX_BAD_FLUSHES = 3;           //连续多少次低效的清空后改为模拟NFA
+
+    private final List<NFAState> nfaStates;         //按编号存储的NFA结点
+    private final BitSet[] closures;                //每个NFA结点的空闭包，需要时才求出
+    private final int[] stack;                      //求空闭包使用的栈
+    private final BitSet endStates = new BitSet();  //终态的NFA结点编号
+    private final TokenClassifier classifier;       //token类型的分类自动机
+    private final CharClasses charClasses;          //字符类
+    private final String[] classKeys;               //字符类的代表字符，作为NFA转换图的键
+    private final int classCount;                   //字符类数
+    private final int maxStates;                    //缓存的结点数上限
+    private final BitSet startSet;                  //开始结点的NFA结点编号集合
+
+    private final Map<List<Object>, Integer> stateIndex = new HashMap<>();      //结点对应的编号
+    private BitSet[] stateSets;                     //以编号为下标的NFA结点编号集合
+    private int[] classifierStates;                 //以编号为下标的分类自动机状态
+    private int[] transitions;                      //转换表，按 state * classCount + charClass 下标存储
+    private int stateCount = 0;                     //缓存的结点数
+
+    private boolean simulating = false;             //是否已改为直接模拟NFA
+    private long steps = 0;                         //状态转换的次数
+    private long stepsAtFlush = 0;                  //上一次清空缓存时状态转换的次数
+    private int flushCount = 0;                     //清空缓存的次数
+    private int badFlushes = 0;                     //连续低效的清空次数
+
+    /**
+     * 根据NFA创建惰性生成的DFA，只划分字符类并创建开始结点
+     * @param nfaStates  按编号存储的NFA结点
+     * @param startNFA   NFA的开始结点
+     * @param classifier token类型的分类自动机，为null时不标注token类型
+     * @param maxStates  缓存的结点数上限
+     * */
+    public LazyDFA(List<NFAState> nfaStates, NFAState startNFA, TokenClassifier classifier, int maxStates) {
+        if(startNFA == null){
+            throw new RuntimeException("NFA尚未生成，无法创建DFA");
+        }
+        this.nfaStates = nfaStates;
+        this.closures = new BitSet[nfaStates.size()];
+        this.stack = new int[nfaStates.size()];
+        for(NFAState nfaState : nfaStates){
+            if(nfaState.isEnd())
+                endStates.set(nfaState.getIndex());
+        }
+        this.classifier = classifier;
+        this.charClasses = CharClasses.build(nfaStates, classifier);
+        this.classCount = charClasses.getClassCount();
+        this.classKeys = new String[classCount];
+        for(int cls = 1; cls < classCount; ++cls){
+            classKeys[cls] = String.valueOf(charClasses.representative(cls));
+        }
+        this.maxStates = Math.max(maxStates, MIN_STATES);
+        int capacity = Math.min(this.maxStates, 64);
+        this.stateSets = new BitSet[capacity];
+        this.classifierStates = new int[capacity];
+        this.transitions = new int[capacity * classCount];
+        BitSet startNFASet = new BitSet();
+        startNFASet.set(startNFA.getIndex());
+        this.startSet = closure(startNFASet);
+        addState(startSet, classifier == null ? 0 : classifier.start());
+    }
+
+    public LazyDFA(List<NFAState> nfaStates, NFAState startNFA, TokenClassifier classifier) {
+        this(nfaStates, startNFA, classifier, DEFAULT_MAX_STATES);
+    }
+
+    @Override
+    public int getStartState() {
+        return 0;
+    }
+
+    /**
+     * DFA的状态转换，转换不在缓存中时根据NFA求出
+     * @param state 当前结点编号
+     * @param ch    输入字符
+     * @return      下一个结点的编号，没有转换路径时返回NO_STATE
+     * */
+    @Override
+    public int next(int state, char ch){
+        ++steps;
+        int cls = charClasses.classOf(ch);
+        if(cls == CharClasses.NONE)
+            return NO_STATE;
+        if(!simulating){
+            int target = transitions[state * classCount + cls];
+            if(target != UNKNOWN)
+                return target;
+        }
+        BitSet moved = move(stateSets[state], cls);
+        if(moved == null){
+            if(!simulating)
+                transitions[state * classCount + cls] = NO_STATE;
+            return NO_STATE;
+        }
+        BitSet nextSet = closure(moved);
+        int nextClassifierState = classifier == null ? 0 : classifier.next(classifierStates[state], charClasses.representative(cls));
+        if(!simulating){
+            Integer target = stateIndex.get(Arrays.asList(nextSet, nextClassifierState));
+            if(target != null){
+                transitions[state * classCount + cls] = target;
+                return target;
+            }
+            if(stateCount == maxStates)
+                state = flush(state);
+        }
+        if(simulating){
+            //模拟NFA时只保留开始结点、当前结点和下一个结点，当前结点和下一个结点交替使用编号1和2
+            int target = state == 1 ? 2 : 1;
+            setState(target, nextSet, nextClassifierState);
+            return target;
+        }
+        int target = addState(nextSet, nextClassifierState);
+        transitions[state * classCount + cls] = target;
+        return target;
+    }
+
+    /**
+     * 清空缓存，只保留开始结点和当前结点
+     * @param state 当前结点编号
+     * @return      当前结点的新编号
+     * */
+    private int flush(int state){
+        ++flushCount;
+        //平均每个结点处理的字符过少时，说明缓存不断被清空却没有被重复使用
+        if(steps - stepsAtFlush < (long) MIN_CHARS_PER_STATE * stateCount)
+            ++badFlushes;
+        else
+            badFlushes = 0;
+        stepsAtFlush = steps;
+        if(badFlushes >= MAX_BAD_FLUSHES)
+            simulating = true;
+        BitSet currentSet = stateSets[state];
+        int currentClassifierState = classifierStates[state];
+        int startClassifierState = classifierStates[0];
+        stateIndex.clear();
+        stateCount = 0;
+        addState(startSet, startClassifierState);
+        if(state == 0)
+            return 0;
+        return simulating ? setState(1, currentSet, currentClassifierState) : addState(currentSet, currentClassifierState);
+    }
+
+    /**
+     * 将新的结点加入缓存
+     * @return 结点编号
+     * */
+    private int addState(BitSet nfaIds, int classifierState){
+        if(stateCount == stateSets.length){
+            int capacity = Math.min(stateCount * 2, maxStates);
+            stateSets = Arrays.copyOf(stateSets, capacity);
+            classifierStates = Arrays.copyOf(classifierStates, capacity);
+            transitions = Arrays.copyOf(transitions, capacity * classCount);
+        }
+        int state = stateCount++;
+        stateIndex.put(Arrays.asList(nfaIds, classifierState), state);
+        return setState(state, nfaIds, classifierState);
+    }
+
+    private int setState(int state, BitSet nfaIds, int classifierState){
+        stateSets[state] = nfaIds;
+        classifierStates[state] = classifierState;
+        Arrays.fill(transitions, state * classCount, (state + 1) * classCount, UNKNOWN);
+        return state;
+    }
+
+    /**
+     * 对NFA结点集合沿一个字符类求move，同一字符类只需要沿代表字符转换
+     * @param nfaIds NFA结点编号集合
+     * @param cls    字符类
+     * @return       move后的NFA结点编号集合，没有转换时返回null
+     * */
+    private BitSet move(BitSet nfaIds, int cls){
+        BitSet resultSet = null;
+        for(int i = nfaIds.nextSetBit(0); i >= 0; i = nfaIds.nextSetBit(i + 1)){
+            Set<NFAState> nextStates = nfaStates.get(i).getEdges().get(classKeys[cls]);
+            if(nextStates == null)
+                continue;
+            if(resultSet == null)
+                resultSet = new BitSet();
+            for(NFAState nextState : nextStates){
+                resultSet.set(nextState.getIndex());
+            }
+        }
+        return resultSet;
+    }
+
+    /**
+     * 对NFA结点集合求空闭包，每个NFA结点的空闭包在第一次使用时求出
+     * */
+    private BitSet closure(BitSet nfaIds){
+        BitSet resultSet = new BitSet();
+        for(int i = nfaIds.nextSetBit(0); i >= 0; i = nfaIds.nextSetBit(i + 1)){
+            resultSet.or(epsilonClosure(i));
+        }
+        return resultSet;
+    }
+
+    private BitSet epsilonClosure(int index){
+        if(closures[index] == null)
+            closures[index] = DFAUtils.epsilonClosure(nfaStates, index, stack);
+        return closures[index];
+    }
+
+    @Override
+    public boolean isAccepting(int state){
+        return stateSets[state].intersects(endStates);
+    }
+
+    @Override
+    public TokenType getKind(int state){
+        return classifier == null ? null : classifier.kind(classifierStates[state]);
+    }
+
+    @Override
+    public String expected(int state){
+        //只求move，不修改缓存，保证state仍然有效
+        StringBuilder stringBuilder = new StringBuilder();
+        for(int cls = 1; cls < classCount; ++cls){
+            if(move(stateSets[state], cls) != null){
+                for(char ch : charClasses.getChars(cls)){
+                    stringBuilder.append("'").append(ch).append("',");
+                }
+            }
+        }
+        if(stringBuilder.length() > 0)
+            stringBuilder.deleteCharAt(stringBuilder.length() - 1);
+        return stringBuilder.toString();
+    }
+
+    /**
+     * 当前缓存的结点数
+     * @return 结点数
+     * */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public int getFlushCount() {
+        return flushCount;
+    }
+
+    public boolean isSimulating() {
+        return simulating;
+    }
+
+    public CharClasses getCharClasses() {
+        return charClasses;
+    }
+
+    @Override
+    public String toString() {
+        return "LazyDFA{" +
+                "states=" + stateCount +
+                ", maxStates=" + maxStates +
+                ", classes=" + classCount +
+                ", flushes=" + flushCount +
+                ", simulating=" + simulating +
+                '}';
+    }
+}
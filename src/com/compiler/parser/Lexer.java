@@ -0,0 +1,231 @@
+package com.compiler.parser;
+
+import com.compiler.model.Token;
+import com.compiler.model.TokenStream;
+import com.compiler.model.TokenType;
+
+/**
+ * 词法分析器
+ * 根据DFA（编译后的DFA或惰性生成的DFA），每次调用next时从当前位置开始识别下一个token
+ * 会自动略过//和/*的注释符号，空白字符（空格、制表符、换行）表示一个token的结束
+ * 空白字符、注释和DFA结点上的自环字符通过ScanUtils和LexerDFA.skipSelfLoop成段略过
+ * 出错时输出错误信息，并结束token流
+ * */
+public class Lexer implements TokenStream {
+    private final LexerDFA dfa;             //词法分析使用的DFA
+    private final SourceFile source;        //用户程序的源文件
+    private final char[] chars;             //源文件的字符
+    private final int end;                  //扫描的结束位置（不含）
+    private final boolean printError;       //出错时是否直接输出错误信息
+    private int index;                      //当前扫描到的位置
+    private boolean isBlockComment;         //当前是否处于块注释中
+    private String errorMessage = null;     //词法分析的错误信息，为null表示没有出错
+    private int lastStart;                  //最近识别到的token的开始位置
+    private int lastEnd;                    //最近识别到的token的结束位置（不含）
+    private int lastState;                  //最近识别到的token结束时的DFA结点
+
+    public Lexer(LexerDFA dfa, SourceFile source) {
+        this(dfa, source, 0, source.length(), false, true);
+    }
+
+    /**
+     * 只对源文件中的一段进行词法分析，用于分块并行的词法分析
+     * @param dfa            词法分析使用的DFA
+     * @param source         用户程序的源文件
+     * @param start          扫描的开始位置，应当位于一行的开头
+     * @param end            扫描的结束位置（不含），应当位于一行的开头或文件末尾
+     * @param isBlockComment 开始位置是否处于块注释中
+     * @param printError     出错时是否直接输出错误信息
+     * */
+    Lexer(LexerDFA dfa, SourceFile source, int start, int end, boolean isBlockComment, boolean printError) {
+        this.dfa = dfa;
+        this.source = source;
+        this.chars = source.getChars();
+        this.index = start;
+        this.end = end;
+        this.isBlockComment = isBlockComment;
+        this.printError = printError;
+    }
+
+    /**
+     * 识别下一个token
+     * @return 识别到的token，到达文件末尾或出错时返回null
+     * */
+    @Override
+    public Token next(){
+        if(!scan())
+            return null;
+        return createToken(lastStart, lastEnd, lastState);
+    }
+
+    /**
+     * 识别下一个token，并追加到token序列中，不创建Token对象
+     * @param buffer token序列
+     * @return       是否识别到了token，到达文件末尾或出错时返回false
+     * */
+    public boolean next(TokenBuffer buffer){
+        if(!scan())
+            return false;
+        TokenType kind = dfa.getKind(lastState);
+        if(kind == null)
+            //DFA未分类时按内容判断类型
+            kind = createToken(lastStart, lastEnd, lastState).getType();
+        buffer.add(lastStart, lastEnd - lastStart, kind);
+        return true;
+    }
+
+    /**
+     * 对剩余的输入进行词法分析
+     * @return 识别到的token序列，出错时返回null
+     * */
+    public TokenBuffer tokenize(){
+        TokenBuffer buffer = new TokenBuffer(source);
+        while(next(buffer)){
+            //逐个识别token，直到文件末尾或出错
+        }
+        return hasError() ? null : buffer;
+    }
+
+    /**
+     * 从当前位置开始识别下一个token，结果记录在lastStart、lastEnd和lastState中
+     * @return 是否识别到了token，到达文件末尾或出错时返回false
+     * */
+    private boolean scan(){
+        if(errorMessage != null)
+            return false;
+        int tokenStart = -1;                            //当前token的开始位置，-1表示当前没有token
+        int currentState = dfa.getStartState();         //当前匹配的DFA结点
+        while(index < end){
+            if(isBlockComment){
+                //块注释中只需要查找注释的结束
+                int commentEnd = ScanUtils.findBlockCommentEnd(chars, index, end);
+                if(commentEnd < 0){
+                    index = end;
+                }
+                else{
+                    isBlockComment = false;
+                    index = commentEnd;
+                }
+                continue;
+            }
+            char ch = chars[index];
+            if(ch == '/' && index + 1 < end && (chars[index + 1] == '*' || chars[index + 1] == '/')){
+                //注释同时表示上一个token的结束
+                if(tokenStart >= 0)
+                    return accept(tokenStart, index, currentState);
+                if(chars[index + 1] == '*'){
+                    //块注释开始
+                    isBlockComment = true;
+                    index += 2;
+                }
+                else{
+                    //略过行注释
+                    index = ScanUtils.findLineEnd(chars, index, end);
+                }
+                continue;
+            }
+            if(ScanUtils.isWhitespace(ch)){
+                //略过空白字符
+                //TODO:当目前状态是字符串时不需要略过空格
+                //空白字符还同时表示一个token的结束
+                if(tokenStart >= 0)
+                    return accept(tokenStart, index++, currentState);
+                index = ScanUtils.skipWhitespace(chars, index + 1, end);
+                continue;
+            }
+            if(tokenStart < 0){
+                //设置当前token的开始位置，并设置为DFA的开始结点
+                tokenStart = index;
+                currentState = dfa.getStartState();
+            }
+            //获取下一个可以转换到的DFA结点
+            int nextState = dfa.next(currentState, ch);
+            if(nextState != LexerDFA.NO_STATE){
+                //如果存在转换路径
+                ++index;
+                if(nextState == currentState)
+                    //自环时成段略过之后同样自环的字符
+                    index = dfa.skipSelfLoop(currentState, chars, index, end);
+                currentState = nextState;
+            }
+            else if(index > tokenStart && dfa.isAccepting(currentState)){
+                //如果不存在，但当前结点是终态，则当前符号读取结束，下一次从当前字符开始识别
+                return accept(tokenStart, index, currentState);
+            }
+            else{
+                //非终态但不能转换说明出现了词法分析错误
+                printError(currentState, index, "当前状态非终结状态!");
+                return false;
+            }
+        }
+        //判断最后一个token的结点是否是终态
+        if(tokenStart >= 0){
+            if(dfa.isAccepting(currentState))
+                return accept(tokenStart, end, currentState);
+            printError(currentState, end - 1, "输入结束时当前状态非终结状态!");
+        }
+        return false;
+    }
+
+    private boolean accept(int start, int end, int finalState){
+        lastStart = start;
+        lastEnd = end;
+        lastState = finalState;
+        return true;
+    }
+
+    @Override
+    public boolean hasError() {
+        return errorMessage != null;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * 扫描结束后是否仍处于块注释中，用于确定下一段的开始状态
+     * @return true表示处于块注释中
+     * */
+    public boolean isBlockComment() {
+        return isBlockComment;
+    }
+
+    /**
+     * 根据token在源文件中的位置创建token，token的类型由结束时的DFA结点直接给出
+     * @param start      token的开始位置
+     * @param end        token的结束位置（不含）
+     * @param finalState token结束时的DFA结点
+     * @return           创建好的token
+     * */
+    private Token createToken(int start, int end, int finalState){
+        Token token = new Token(source.getRow(start), source.getCol(start), dfa.getKind(finalState), source.getText(start, end));
+        if(token.getType() == null)
+            //DFA未分类时按内容判断类型
+            token.setType();
+        return token;
+    }
+
+    /**
+     * 输出词法分析的错误信息
+     * @param currentState 出错时的DFA结点
+     * @param index        出错的位置
+     * @param reason       出错原因
+     * */
+    private void printError(int currentState, int index, String reason){
+        StringBuffer errorInfo = new StringBuffer();
+        errorInfo.append("词法分析出错!\n");
+        errorInfo.append("出错位置:").append(" 行:").append(source.getRow(index) + 1)
+                .append(", 列:").append(source.getCol(index) + 1)
+                .append(", 内容:").append(source.charAt(index));
+        errorInfo.append("\n出错原因:").append(reason).append("\n");
+        errorInfo.append("期望匹配:{").append(dfa.expected(currentState)).append("}");
+        errorMessage = errorInfo.toString();
+        if(printError)
+            System.out.println(errorMessage);
+    }
+
+    public SourceFile getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,53 @@
+package com.compiler.parser;
+
+import com.compiler.model.TokenType;
+
+/**
+ * 词法分析器使用的DFA
+ * 结点以整数编号，词法分析器只保存当前结点的编号
+ * 1.CompiledDFA：预先生成全部结点的稠密转换表
+ * 2.LazyDFA：扫描时才生成需要的结点，结点数有上限
+ * */
+public interface LexerDFA {
+    int NO_STATE = -1;         //没有转换路径
+
+    int getStartState();
+
+    /**
+     * DFA的状态转换
+     * @param state 当前结点编号
+     * @param ch    输入字符
+     * @return      下一个结点的编号，没有转换路径时返回NO_STATE
+     * */
+    int next(int state, char ch);
+
+    boolean isAccepting(int state);
+
+    /**
+     * 获取以当前结点结束的token的类型
+     * @param state 当前结点编号
+     * @return      token的类型，DFA未分类时为null
+     * */
+    TokenType getKind(int state);
+
+    /**
+     * 获取当前结点可以接受的字符，用于输出错误信息
+     * @param state 当前结点编号
+     * @return      形如'a','b'的字符串
+     * */
+    String expected(int state);
+
+    /**
+     * 快速略过在当前结点上自环的一段字符，如标识符和数字中的连续字母、数字
+     * 遇到空白字符和'/'时停止，交给词法分析的主循环处理
+     * 默认不略过任何字符，结点编号可能变化的DFA（如LazyDFA）不能使用这条路径
+     * @param state 当前结点编号，且已知state在chars[from - 1]上自环
+     * @param chars 字符数组
+     * @param from  开始位置
+     * @param end   结束位置（不含）
+     * @return      第一个不能自环的字符的位置
+     * */
+    default int skipSelfLoop(int state, char[] chars, int from, int end){
+        return from;
+    }
+}
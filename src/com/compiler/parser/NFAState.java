@@ -11,17 +11,20 @@ public class NFAState implements Comparable<NFAState>{
     public static final String EPSILON = "ε";       //空符号
 
     private Symbol id;                              //当前NFA对应的符号
+    private final int index;                        //NFA结点的编号，从0开始连续编号
     private Map<String, Set<NFAState>> edges;       //NFA转换图
     private boolean isEnd = false;                  //是否是终态
     private boolean isStart = false;                //是否为初态
 
-    NFAState(Symbol symbol){
+    NFAState(Symbol symbol, int index){
         id = symbol;
+        this.index = index;
         edges = new HashMap<>();
     }
 
-    NFAState(boolean isEnd){
+    NFAState(boolean isEnd, int index){
         this.isEnd = true;
+        this.index = index;
         id = new Symbol("END STATE", true);
         edges = new HashMap<>();
     }
@@ -49,6 +52,10 @@ public class NFAState implements Comparable<NFAState>{
         this.id = id;
     }
 
+    public int getIndex() {
+        return index;
+    }
+
     public Map<String, Set<NFAState>> getEdges() {
         return edges;
     }
@@ -0,0 +1,135 @@
+package com.compiler.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 分块并行的词法分析
+ * 1.在行的边界将源文件切分为若干块（token不会跨行，因此行边界处只需要知道是否处于块注释中）
+ * 2.假设每一块都不从块注释中开始，在ForkJoinPool上并行地对每一块进行词法分析
+ * 3.按顺序检查每一块：若前一块结束时处于块注释中，说明假设错误，重新对这一块进行词法分析
+ * 4.按顺序合并每一块的token，第一个出错的块的错误即为顺序分析时的错误，
+ *   内容编号在每一块中并行分配，合并时只对每一块中不同的内容查找一次，token整体复制
+ * 合并后的token序列与顺序分析的结果完全相同
+ * */
+public class ParallelLexer {
+    private static final int MIN_CHUNK_SIZE = 1 << 16;     //每一块的最小长度
+
+    /**
+     * 一块源文件的词法分析结果
+     * */
+    private static class Chunk {
+        private final int start;                //块的开始位置
+        private final int end;                  //块的结束位置（不含）
+        private boolean startInComment;         //分析时假设的开始状态
+        private boolean endInComment;           //分析结束时是否处于块注释中
+        private TokenBuffer tokens;             //识别到的token
+        private String errorMessage;            //错误信息
+
+        private Chunk(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * 以指定的开始状态对这一块进行词法分析
+         * @param dfa            编译后的DFA
+         * @param source         源文件
+         * @param startInComment 开始位置是否处于块注释中
+         * */
+        private void lex(CompiledDFA dfa, SourceFile source, boolean startInComment){
+            Lexer lexer = new Lexer(dfa, source, start, end, startInComment, false);
+            TokenBuffer buffer = new TokenBuffer(source);
+            while(lexer.next(buffer)){
+                //逐个识别token，直到块的末尾或出错
+            }
+            this.startInComment = startInComment;
+            this.endInComment = lexer.isBlockComment();
+            this.tokens = buffer;
+            this.errorMessage = lexer.getErrorMessage();
+        }
+    }
+
+    /**
+     * 使用公共的ForkJoinPool进行并行词法分析
+     * @param dfa    编译后的DFA
+     * @param source 源文件
+     * @return       识别到的token，出错时输出错误信息并返回null
+     * */
+    public static TokenBuffer lex(CompiledDFA dfa, SourceFile source){
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, source.length() / (pool.getParallelism() * 4) + 1);
+        return lex(dfa, source, pool, chunkSize);
+    }
+
+    /**
+     * 并行词法分析
+     * @param dfa       编译后的DFA
+     * @param source    源文件
+     * @param pool      执行词法分析的线程池
+     * @param chunkSize 每一块的长度（会延长到下一行的开头）
+     * @return          识别到的token，出错时输出错误信息并返回null
+     * */
+    public static TokenBuffer lex(CompiledDFA dfa, SourceFile source, ForkJoinPool pool, int chunkSize){
+        List<Chunk> chunks = split(source, chunkSize);
+        //并行分析，假设每一块都不从块注释中开始
+        List<Callable<Chunk>> tasks = new ArrayList<>();
+        for(Chunk chunk : chunks){
+            tasks.add(() -> {
+                chunk.lex(dfa, source, false);
+                return chunk;
+            });
+        }
+        try {
+            for(Future<Chunk> future : pool.invokeAll(tasks)){
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("并行词法分析被中断", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("并行词法分析出错", e.getCause());
+        }
+        //按顺序修正块边界的状态，并合并结果
+        TokenBuffer tokenBuffer = new TokenBuffer(source);
+        boolean inComment = false;
+        for(Chunk chunk : chunks){
+            if(chunk.startInComment != inComment){
+                //假设错误，以正确的开始状态重新分析
+                chunk.lex(dfa, source, inComment);
+            }
+            tokenBuffer.addAll(chunk.tokens);
+            if(chunk.errorMessage != null){
+                System.out.println(chunk.errorMessage);
+                return null;
+            }
+            inComment = chunk.endInComment;
+        }
+        return tokenBuffer;
+    }
+
+    /**
+     * 在行的边界将源文件切分为若干块
+     * @param source    源文件
+     * @param chunkSize 每一块的长度
+     * @return          切分后的块
+     * */
+    private static List<Chunk> split(SourceFile source, int chunkSize){
+        List<Chunk> chunks = new ArrayList<>();
+        int length = source.length();
+        int start = 0;
+        while(start < length){
+            int end = Math.min(length, start + Math.max(1, chunkSize));
+            //延长到下一行的开头
+            while(end < length && source.charAt(end - 1) != '\n')
+                ++end;
+            chunks.add(new Chunk(start, end));
+            start = end;
+        }
+        return chunks;
+    }
+}
@@ -2,7 +2,6 @@ package com.compiler.parser;
 
 import com.compiler.model.Production;
 import com.compiler.model.Symbol;
-import com.compiler.model.Token;
 
 import java.io.*;
 import java.util.*;
@@ -10,100 +9,120 @@ import java.util.*;
 public class ParserUtils {
     public final static List<Production> productionList = new ArrayList<>();      //产生式列表
     public final static Map<Symbol,NFAState> nfaStateMap = new HashMap<>();     //当前非终结符对应的NFA结点
+    public final static List<NFAState> nfaStateList = new ArrayList<>();        //按编号存储的NFA结点
     public final static Set<Symbol> vtSet = new HashSet<>();
     public final static Set<Symbol> vnSet = new HashSet<>();
     public static NFAState startNFA;        //NFA的开始结点
     /**
      * 读取正规文法，最后得到List<Production>的列表，并得到终结符和非终结符的列表
+     * 重复调用时会先清空上一次读取的结果
      * @param filePath  正规文法的路径
      * */
     public static void readParseTXT(String filePath){
-        try {
-            FileInputStream fileInputStream = new FileInputStream(filePath);
-            InputStreamReader reader = new InputStreamReader(fileInputStream);
-            BufferedReader bufferedReader = new BufferedReader(reader);
-            String parse = "";
-            while(true){
-                try {
-                    //读取每行的内容
-                    if (((parse = bufferedReader.readLine()) != null)) {
-                        //根据String的内容生成对应的产生式
-                        //先获取开始符号
-                        StringBuffer startString = new StringBuffer();
-                        int index = 0;
-                        int length = parse.length();
-                        while(parse.charAt(index) != '-'){
-                            startString.append(parse.charAt(index));
-                            ++index;
-                        }
-                        //获取终结符
-                        index += 2;
-                        String vtString = String.valueOf(parse.charAt(index));
-                        index++;
-                        //获取非终结符
-                        StringBuffer vnString = new StringBuffer();
-                        while(index < length){
-                            vnString.append(parse.charAt(index));
-                            ++index;
-                        }
-                        //生成symbol
-                        Symbol startSymbol = new Symbol(startString.toString());
-                        Symbol vtSymbol = new Symbol(vtString,true,false);
-                        Symbol vnSymbol = new Symbol(vnString.toString());
-                        List<Symbol> symbolList = new ArrayList<>();
-                        symbolList.add(vtSymbol);
-                        vtSet.add(vtSymbol);
-                        vnSet.add(startSymbol);
-                        if(vnString.length() != 0) {        //当产生式右侧存在非终结符时
-                            symbolList.add(vnSymbol);
-                            vnSet.add(vnSymbol);
-                        }
-                        //根据symbol生成产生式
-                        Production production = new Production(startSymbol,symbolList);
-                        productionList.add(production);
-                    }
-                    else{
-                        break;
-                    }
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+        productionList.clear();
+        vtSet.clear();
+        vnSet.clear();
+        productionList.addAll(readRegularGrammar(filePath));
+        for(Production production : productionList){
+            vnSet.add(production.getLeft());
+            List<Symbol> right = production.getRight();
+            vtSet.add(right.get(0));
+            if(right.size() > 1)
+                vnSet.add(right.get(1));
+        }
+    }
 
+    /**
+     * 读取正规文法，不修改任何静态变量
+     * @param filePath  正规文法的路径
+     * @return          产生式列表，第一个产生式的左部为开始符号
+     * */
+    public static List<Production> readRegularGrammar(String filePath){
+        List<Production> productions = new ArrayList<>();
+        try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(new FileInputStream(filePath)))) {
+            String parse;
+            //读取每行的内容
+            while((parse = bufferedReader.readLine()) != null){
+                //根据String的内容生成对应的产生式
+                //先获取开始符号
+                StringBuffer startString = new StringBuffer();
+                int index = 0;
+                int length = parse.length();
+                while(parse.charAt(index) != '-'){
+                    startString.append(parse.charAt(index));
+                    ++index;
+                }
+                //获取终结符
+                index += 2;
+                String vtString = String.valueOf(parse.charAt(index));
+                index++;
+                //获取非终结符
+                StringBuffer vnString = new StringBuffer();
+                while(index < length){
+                    vnString.append(parse.charAt(index));
+                    ++index;
+                }
+                //生成symbol
+                Symbol startSymbol = new Symbol(startString.toString());
+                Symbol vtSymbol = new Symbol(vtString,true,false);
+                List<Symbol> symbolList = new ArrayList<>();
+                symbolList.add(vtSymbol);
+                if(vnString.length() != 0) {        //当产生式右侧存在非终结符时
+                    symbolList.add(new Symbol(vnString.toString()));
+                }
+                //根据symbol生成产生式
+                productions.add(new Production(startSymbol,symbolList));
             }
-        } catch (FileNotFoundException e) {
+        } catch (IOException e) {
             e.printStackTrace();
         }
+        return productions;
     }
 
     /**
-     * 右线性正规文法转 NFA
+     * 右线性正规文法转 NFA，结果保存在nfaStateMap、nfaStateList和startNFA中
+     * 重复调用时会先清空上一次生成的NFA
+     * */
+    public static void regularGrammarToNFA(){
+        nfaStateMap.clear();
+        nfaStateList.clear();
+        startNFA = regularGrammarToNFA(productionList, nfaStateList, nfaStateMap);
+    }
+
+    /**
+     * 右线性正规文法转 NFA，不修改任何静态变量
      * 1.增加终态结点，开始符号对应的结点作为初态
      * 2.对形如A->b的文法，添加一条从A到终态的路径，路径为b
      * 3.对形如A->bB的文法，添加一条从A到B的路径，路径为b
+     * @param productions 正规文法的产生式
+     * @param nfaStates   用于按编号存储生成的NFA结点
+     * @param nfaStateMap 用于存储非终结符对应的NFA结点
+     * @return            NFA的开始结点，没有产生式时返回null
      * */
-    public static void regularGrammarToNFA(){
+    public static NFAState regularGrammarToNFA(List<Production> productions, List<NFAState> nfaStates,
+                                               Map<Symbol,NFAState> nfaStateMap){
         //获取开始状态
-        if(productionList.size() == 0){
-            return;
+        if(productions.size() == 0){
+            return null;
         }
         //获取开始符号
-        Symbol startSymbol = productionList.get(0).getLeft();
+        Symbol startSymbol = productions.get(0).getLeft();
         //根据开始符号创建初态
-        NFAState startNFAState = new NFAState(startSymbol);
+        NFAState startNFAState = createNFAState(startSymbol, nfaStates);
         startNFAState.setStart(true);
         nfaStateMap.put(startSymbol,startNFAState);
-        startNFA = startNFAState;
         //创建终态
-        NFAState endState = new NFAState(true);
+        NFAState endState = new NFAState(true, nfaStates.size());
+        nfaStates.add(endState);
         nfaStateMap.put(new Symbol("END STATE",true),endState);
         //遍历产生式集合
-        for(Production production : productionList){
+        for(Production production : productions){
             //先获取当前的NFAState
             Symbol leftSymbol = production.getLeft();
             NFAState currentNFAState = nfaStateMap.get(leftSymbol);
             if(currentNFAState == null){
                 //没有则创建新的NFAState
-                currentNFAState = new NFAState(leftSymbol);
+                currentNFAState = createNFAState(leftSymbol, nfaStates);
                 nfaStateMap.put(leftSymbol,currentNFAState);
             }
             if(production.getRight().size() == 1){
@@ -119,13 +138,26 @@ public class ParserUtils {
                 //获取下一个NFAState
                 NFAState nextNFAState = nfaStateMap.get(secondSymbol);
                 if(nextNFAState == null){
-                    nextNFAState = new NFAState(secondSymbol);
+                    nextNFAState = createNFAState(secondSymbol, nfaStates);
                     nfaStateMap.put(secondSymbol,nextNFAState);
                 }
                 //添加边
                 currentNFAState.addEdges(firstSymbol,nextNFAState);
             }
         }
+        return startNFAState;
+    }
+
+    /**
+     * 创建NFA结点，并按编号记录到nfaStates中
+     * @param symbol    NFA结点对应的非终结符
+     * @param nfaStates 按编号存储的NFA结点
+     * @return          创建好的NFA结点
+     * */
+    private static NFAState createNFAState(Symbol symbol, List<NFAState> nfaStates){
+        NFAState nfaState = new NFAState(symbol, nfaStates.size());
+        nfaStates.add(nfaState);
+        return nfaState;
     }
 
     public static void printNFAState(){
@@ -135,198 +167,129 @@ public class ParserUtils {
         }
     }
 
-    //存储读取到语句
-    public final static List<String> sentences = new ArrayList<>();
+    //用户程序的源文件
+    public static SourceFile source;
     /**
-     * 读取用户编写的程序，并存储到sentences中
+     * 读取用户编写的程序，以内存映射的方式打开，存储到source中
      * @param path 用户编写的程序的路径
      * */
     public static void readProgramTXT(String path){
         try {
-            FileInputStream fileInputStream = new FileInputStream(path);
-            InputStreamReader inputStreamReader = new InputStreamReader(fileInputStream);
-            BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
-            String sentence = "";
-            while(true){
-                if((sentence = bufferedReader.readLine()) != null){
-                    sentences.add(sentence);
-                }
-                else{
-                    break;
-                }
-            }
+            source = SourceFile.open(path);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    public final static List<Token> tokenList = new ArrayList<>();
+    //词法分析得到的token序列
+    public static TokenBuffer tokenBuffer;
     /**
      * 根据读取到的用户程序和获得的DFA，进行词法分析
-     * 该词法分析会自动略过//和/*的注释符号
-     * 词法分析的结果将放在tokenList中
+     * 由Lexer逐个识别token，词法分析的结果将放在tokenBuffer中
      * @return  词法分析是否出错，false表示出错
      * */
     public static Boolean parseProgram(){
-        boolean isLineComment = false;
-        int row = 0;
-        Token token = null;
-        StringBuffer tokenContent = new StringBuffer();
-        DFAState currentDFAState = DFAUtils.startDFA;    //当前匹配的DFA结点
-        for(String sentence : sentences){
-            int index = 0;
-            while(index < sentence.length()){
-                if(!isLineComment){
-                    if(sentence.charAt(index) == '/' &&
-                    index + 1 < sentence.length() && sentence.charAt(index + 1) == '*'){
-                        //添加上一个token
-                        if(token != null && tokenContent.length() != 0){
-                            token.setContent(tokenContent.toString());
-                            tokenList.add(token);
-                            token = null;
-                        }
-                        //行注释开始
-                        isLineComment = true;
-                        index += 2;
-                    }
-                }
-                else {
-                    if(sentence.charAt(index) == '*' &&
-                    index + 1 < sentence.length() && sentence.charAt(index + 1) == '/'){
-                        //行注释结束
-                        isLineComment = false;
-                        index += 2;
-                    }
-                }
-                //避免数组越界
-                if(index >= sentence.length())
-                    break;
-                if(sentence.charAt(index) == '/' &&
-                index + 1 < sentence.length() && sentence.charAt(index + 1) == '/'){
-                    //添加上一个token
-                    if(token != null && tokenContent.length() != 0){
-                        token.setContent(tokenContent.toString());
-                        tokenList.add(token);
-                        token = null;
-                    }
-                    //略过行注释
-                    break;
-                }
-                //只有不处于注释状态时才有效
-                if(!isLineComment){
-                    //当token为空时初始化token
-                    if(token == null || tokenContent.length() == 0){
-                        token = new Token();
-                        tokenContent = new StringBuffer();
-                        //设置为DFA的开始结点
-                        currentDFAState = DFAUtils.startDFA;
-                    }
-                    if(sentence.charAt(index) == ' '){
-                        //略过空格
-                        //TODO:当目前状态是字符串时不需要略过空格
-                        //空格还同时表示一个字符的结束
-                        if(tokenContent.length() > 0){
-                            //token不为空，则添加token
-                            token.setContent(tokenContent.toString());
-                            tokenList.add(token);
-                            token = null;   //token置空
-                        }
-                    }
-                    else{
-                        if(tokenContent.length() == 0){
-                            //设置当前token的开始行和列
-                            token.setRow(row);
-                            token.setCol(index);
-                        }
-                        //获取下一个可以转换到的DFA结点
-                        boolean hasPath = false;
-                        if(DFAUtils.DFAGraph.containsKey(currentDFAState) &&
-                           DFAUtils.DFAGraph.get(currentDFAState).containsKey(String.valueOf(sentence.charAt(index))))
-                            hasPath = true;
-                        //boolean hasPath = DFAUtils.DFAGraph.get(currentDFAState).containsKey(String.valueOf(sentence.charAt(index)));
-                        if(hasPath){
-                            //如果存在转换路径
-                            DFAState nextDFAState = DFAUtils.DFAGraph.get(currentDFAState).get(String.valueOf(sentence.charAt(index)));
-                            tokenContent.append(sentence.charAt(index));
-                            currentDFAState = nextDFAState;
-                        }
-                        else{
-                            //如果不存在
-                            //判断当前结点是否是终态
-                            if(currentDFAState.getEnd()){
-                                //当前符号读取结束
-                                //添加token
-                                if(tokenContent.length() != 0) {
-                                    token.setContent(tokenContent.toString());
-                                    tokenList.add(token);
-                                    token = null;
-                                }
-                                --index;
-                            }
-                            else{
-                                //非终态但不能转换说明出现了词法分析错误
-                                StringBuffer errorInfo = new StringBuffer();
-                                errorInfo.append("词法分析出错!\n");
-                                errorInfo.append("出错位置:").append(" 行:").append(row + 1).append(", 列:").append(index + 1)
-                                        .append(", 内容:").append(sentence.charAt(index));
-                                errorInfo.append("\n出错原因:当前状态非终结状态!\n");
-                                errorInfo.append("期望匹配:{");
-                                Map<String, DFAState> path = DFAUtils.DFAGraph.get(currentDFAState);
-                                if(path != null){
-                                    for(Map.Entry<String, DFAState> entry : path.entrySet()){
-                                        errorInfo.append("'").append(entry.getKey()).append("',");
-                                    }
-                                    errorInfo.deleteCharAt(errorInfo.length() - 1);
-                                }
-                                errorInfo.append("}");
-                                System.out.println(errorInfo.toString());
-                                //System.out.println("Parse error at row " + (row + 1) + ", col " + (index + 1) + ", char:" + sentence.charAt(index));
-                                return false;
-                            }
-                        }
-                    }
-                }
-                ++index;
-            }
-            ++row;
-        }
-        //判断当前结点是否是终态
-        if(currentDFAState.getEnd()){
-            //添加token
-            if(tokenContent.length() != 0) {
-                token.setContent(tokenContent.toString());
-                tokenList.add(token);
-            }
-        }
-        else{
-            //非终态但不能转换说明出现了词法分析错误
-            int index = sentences.get(row).length() - 1;
-            System.out.println("Parse error at row " + row + ", col " + sentences.get(row).charAt(index) + "!");
+        Lexer lexer = createLexer();
+        if(lexer == null)
             return false;
+        tokenBuffer = lexer.tokenize();
+        return tokenBuffer != null;
+    }
+
+    /**
+     * 分块并行地进行词法分析，结果与parseProgram相同，用于较大的用户程序
+     * 词法分析的结果将放在tokenBuffer中
+     * @return  词法分析是否出错，false表示出错
+     * */
+    public static Boolean parseProgramParallel(){
+        if(source == null)
+            return false;
+        CompiledDFA dfa = DFAUtils.compiledDFA;
+        if(dfa == null)
+            dfa = DFAUtils.compileDFA();
+        tokenBuffer = ParallelLexer.lex(dfa, source);
+        return tokenBuffer != null;
+    }
+
+    /**
+     * 编辑用户程序后增量地更新词法分析的结果，只重新分析编辑位置附近的token
+     * 编辑后的源文件和token序列分别放在source和tokenBuffer中
+     * @param offset        编辑的位置
+     * @param removedLength 删除的字符数
+     * @param insertedText  插入的文本
+     * @return              词法分析是否出错，false表示出错
+     * */
+    public static Boolean relexProgram(int offset, int removedLength, String insertedText){
+        if(source == null)
+            return false;
+        if(tokenBuffer == null){
+            //上一次词法分析出错时没有可以复用的token，编辑后重新分析整个程序
+            source = source.edit(offset, removedLength, insertedText);
+            return parseProgram();
         }
-        //生成token对应的type
-        for(Token t : tokenList){
-            t.setType();
+        CompiledDFA dfa = DFAUtils.compiledDFA;
+        if(dfa == null)
+            dfa = DFAUtils.compileDFA();
+        TokenBuffer previous = tokenBuffer;
+        source = previous.getSource().edit(offset, removedLength, insertedText);
+        tokenBuffer = IncrementalLexer.relex(dfa, previous, source, offset, removedLength, insertedText.length());
+        return tokenBuffer != null;
+    }
+
+    /**
+     * 根据读取到的用户程序和获得的DFA，创建词法分析器
+     * @return 词法分析器，未读取到用户程序时返回null
+     * */
+    public static Lexer createLexer(){
+        CompiledDFA dfa = DFAUtils.compiledDFA;
+        if(dfa == null)
+            dfa = DFAUtils.compileDFA();
+        return createLexer(dfa);
+    }
+
+    /**
+     * 根据读取到的用户程序和指定的DFA，创建词法分析器
+     * @param dfa 词法分析使用的DFA
+     * @return    词法分析器，未读取到用户程序时返回null
+     * */
+    public static Lexer createLexer(LexerDFA dfa){
+        if(source == null)
+            return null;
+        return new Lexer(dfa, source);
+    }
+
+    /**
+     * 以UTF-8字节的形式打开用户程序，创建直接在字节上进行词法分析的词法分析器，不需要先解码
+     * @param dfa  编译后的DFA
+     * @param path 用户程序的路径
+     * @return     词法分析器，读取用户程序失败时返回null
+     * */
+    public static Utf8Lexer createUtf8Lexer(CompiledDFA dfa, String path){
+        try {
+            return new Utf8Lexer(Utf8DFA.of(dfa), Utf8Source.open(path));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
         }
-        return true;
     }
 
     /**
      *  输出token列表
      * */
     public static void printTokenList(){
-        for(Token token : tokenList){
-            System.out.println(token);
+        if(tokenBuffer == null)
+            return;
+        for(int i = 0; i < tokenBuffer.size(); ++i){
+            System.out.println(tokenBuffer.getToken(i));
         }
     }
 
     /**
-     * 根据输入的正规文法，对用户程序进行分析
-     * @param parsePath   正规文法的路径
-     * @param programPath 用户程序的路径
-     *
+     * 根据输入的正规文法生成词法分析用的DFA
+     * 正规文法 -> NFA -> DFA -> 最小化DFA -> 编译后的DFA转换表
+     * @param parsePath 正规文法的路径
      * */
-    public static boolean parse(String parsePath, String programPath){
+    public static void buildDFA(String parsePath){
         //读取正规文法
         readParseTXT(parsePath);
         //输出产生式
@@ -339,7 +302,66 @@ public class ParserUtils {
         printNFAState();
         //NFA转DFA
         DFAUtils.NFAToDFA(startNFA);
+        //为DFA结点标注token类型
+        DFAUtils.classifyDFA();
+        //最小化DFA
+        DFAUtils.minimizeDFA();
         DFAUtils.printDFAMap();
+        //编译DFA转换表
+        DFAUtils.compileDFA();
+    }
+
+    /**
+     * 根据输入的正规文法生成惰性的DFA
+     * 只生成NFA，DFA结点在词法分析时才生成，适用于较大的正规文法
+     * @param parsePath 正规文法的路径
+     * @return          惰性生成的DFA
+     * */
+    public static LazyDFA buildLazyDFA(String parsePath){
+        //读取正规文法
+        readParseTXT(parsePath);
+        //正规文法转NFA
+        regularGrammarToNFA();
+        return new LazyDFA(new ArrayList<>(nfaStateList), startNFA, DFAUtils.tokenClassifier);
+    }
+
+    /**
+     * 获取词法分析用的DFA
+     * 1.优先使用ScannerGenerator预先生成的词法分析表
+     * 2.其次使用DFACache中以正规文法的SHA-256命名的缓存
+     * 3.都不存在或正规文法已改变时再根据正规文法生成DFA，并写入缓存
+     * @param parsePath 正规文法的路径
+     * @return          编译后的DFA
+     * */
+    public static CompiledDFA loadDFA(String parsePath){
+        String grammarHash;
+        try {
+            grammarHash = ScannerGenerator.grammarHash(parsePath);
+        } catch (IOException e) {
+            e.printStackTrace();
+            buildDFA(parsePath);
+            return DFAUtils.compiledDFA;
+        }
+        CompiledDFA dfa = ScannerGenerator.loadGenerated(ScannerGenerator.CLASS_NAME, grammarHash);
+        if(dfa == null)
+            dfa = DFACache.load(DFACache.DEFAULT_DIR, grammarHash);
+        if(dfa != null){
+            DFAUtils.compiledDFA = dfa;
+            return dfa;
+        }
+        buildDFA(parsePath);
+        DFACache.save(DFAUtils.compiledDFA, DFACache.DEFAULT_DIR, grammarHash);
+        return DFAUtils.compiledDFA;
+    }
+
+    /**
+     * 根据输入的正规文法，对用户程序进行分析
+     * @param parsePath   正规文法的路径
+     * @param programPath 用户程序的路径
+     *
+     * */
+    public static boolean parse(String parsePath, String programPath){
+        buildDFA(parsePath);
         //读取用户程序
         readProgramTXT(programPath);
         if(parseProgram()){
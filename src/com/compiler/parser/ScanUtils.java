@@ -0,0 +1,125 @@
+package com.compiler.parser;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 词法分析中成段略过字符的快速路径
+ * 空白字符、注释和标识符等长串字符占源文件的大部分，逐个字符进入主循环时每个字符都要重复判断
+ * 是否处于注释中、是否是注释开始、是否是空白字符和token是否已经开始。这里的方法直接在字符数组上
+ * 查找一段字符的结束位置，循环体只有一次数组读取和一次比较，由JIT展开
+ * 空白字符和注释符号都是ASCII字符，UTF-8字节上的词法分析使用相同的方法，只是输入换成ByteBuffer
+ * */
+public class ScanUtils {
+    //空白字符（空格、制表符、回车、换行）的位掩码，字符c对应第c位
+    private static final long WHITESPACE_MASK = (1L << ' ') | (1L << '\t') | (1L << '\r') | (1L << '\n');
+    //会打断token的字符：空白字符和注释的开始字符'/'
+    private static final long DELIMITER_MASK = WHITESPACE_MASK | (1L << '/');
+
+    public static boolean isWhitespace(char ch){
+        return ch < 64 && (WHITESPACE_MASK >>> ch & 1) != 0;
+    }
+
+    /**
+     * 是否是词法分析主循环需要特殊处理的字符，这些字符不能被DFA的快速路径略过
+     * */
+    public static boolean isDelimiter(char ch){
+        return ch < 64 && (DELIMITER_MASK >>> ch & 1) != 0;
+    }
+
+    /**
+     * 略过连续的空白字符
+     * @param chars 字符数组
+     * @param from  开始位置
+     * @param end   结束位置（不含）
+     * @return      第一个不是空白字符的位置，全部是空白字符时返回end
+     * */
+    public static int skipWhitespace(char[] chars, int from, int end){
+        int i = from;
+        while(i < end && isWhitespace(chars[i]))
+            ++i;
+        return i;
+    }
+
+    /**
+     * 查找行注释的结束位置（换行符）
+     * @param chars 字符数组
+     * @param from  开始位置
+     * @param end   结束位置（不含）
+     * @return      换行符的位置，不存在时返回end
+     * */
+    public static int findLineEnd(char[] chars, int from, int end){
+        int i = from;
+        while(i < end && chars[i] != '\n')
+            ++i;
+        return i;
+    }
+
+    /**
+     * 查找块注释的结束符号 星号+斜杠
+     * 每次检查i+1处的字符：既不是'*'也不是'/'时，结束符号不可能从i或i+1开始，直接前进两个字符
+     * @param chars 字符数组
+     * @param from  开始位置
+     * @param end   结束位置（不含）
+     * @return      结束符号之后的位置，不存在时返回-1
+     * */
+    public static int findBlockCommentEnd(char[] chars, int from, int end){
+        int i = from;
+        while(i + 1 < end){
+            char ch = chars[i + 1];
+            if(ch == '/'){
+                if(chars[i] == '*')
+                    return i + 2;
+                i += 2;
+            }
+            else if(ch == '*'){
+                ++i;
+            }
+            else{
+                i += 2;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 略过连续的空白字节，见skipWhitespace(char[], int, int)
+     * */
+    public static int skipWhitespace(ByteBuffer bytes, int from, int end){
+        int i = from;
+        while(i < end && isWhitespace((char) bytes.get(i)))
+            ++i;
+        return i;
+    }
+
+    /**
+     * 查找行注释的结束位置，见findLineEnd(char[], int, int)
+     * */
+    public static int findLineEnd(ByteBuffer bytes, int from, int end){
+        int i = from;
+        while(i < end && bytes.get(i) != '\n')
+            ++i;
+        return i;
+    }
+
+    /**
+     * 查找块注释的结束符号，见findBlockCommentEnd(char[], int, int)
+     * */
+    public static int findBlockCommentEnd(ByteBuffer bytes, int from, int end){
+        int i = from;
+        while(i + 1 < end){
+            byte b = bytes.get(i + 1);
+            if(b == '/'){
+                if(bytes.get(i) == '*')
+                    return i + 2;
+                i += 2;
+            }
+            else if(b == '*'){
+                ++i;
+            }
+            else{
+                i += 2;
+            }
+        }
+        return -1;
+    }
+}
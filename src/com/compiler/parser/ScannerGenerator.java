@@ -0,0 +1,331 @@
+package com.compiler.parser;
+
+import com.compiler.model.TokenType;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * 词法分析表生成器
+ * 将编译后的DFA（转换表、终态、token类型、字符类）生成为一个独立的Java类，转换表以压缩字符串的形式保存在静态常量中
+ * 1.生成的类可以预先编译，运行时直接加载，不需要再读取正规文法、构造NFA和DFA
+ * 2.也可以在运行时通过javax.tools编译并加载
+ * 3.生成的类记录了正规文法、词法分析表格式版本及token分类规则（TokenClassifier.fingerprint）的SHA-256，
+ *   正规文法、保留字或TokenType改变后不会再使用旧的词法分析表
+ * 压缩方式：每个整数加1后作为一个字符（-1变为0），连续相同的值以(个数,值)的形式存储
+ * */
+public class ScannerGenerator {
+    public static final String PACKAGE_NAME = "com.compiler.parser";
+    public static final String CLASS_NAME = "GeneratedScanner";            //默认生成的类名
+    private static final int CHUNK_SIZE = 8192;                             //每个字符串常量的最大长度
+    //词法分析表的格式版本，DFA的生成方式或表的格式改变时需要增加，使旧的词法分析表失效
+    private static final int VERSION = 1;
+
+    /**
+     * 求正规文法文件内容的SHA-256，词法分析表的格式版本和token分类规则也参与计算
+     * DFA结点的token类型由正规文法和分类规则共同决定，只对正规文法求散列时，修改保留字后仍会使用旧的token类型
+     * @param path 正规文法的路径
+     * @return     十六进制的SHA-256
+     * */
+    public static String grammarHash(String path) throws IOException {
+        byte[] content = Files.readAllBytes(Paths.get(path));
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            messageDigest.update(content);
+            messageDigest.update(("v" + VERSION).getBytes(StandardCharsets.UTF_8));
+            messageDigest.update(TokenClassifier.fingerprint().getBytes(StandardCharsets.UTF_8));
+            byte[] digest = messageDigest.digest();
+            StringBuilder stringBuilder = new StringBuilder();
+            for(byte b : digest){
+                stringBuilder.append(String.format("%02x", b));
+            }
+            return stringBuilder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("不支持SHA-256", e);
+        }
+    }
+
+    /**
+     * 生成词法分析表的Java源代码
+     * @param dfa         编译后的DFA
+     * @param className   生成的类名
+     * @param grammarHash 正规文法的SHA-256
+     * @return            Java源代码
+     * */
+    public static String generate(CompiledDFA dfa, String className, String grammarHash){
+        CharClasses charClasses = dfa.getCharClasses();
+        int[] accepting = new int[dfa.getStateCount()];
+        int[] kinds = new int[dfa.getStateCount()];
+        for(int state = 0; state < dfa.getStateCount(); ++state){
+            accepting[state] = dfa.getAccepting()[state] ? 1 : 0;
+            TokenType kind = dfa.getKinds()[state];
+            kinds[state] = kind == null ? -1 : kind.ordinal();
+        }
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(PACKAGE_NAME).append(";\n\n");
+        source.append("/**\n");
+        source.append(" * 由ScannerGenerator根据正规文法生成的词法分析表，请勿手动修改\n");
+        source.append(" * DFA结点数：").append(dfa.getStateCount())
+                .append("，字符类数：").append(dfa.getClassCount()).append("\n");
+        source.append(" * */\n");
+        source.append("public final class ").append(className).append(" {\n");
+        source.append("    public static final String GRAMMAR_HASH = \"").append(grammarHash).append("\";\n");
+        source.append("    private static final int START_STATE = ").append(dfa.getStartState()).append(";\n");
+        appendPacked(source, "TRANSITIONS", dfa.getTransitions());
+        appendPacked(source, "ACCEPTING", accepting);
+        appendPacked(source, "KINDS", kinds);
+        appendPacked(source, "ASCII_CLASS", charClasses.getAsciiClass());
+        appendPacked(source, "RANGE_CLASS", charClasses.getRangeClass());
+        appendString(source, "RANGE_START", new String(charClasses.getRangeStart()));
+        appendString(source, "RANGE_END", new String(charClasses.getRangeEnd()));
+        source.append("    private static final String[] CLASS_CHARS = {");
+        for(int cls = 0; cls < charClasses.getClassCount(); ++cls){
+            source.append(cls == 0 ? "\n        " : ",\n        ");
+            appendLiteral(source, new String(charClasses.getChars(cls)));
+        }
+        source.append("\n    };\n\n");
+        source.append("    private ").append(className).append("() {\n    }\n\n");
+        source.append("    public static CompiledDFA load(){\n");
+        source.append("        return ScannerGenerator.load(START_STATE, TRANSITIONS, ACCEPTING, KINDS, ASCII_CLASS, RANGE_CLASS,\n");
+        source.append("                RANGE_START, RANGE_END, CLASS_CHARS);\n");
+        source.append("    }\n");
+        source.append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * 将生成的源代码写入到输出目录中对应包的位置
+     * @param source    Java源代码
+     * @param outputDir 源代码的根目录，如src
+     * @param className 生成的类名
+     * @return          写入的文件
+     * */
+    public static Path write(String source, String outputDir, String className) throws IOException {
+        Path path = Paths.get(outputDir, PACKAGE_NAME.replace('.', '/'), className + ".java");
+        Files.createDirectories(path.getParent());
+        Files.write(path, source.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    /**
+     * 由生成的类调用，解压词法分析表并创建DFA
+     * */
+    public static CompiledDFA load(int startState, String[] transitions, String[] accepting, String[] kinds,
+                                   String[] asciiClass, String[] rangeClass, String rangeStart, String rangeEnd,
+                                   String[] classChars){
+        char[][] chars = new char[classChars.length][];
+        for(int cls = 0; cls < classChars.length; ++cls){
+            chars[cls] = classChars[cls].toCharArray();
+        }
+        CharClasses charClasses = CharClasses.of(unpack(asciiClass), rangeStart.toCharArray(), rangeEnd.toCharArray(),
+                unpack(rangeClass), chars);
+        int[] acceptingValues = unpack(accepting);
+        int[] kindValues = unpack(kinds);
+        boolean[] acceptingStates = new boolean[acceptingValues.length];
+        TokenType[] stateKinds = new TokenType[kindValues.length];
+        TokenType[] types = TokenType.values();
+        for(int state = 0; state < acceptingValues.length; ++state){
+            acceptingStates[state] = acceptingValues[state] == 1;
+            stateKinds[state] = kindValues[state] < 0 ? null : types[kindValues[state]];
+        }
+        return CompiledDFA.of(startState, unpack(transitions), acceptingStates, stateKinds, charClasses);
+    }
+
+    /**
+     * 加载预先编译好的词法分析表
+     * @param className   生成的类名
+     * @param grammarHash 当前正规文法的SHA-256
+     * @return            编译后的DFA，类不存在或正规文法已改变时返回null
+     * */
+    public static CompiledDFA loadGenerated(String className, String grammarHash){
+        try {
+            return load(Class.forName(PACKAGE_NAME + "." + className), grammarHash);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 在运行时通过javax.tools编译生成的源代码，并加载词法分析表
+     * @param source      Java源代码
+     * @param className   生成的类名
+     * @param grammarHash 当前正规文法的SHA-256
+     * @return            编译后的DFA，没有可用的编译器或编译失败时返回null
+     * */
+    public static CompiledDFA compileAndLoad(String source, String className, String grammarHash){
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if(compiler == null){
+            System.out.println("当前运行环境没有Java编译器，无法编译词法分析表");
+            return null;
+        }
+        String qualifiedName = PACKAGE_NAME + "." + className;
+        Map<String, ByteArrayOutputStream> classFiles = new HashMap<>();
+        JavaFileObject sourceFile = new SimpleJavaFileObject(
+                URI.create("string:///" + qualifiedName.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(
+                compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind,
+                                                       FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("mem:///" + name.replace('.', '/') + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return classFiles.computeIfAbsent(name, k -> new ByteArrayOutputStream());
+                    }
+                };
+            }
+        };
+        List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"));
+        Boolean success = compiler.getTask(null, fileManager, null, options, null,
+                Collections.singletonList(sourceFile)).call();
+        if(success == null || !success){
+            System.out.println("词法分析表编译失败");
+            return null;
+        }
+        ClassLoader classLoader = new ClassLoader(ScannerGenerator.class.getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                ByteArrayOutputStream classFile = classFiles.get(name);
+                if(classFile == null)
+                    throw new ClassNotFoundException(name);
+                byte[] bytes = classFile.toByteArray();
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+        };
+        try {
+            return load(classLoader.loadClass(qualifiedName), grammarHash);
+        } catch (ClassNotFoundException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static CompiledDFA load(Class<?> scannerClass, String grammarHash){
+        try {
+            String hash = (String) scannerClass.getField("GRAMMAR_HASH").get(null);
+            if(!hash.equals(grammarHash))
+                return null;
+            return (CompiledDFA) scannerClass.getMethod("load").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 压缩整数数组，连续相同的值以(个数,值+1)的形式存储，并切分为多个字符串常量
+     * @param values 整数数组，每个值都应在-1到65534之间
+     * @return       压缩后的字符串
+     * */
+    static String[] pack(int[] values){
+        List<String> chunks = new ArrayList<>();
+        StringBuilder chunk = new StringBuilder();
+        int i = 0;
+        while(i < values.length){
+            int value = values[i];
+            if(value < -1 || value > 0xFFFE)
+                throw new RuntimeException("无法压缩的值：" + value);
+            int count = 1;
+            while(i + count < values.length && values[i + count] == value && count < 0xFFFF)
+                ++count;
+            chunk.append((char) count).append((char) (value + 1));
+            i += count;
+            if(chunk.length() >= CHUNK_SIZE){
+                chunks.add(chunk.toString());
+                chunk.setLength(0);
+            }
+        }
+        if(chunk.length() > 0 || chunks.isEmpty())
+            chunks.add(chunk.toString());
+        return chunks.toArray(new String[0]);
+    }
+
+    /**
+     * 解压由pack压缩的整数数组
+     * @param packed 压缩后的字符串
+     * @return       整数数组
+     * */
+    public static int[] unpack(String[] packed){
+        int length = 0;
+        for(String chunk : packed){
+            for(int i = 0; i < chunk.length(); i += 2){
+                length += chunk.charAt(i);
+            }
+        }
+        int[] values = new int[length];
+        int position = 0;
+        for(String chunk : packed){
+            for(int i = 0; i < chunk.length(); i += 2){
+                int count = chunk.charAt(i);
+                int value = chunk.charAt(i + 1) - 1;
+                Arrays.fill(values, position, position + count, value);
+                position += count;
+            }
+        }
+        return values;
+    }
+
+    private static void appendPacked(StringBuilder source, String name, int[] values){
+        source.append("    private static final String[] ").append(name).append(" = {");
+        String[] chunks = pack(values);
+        for(int i = 0; i < chunks.length; ++i){
+            source.append(i == 0 ? "\n        " : ",\n        ");
+            appendLiteral(source, chunks[i]);
+        }
+        source.append("\n    };\n");
+    }
+
+    private static void appendString(StringBuilder source, String name, String value){
+        source.append("    private static final String ").append(name).append(" = ");
+        appendLiteral(source, value);
+        source.append(";\n");
+    }
+
+    /**
+     * 输出Java字符串常量，不可见字符和非ASCII字符使用转义
+     * 换行等控制字符不能使用Unicode转义（会在词法分析前被替换），因此使用八进制转义
+     * */
+    private static void appendLiteral(StringBuilder source, String value){
+        source.append('"');
+        for(int i = 0; i < value.length(); ++i){
+            char ch = value.charAt(i);
+            if(ch == '"' || ch == '\\')
+                source.append('\\').append(ch);
+            else if(ch >= 0x20 && ch < 0x7F)
+                source.append(ch);
+            else if(ch < 0x100)
+                source.append(String.format("\\%03o", (int) ch));
+            else
+                source.append(String.format("\\u%04x", (int) ch));
+        }
+        source.append('"');
+    }
+
+    /**
+     * 根据正规文法生成词法分析表
+     * 参数：正规文法的路径 源代码的根目录
+     * */
+    public static void main(String[] args) throws IOException {
+        String parsePath = args.length > 0 ? args[0] : "src/com/compiler/parser/parse.txt";
+        String outputDir = args.length > 1 ? args[1] : "src";
+        ParserUtils.buildDFA(parsePath);
+        String source = generate(DFAUtils.compiledDFA, CLASS_NAME, grammarHash(parsePath));
+        System.out.println("词法分析表已生成：" + write(source, outputDir, CLASS_NAME));
+    }
+}
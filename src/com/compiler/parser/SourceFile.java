@@ -0,0 +1,171 @@
+package com.compiler.parser;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 用户程序的源文件
+ * 文件通过FileChannel.map映射到内存后整体解码，词法分析直接在解码后的字符数组上进行，
+ * 不再为每一行创建String。只保存每一行开始位置的偏移量，需要行列号时二分查找得到
+ * */
+public class SourceFile {
+    private final char[] chars;             //源文件的字符，只有前length个有效
+    private final CharBuffer content;       //源文件的内容，是chars的视图
+    private final int[] lineStarts;         //每一行开始的位置（有序）
+
+    private SourceFile(char[] chars, int length) {
+        this(chars, length, computeLineStarts(chars, length));
+    }
+
+    private SourceFile(char[] chars, int length, int[] lineStarts) {
+        this.chars = chars;
+        this.content = CharBuffer.wrap(chars, 0, length);
+        this.lineStarts = lineStarts;
+    }
+
+    /**
+     * 以内存映射的方式打开源文件
+     * @param path 源文件的路径
+     * @return     源文件
+     * */
+    public static SourceFile open(String path) throws IOException {
+        try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)){
+            MappedByteBuffer mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CharBuffer charBuffer = StandardCharsets.UTF_8.newDecoder().decode(mappedBuffer);
+            return of(charBuffer);
+        }
+    }
+
+    /**
+     * 根据已有的字符串创建源文件
+     * @param content 源文件的内容
+     * @return        源文件
+     * */
+    public static SourceFile of(CharSequence content){
+        if(content instanceof CharBuffer){
+            //解码得到的CharBuffer直接使用其中的数组，不再复制
+            CharBuffer charBuffer = (CharBuffer) content;
+            if(charBuffer.hasArray() && charBuffer.arrayOffset() == 0 && charBuffer.position() == 0)
+                return new SourceFile(charBuffer.array(), charBuffer.limit());
+        }
+        char[] chars = content.toString().toCharArray();
+        return new SourceFile(chars, chars.length);
+    }
+
+    /**
+     * 对源文件进行一次编辑，得到新的源文件，原源文件不变
+     * 编辑位置之前的行不变，之后的行整体平移，不需要重新查找换行符
+     * @param offset        编辑的位置
+     * @param removedLength 删除的字符数
+     * @param insertedText  插入的文本
+     * @return              编辑后的源文件
+     * */
+    public SourceFile edit(int offset, int removedLength, CharSequence insertedText){
+        int length = content.length();
+        if(offset < 0 || removedLength < 0 || offset + removedLength > length){
+            throw new RuntimeException("编辑位置超出源文件范围");
+        }
+        int removedEnd = offset + removedLength;
+        int shift = insertedText.length() - removedLength;
+        char[] newChars = new char[length + shift];
+        System.arraycopy(chars, 0, newChars, 0, offset);
+        insertedText.toString().getChars(0, insertedText.length(), newChars, offset);
+        System.arraycopy(chars, removedEnd, newChars, offset + insertedText.length(), length - removedEnd);
+        //编辑位置及之前开始的行不变
+        int keep = getRow(offset) + 1;
+        //删除部分之后开始的行平移
+        int from = keep;
+        while(from < lineStarts.length && lineStarts[from] <= removedEnd)
+            ++from;
+        int insertedLines = 0;
+        for(int i = 0; i < insertedText.length(); ++i){
+            if(insertedText.charAt(i) == '\n')
+                ++insertedLines;
+        }
+        int[] newLineStarts = new int[keep + insertedLines + lineStarts.length - from];
+        System.arraycopy(lineStarts, 0, newLineStarts, 0, keep);
+        int count = keep;
+        for(int i = 0; i < insertedText.length(); ++i){
+            if(insertedText.charAt(i) == '\n')
+                newLineStarts[count++] = offset + i + 1;
+        }
+        for(int i = from; i < lineStarts.length; ++i){
+            newLineStarts[count++] = lineStarts[i] + shift;
+        }
+        return new SourceFile(newChars, newChars.length, newLineStarts);
+    }
+
+    private static int[] computeLineStarts(char[] chars, int length){
+        int[] starts = new int[16];
+        int count = 0;
+        starts[count++] = 0;
+        for(int i = 0; i < length; ++i){
+            if(chars[i] == '\n'){
+                if(count == starts.length)
+                    starts = Arrays.copyOf(starts, count * 2);
+                starts[count++] = i + 1;
+            }
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * 获取偏移量所在的行（从0开始）
+     * @param offset 字符的偏移量
+     * @return       行号
+     * */
+    public int getRow(int offset){
+        int index = Arrays.binarySearch(lineStarts, offset);
+        //未找到时返回的是插入位置，所在行为插入位置的前一行
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * 获取偏移量所在的列（从0开始）
+     * @param offset 字符的偏移量
+     * @return       列号
+     * */
+    public int getCol(int offset){
+        return offset - lineStarts[getRow(offset)];
+    }
+
+    public CharSequence getContent() {
+        return content;
+    }
+
+    public int length(){
+        return content.length();
+    }
+
+    public char charAt(int index){
+        return content.charAt(index);
+    }
+
+    /**
+     * 获取源文件的字符数组，供词法分析的主循环直接访问，不能修改
+     * @return 字符数组，只有前length()个字符有效
+     * */
+    char[] getChars() {
+        return chars;
+    }
+
+    /**
+     * 获取源文件中的一段文本
+     * @param start 开始位置
+     * @param end   结束位置（不含）
+     * @return      文本内容
+     * */
+    public String getText(int start, int end){
+        return content.subSequence(start, end).toString();
+    }
+
+    public int getLineCount(){
+        return lineStarts.length;
+    }
+}
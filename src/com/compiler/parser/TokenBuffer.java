@@ -0,0 +1,321 @@
+package com.compiler.parser;
+
+import com.compiler.model.Token;
+import com.compiler.model.TokenType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按列存储的token序列
+ * 不再为每个token创建Token对象和String，只保存以下几列：
+ * 1.starts：token在源文件中的开始位置
+ * 2.lengths：token的长度
+ * 3.kinds：token类型的编号（TokenType.ordinal）
+ * 4.ids：token内容的编号，内容相同的标识符和保留字编号相同，常量为NO_ID
+ * token的内容和行列号只在需要时才从源文件中获取
+ * 内容编号使用开放定址的哈希表，直接对源文件中的字符求哈希并比较，不需要创建String
+ * 每个不同的内容只在第一次出现时复制到idChars中，因此内容编号与源文件中的位置无关，编辑源文件后可以继续使用
+ * */
+public class TokenBuffer {
+    public static final int NO_ID = -1;                        //常量没有内容编号
+    private static final TokenType[] KINDS = TokenType.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final SourceFile source;        //token所在的源文件
+    private int size = 0;                   //token数
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private int[] ids = new int[INITIAL_CAPACITY];
+
+    private int idCount = 0;                //不同内容的数目
+    private char[] idChars = new char[INITIAL_CAPACITY * 8];   //所有不同内容的字符
+    private int idCharCount = 0;            //idChars中已使用的长度
+    private int[] idStarts = new int[INITIAL_CAPACITY];        //每个内容在idChars中的开始位置
+    private int[] idLengths = new int[INITIAL_CAPACITY];       //每个内容的长度
+    private int[] idTable = new int[INITIAL_CAPACITY * 2];     //哈希表，存储内容编号+1，0表示空
+    private int[] idHashes = new int[INITIAL_CAPACITY];        //每个内容的哈希值
+
+    public TokenBuffer(SourceFile source) {
+        this.source = source;
+    }
+
+    /**
+     * 添加一个token
+     * @param start  token的开始位置
+     * @param length token的长度
+     * @param kind   token的类型
+     * */
+    public void add(int start, int length, TokenType kind){
+        ensureCapacity(size + 1);
+        starts[size] = start;
+        lengths[size] = length;
+        kinds[size] = (byte) kind.ordinal();
+        //常量的内容各不相同，不参与编号
+        ids[size] = kind == TokenType.CONST ? NO_ID : intern(start, length);
+        ++size;
+    }
+
+    /**
+     * 将另一个同一源文件中的token序列追加到末尾
+     * 只对other中每个不同的内容查找一次哈希表，得到内容编号的对应关系，token的各列整体复制，
+     * 内容编号按对应关系转换，结果与逐个add相同
+     * @param other 另一个token序列
+     * */
+    public void addAll(TokenBuffer other){
+        if(other.source != source){
+            throw new RuntimeException("只能合并同一源文件中的token");
+        }
+        //other中内容编号按第一次出现的顺序分配，因此按编号顺序加入时新编号的顺序与逐个add相同
+        int[] remap = new int[other.idCount];
+        for(int id = 0; id < other.idCount; ++id){
+            remap[id] = intern(other.idChars, other.idStarts[id], other.idLengths[id], other.idHashes[id]);
+        }
+        int count = other.size;
+        ensureCapacity(size + count);
+        System.arraycopy(other.starts, 0, starts, size, count);
+        System.arraycopy(other.lengths, 0, lengths, size, count);
+        System.arraycopy(other.kinds, 0, kinds, size, count);
+        for(int i = 0; i < count; ++i){
+            int id = other.ids[i];
+            ids[size + i] = id == NO_ID ? NO_ID : remap[id];
+        }
+        size += count;
+    }
+
+    private void ensureCapacity(int capacity){
+        if(capacity <= starts.length)
+            return;
+        capacity = Math.max(starts.length * 2, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        kinds = Arrays.copyOf(kinds, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+    }
+
+    /**
+     * 编辑源文件后，创建编辑后的源文件上的token序列，保留前prefixCount个token
+     * 内容编号表整体复制，原有token的内容编号保持不变
+     * @param source      编辑后的源文件
+     * @param prefixCount 保留的token数，这些token必须位于编辑位置之前
+     * @return            新的token序列
+     * */
+    TokenBuffer derive(SourceFile source, int prefixCount){
+        TokenBuffer buffer = new TokenBuffer(source);
+        int capacity = Math.max(starts.length, INITIAL_CAPACITY);
+        buffer.size = prefixCount;
+        buffer.starts = Arrays.copyOf(starts, capacity);
+        buffer.lengths = Arrays.copyOf(lengths, capacity);
+        buffer.kinds = Arrays.copyOf(kinds, capacity);
+        buffer.ids = Arrays.copyOf(ids, capacity);
+        buffer.idCount = idCount;
+        buffer.idChars = idChars.clone();
+        buffer.idCharCount = idCharCount;
+        buffer.idStarts = idStarts.clone();
+        buffer.idLengths = idLengths.clone();
+        buffer.idTable = idTable.clone();
+        buffer.idHashes = idHashes.clone();
+        return buffer;
+    }
+
+    /**
+     * 将原token序列中from之后的token追加到末尾，开始位置加上shift
+     * 要求当前序列由other.derive得到，因此可以直接复制内容编号
+     * @param other 编辑前的token序列
+     * @param from  开始复制的下标
+     * @param shift 编辑引起的位置偏移
+     * */
+    void addShifted(TokenBuffer other, int from, int shift){
+        int count = other.size - from;
+        if(count <= 0)
+            return;
+        ensureCapacity(size + count);
+        System.arraycopy(other.starts, from, starts, size, count);
+        System.arraycopy(other.lengths, from, lengths, size, count);
+        System.arraycopy(other.kinds, from, kinds, size, count);
+        System.arraycopy(other.ids, from, ids, size, count);
+        if(shift != 0){
+            for(int i = size; i < size + count; ++i){
+                starts[i] += shift;
+            }
+        }
+        size += count;
+    }
+
+    /**
+     * 获取源文件中一段文本的编号，第一次出现时分配新的编号
+     * @param start  文本的开始位置
+     * @param length 文本的长度
+     * @return       文本的编号
+     * */
+    private int intern(int start, int length){
+        int hash = 0;
+        for(int i = start; i < start + length; ++i){
+            hash = 31 * hash + source.charAt(i);
+        }
+        int mask = idTable.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while(idTable[slot] != 0){
+            int id = idTable[slot] - 1;
+            if(idHashes[id] == hash && idLengths[id] == length && regionEquals(idStarts[id], start, length))
+                return id;
+            slot = (slot + 1) & mask;
+        }
+        //新的内容
+        int id = newId(slot, hash, length);
+        for(int i = 0; i < length; ++i){
+            idChars[idStarts[id] + i] = source.charAt(start + i);
+        }
+        return id;
+    }
+
+    /**
+     * 获取一段已知哈希值的字符的编号，第一次出现时分配新的编号，用于合并另一个token序列的内容编号
+     * @param chars  字符数组
+     * @param start  开始位置
+     * @param length 长度
+     * @param hash   哈希值，与intern(start, length)的算法相同
+     * @return       内容编号
+     * */
+    private int intern(char[] chars, int start, int length, int hash){
+        int mask = idTable.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while(idTable[slot] != 0){
+            int id = idTable[slot] - 1;
+            if(idHashes[id] == hash && Arrays.equals(idChars, idStarts[id], idStarts[id] + idLengths[id],
+                    chars, start, start + length))
+                return id;
+            slot = (slot + 1) & mask;
+        }
+        int id = newId(slot, hash, length);
+        System.arraycopy(chars, start, idChars, idStarts[id], length);
+        return id;
+    }
+
+    /**
+     * 分配新的内容编号并填入哈希表的slot处，内容的字符由调用者复制到idChars中idStarts[id]开始的位置
+     * @param slot   哈希表中的空位
+     * @param hash   内容的哈希值
+     * @param length 内容的长度
+     * @return       新的内容编号
+     * */
+    private int newId(int slot, int hash, int length){
+        if(idCount == idStarts.length){
+            idStarts = Arrays.copyOf(idStarts, idCount * 2);
+            idLengths = Arrays.copyOf(idLengths, idCount * 2);
+            idHashes = Arrays.copyOf(idHashes, idCount * 2);
+        }
+        if(idCharCount + length > idChars.length)
+            idChars = Arrays.copyOf(idChars, Math.max(idChars.length * 2, idCharCount + length));
+        int id = idCount++;
+        idStarts[id] = idCharCount;
+        idLengths[id] = length;
+        idCharCount += length;
+        idHashes[id] = hash;
+        idTable[slot] = id + 1;
+        //装载因子超过1/2时扩容
+        if(idCount * 2 > idTable.length)
+            rehash();
+        return id;
+    }
+
+    private boolean regionEquals(int idStart, int start, int length){
+        for(int i = 0; i < length; ++i){
+            if(idChars[idStart + i] != source.charAt(start + i))
+                return false;
+        }
+        return true;
+    }
+
+    private void rehash(){
+        idTable = new int[idTable.length * 2];
+        int mask = idTable.length - 1;
+        for(int id = 0; id < idCount; ++id){
+            int slot = (idHashes[id] ^ (idHashes[id] >>> 16)) & mask;
+            while(idTable[slot] != 0)
+                slot = (slot + 1) & mask;
+            idTable[slot] = id + 1;
+        }
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public int getStart(int i){
+        return starts[i];
+    }
+
+    public int getLength(int i){
+        return lengths[i];
+    }
+
+    public TokenType getKind(int i){
+        return KINDS[kinds[i]];
+    }
+
+    /**
+     * 获取token内容的编号
+     * @param i token的下标
+     * @return  内容编号，常量返回NO_ID
+     * */
+    public int getId(int i){
+        return ids[i];
+    }
+
+    /**
+     * 不同内容的数目，内容编号为0..getIdCount()-1
+     * @return 不同内容的数目
+     * */
+    public int getIdCount(){
+        return idCount;
+    }
+
+    /**
+     * 获取编号对应的内容
+     * @param id 内容编号
+     * @return   内容
+     * */
+    public String getIdText(int id){
+        return new String(idChars, idStarts[id], idLengths[id]);
+    }
+
+    public String getText(int i){
+        return source.getText(starts[i], starts[i] + lengths[i]);
+    }
+
+    public int getRow(int i){
+        return source.getRow(starts[i]);
+    }
+
+    public int getCol(int i){
+        return source.getCol(starts[i]);
+    }
+
+    public SourceFile getSource() {
+        return source;
+    }
+
+    /**
+     * 创建下标对应的Token对象
+     * @param i token的下标
+     * @return  Token对象
+     * */
+    public Token getToken(int i){
+        return new Token(getRow(i), getCol(i), getKind(i), getText(i));
+    }
+
+    /**
+     * 转换为Token列表
+     * @return Token列表
+     * */
+    public List<Token> toTokenList(){
+        List<Token> tokenList = new ArrayList<>(size);
+        for(int i = 0; i < size; ++i){
+            tokenList.add(getToken(i));
+        }
+        return tokenList;
+    }
+}
@@ -0,0 +1,165 @@
+package com.compiler.parser;
+
+import com.compiler.model.Token;
+import com.compiler.model.TokenType;
+
+import java.util.*;
+
+/**
+ * token类型的分类自动机
+ * 由保留字的字典树和常量前缀自动机组合而成，与Token.genType的判断规则完全相同：
+ * 1.常量前缀自动机判断token是否为常量（数字或"开头，-后接非-，.后接任意字符，e后接+或-）
+ * 2.不是常量时，字典树判断token是否为保留字（关键词、限定符、界符、运算符）
+ * 3.都不是则为标识符
+ * 生成DFA时将其与DFA做乘积，使每个DFA结点都带有确定的token类型，词法分析时不再需要判断类型
+ * 状态编码为 (字典树结点 + 1) * PREFIX_COUNT + 前缀状态，字典树结点为-1表示已离开字典树
+ * */
+public class TokenClassifier {
+    //常量前缀自动机的状态
+    private static final int PREFIX_START = 0;      //空串
+    private static final int PREFIX_CONST = 1;      //一定是常量
+    private static final int PREFIX_NOT = 2;        //一定不是常量
+    private static final int PREFIX_MINUS = 3;      //只读取了-
+    private static final int PREFIX_DOT = 4;        //只读取了.
+    private static final int PREFIX_E = 5;          //只读取了e
+    private static final int PREFIX_COUNT = 6;
+    //分类规则的版本，常量前缀自动机或类型的判断顺序改变时需要增加，使已生成的词法分析表失效
+    private static final int VERSION = 1;
+
+    private final List<Map<Character, Integer>> trie = new ArrayList<>();      //字典树，结点0为根
+    private final List<TokenType> trieType = new ArrayList<>();                //字典树结点对应的保留字类型
+
+    private TokenClassifier(Map<String, TokenType> reservedWords) {
+        trie.add(new HashMap<>());
+        trieType.add(null);
+        for(Map.Entry<String, TokenType> entry : reservedWords.entrySet()){
+            int node = 0;
+            for(char ch : entry.getKey().toCharArray()){
+                Integer child = trie.get(node).get(ch);
+                if(child == null){
+                    child = trie.size();
+                    trie.get(node).put(ch, child);
+                    trie.add(new HashMap<>());
+                    trieType.add(null);
+                }
+                node = child;
+            }
+            trieType.set(node, entry.getValue());
+        }
+    }
+
+    /**
+     * 根据Token中定义的保留字创建分类自动机
+     * @return 分类自动机
+     * */
+    public static TokenClassifier create(){
+        return new TokenClassifier(Token.getReservedWords());
+    }
+
+    /**
+     * 分类规则的特征串，包含规则的版本、TokenType的名称（按ordinal的顺序）及排序后的保留字和类型
+     * 生成的词法分析表中保存的是TokenType.ordinal，因此这些内容改变后已生成的词法分析表不能再使用
+     * @return 特征串
+     * */
+    public static String fingerprint(){
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append("classifier v").append(VERSION).append('\n');
+        for(TokenType type : TokenType.values()){
+            stringBuilder.append(type.name()).append('\n');
+        }
+        //保留字的顺序与HashSet的遍历顺序无关
+        for(Map.Entry<String, TokenType> entry : new TreeMap<>(Token.getReservedWords()).entrySet()){
+            stringBuilder.append(entry.getValue().name()).append(' ').append(entry.getKey()).append('\n');
+        }
+        return stringBuilder.toString();
+    }
+
+    public int start(){
+        return encode(0, PREFIX_START);
+    }
+
+    /**
+     * 分类自动机的状态转换
+     * @param state 当前状态
+     * @param ch    输入字符
+     * @return      下一个状态
+     * */
+    public int next(int state, char ch){
+        int node = state / PREFIX_COUNT - 1;
+        int prefix = state % PREFIX_COUNT;
+        int nextNode = -1;
+        if(node >= 0){
+            Integer child = trie.get(node).get(ch);
+            if(child != null)
+                nextNode = child;
+        }
+        return encode(nextNode, nextPrefix(prefix, ch));
+    }
+
+    private static int nextPrefix(int prefix, char ch){
+        switch(prefix){
+            case PREFIX_START:
+                if((ch >= '0' && ch <= '9') || ch == '"')
+                    return PREFIX_CONST;
+                if(ch == '-')
+                    return PREFIX_MINUS;
+                if(ch == '.')
+                    return PREFIX_DOT;
+                if(ch == 'e')
+                    return PREFIX_E;
+                return PREFIX_NOT;
+            case PREFIX_MINUS:
+                return ch == '-' ? PREFIX_NOT : PREFIX_CONST;
+            case PREFIX_DOT:
+                return PREFIX_CONST;
+            case PREFIX_E:
+                return ch == '+' || ch == '-' ? PREFIX_CONST : PREFIX_NOT;
+            default:
+                return prefix;
+        }
+    }
+
+    private static int encode(int node, int prefix){
+        return (node + 1) * PREFIX_COUNT + prefix;
+    }
+
+    /**
+     * 获取以当前状态结束的token的类型
+     * @param state 当前状态
+     * @return      token的类型
+     * */
+    public TokenType kind(int state){
+        int node = state / PREFIX_COUNT - 1;
+        if(state % PREFIX_COUNT == PREFIX_CONST)
+            return TokenType.CONST;
+        if(node >= 0 && trieType.get(node) != null)
+            return trieType.get(node);
+        return TokenType.IDENTIFIER;
+    }
+
+    /**
+     * 获取字符在分类自动机中的特征，特征相同的字符在分类自动机中的转换完全相同
+     * 用于划分字符类，保证同一字符类中的字符可以用代表字符求分类自动机的转换
+     * @param ch 字符
+     * @return   特征
+     * */
+    public List<Integer> signature(char ch){
+        List<Integer> signature = new ArrayList<>();
+        //常量前缀自动机中的特征
+        if(ch >= '0' && ch <= '9')
+            signature.add(0);
+        else if(ch == '"' || ch == '-' || ch == '.' || ch == 'e' || ch == '+')
+            signature.add((int) ch);
+        else
+            signature.add(-1);
+        //字典树中的特征
+        for(int node = 0; node < trie.size(); ++node){
+            Integer child = trie.get(node).get(ch);
+            if(child != null){
+                signature.add(node);
+                signature.add(child);
+            }
+        }
+        return signature;
+    }
+}
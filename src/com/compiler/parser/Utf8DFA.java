@@ -0,0 +1,238 @@
+package com.compiler.parser;
+
+import com.compiler.model.TokenType;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 以UTF-8字节为输入的DFA
+ * 由编译后的DFA展开得到，词法分析时直接读取源文件的字节，不需要先解码为字符
+ * 1.结点0..charStateCount-1与CompiledDFA的结点一一对应，终态和token类型相同
+ * 2.ASCII字符只有一个字节，转换不变
+ * 3.非ASCII字符编码为多个字节，对每个DFA结点按这些字节序列建立一棵字典树，
+ *   树中的结点为中间结点（编号不小于charStateCount），既不是终态也没有token类型，
+ *   读完最后一个字节时到达原来的下一个结点，转换完全相同的中间结点在各棵字典树之间共享
+ * 4.在所有结点上转换都相同的字节属于同一个字节类，转换表按 state * classCount + byteClass 存储
+ * 代理字符（surrogate）不能单独编码为UTF-8，不在展开的范围内
+ * 不可变，可以被多个词法分析器并行使用
+ * */
+public class Utf8DFA {
+    private final CompiledDFA charDFA;          //展开前的DFA，用于输出错误信息
+    private final int charStateCount;           //与字符DFA对应的结点数
+    private final int stateCount;               //结点数（包括中间结点）
+    private final int classCount;               //字节类数
+    private final int[] byteClass;              //每个字节对应的字节类
+    private final int[] transitions;            //转换表
+    private final boolean[] accepting;          //是否是终态
+    private final TokenType[] kinds;            //以该结点结束的token的类型
+
+    private Utf8DFA(CompiledDFA charDFA, int stateCount, int classCount, int[] byteClass, int[] transitions,
+                    boolean[] accepting, TokenType[] kinds) {
+        this.charDFA = charDFA;
+        this.charStateCount = charDFA.getStateCount();
+        this.stateCount = stateCount;
+        this.classCount = classCount;
+        this.byteClass = byteClass;
+        this.transitions = transitions;
+        this.accepting = accepting;
+        this.kinds = kinds;
+    }
+
+    /**
+     * 将以字符为输入的DFA展开为以UTF-8字节为输入的DFA
+     * @param dfa 编译后的DFA
+     * @return    以字节为输入的DFA
+     * */
+    public static Utf8DFA of(CompiledDFA dfa){
+        int charStateCount = dfa.getStateCount();
+        CharClasses charClasses = dfa.getCharClasses();
+        //每个结点一行，每行256个字节的转换
+        List<int[]> rows = new ArrayList<>();
+        for(int state = 0; state < charStateCount; ++state){
+            int[] row = new int[256];
+            Arrays.fill(row, LexerDFA.NO_STATE);
+            for(int b = 0; b < 0x80; ++b){
+                row[b] = dfa.next(state, (char) b);
+            }
+            rows.add(row);
+        }
+        //非ASCII字符按UTF-8字节序列展开为字典树，内容相同的中间结点只保留一个，不同结点之间可以共享
+        Map<IntBuffer, Integer> intermediateIndex = new HashMap<>();
+        for(int state = 0; state < charStateCount; ++state){
+            List<byte[]> sequences = new ArrayList<>();
+            List<Integer> targets = new ArrayList<>();
+            for(int cls = 1; cls < charClasses.getClassCount(); ++cls){
+                for(char ch : charClasses.getChars(cls)){
+                    if(ch < 0x80 || Character.isSurrogate(ch))
+                        continue;
+                    int target = dfa.next(state, ch);
+                    if(target == LexerDFA.NO_STATE)
+                        continue;
+                    sequences.add(String.valueOf(ch).getBytes(StandardCharsets.UTF_8));
+                    targets.add(target);
+                }
+            }
+            fillTrie(rows.get(state), sequences, targets, 0, rows, intermediateIndex);
+        }
+        //在所有结点上转换都相同的字节划分为同一个字节类
+        int stateCount = rows.size();
+        int[] byteClass = new int[256];
+        Map<List<Integer>, Integer> classIndex = new HashMap<>();
+        List<Integer> representatives = new ArrayList<>();
+        for(int b = 0; b < 256; ++b){
+            List<Integer> column = new ArrayList<>(stateCount);
+            for(int[] row : rows){
+                column.add(row[b]);
+            }
+            Integer cls = classIndex.get(column);
+            if(cls == null){
+                cls = representatives.size();
+                classIndex.put(column, cls);
+                representatives.add(b);
+            }
+            byteClass[b] = cls;
+        }
+        int classCount = representatives.size();
+        int[] transitions = new int[stateCount * classCount];
+        for(int state = 0; state < stateCount; ++state){
+            for(int cls = 0; cls < classCount; ++cls){
+                transitions[state * classCount + cls] = rows.get(state)[representatives.get(cls)];
+            }
+        }
+        boolean[] accepting = new boolean[stateCount];
+        TokenType[] kinds = new TokenType[stateCount];
+        for(int state = 0; state < charStateCount; ++state){
+            accepting[state] = dfa.isAccepting(state);
+            kinds[state] = dfa.getKind(state);
+        }
+        return new Utf8DFA(dfa, stateCount, classCount, byteClass, transitions, accepting, kinds);
+    }
+
+    /**
+     * 填充字典树中的一个结点：按第depth个字节分组，组内的字节序列在这个字节结束时直接到达目标结点，
+     * 否则到达由剩余字节构成的中间结点
+     * @param row               要填充的结点的转换
+     * @param sequences         经过这个结点的字节序列
+     * @param targets           每个字节序列最终到达的结点
+     * @param depth             当前处理的是字节序列中的第几个字节
+     * @param rows              所有结点的转换，新的中间结点追加到末尾
+     * @param intermediateIndex 已有的中间结点，以转换的内容为键
+     * */
+    private static void fillTrie(int[] row, List<byte[]> sequences, List<Integer> targets, int depth,
+                                 List<int[]> rows, Map<IntBuffer, Integer> intermediateIndex){
+        Map<Integer, List<Integer>> groups = new TreeMap<>();
+        for(int i = 0; i < sequences.size(); ++i){
+            groups.computeIfAbsent(sequences.get(i)[depth] & 0xFF, k -> new ArrayList<>()).add(i);
+        }
+        for(Map.Entry<Integer, List<Integer>> group : groups.entrySet()){
+            List<byte[]> rest = new ArrayList<>();
+            List<Integer> restTargets = new ArrayList<>();
+            for(int i : group.getValue()){
+                if(sequences.get(i).length == depth + 1){
+                    row[group.getKey()] = targets.get(i);
+                }
+                else{
+                    rest.add(sequences.get(i));
+                    restTargets.add(targets.get(i));
+                }
+            }
+            if(rest.isEmpty())
+                continue;
+            int[] child = new int[256];
+            Arrays.fill(child, LexerDFA.NO_STATE);
+            fillTrie(child, rest, restTargets, depth + 1, rows, intermediateIndex);
+            Integer childState = intermediateIndex.get(IntBuffer.wrap(child));
+            if(childState == null){
+                childState = rows.size();
+                rows.add(child);
+                intermediateIndex.put(IntBuffer.wrap(child), childState);
+            }
+            row[group.getKey()] = childState;
+        }
+    }
+
+    /**
+     * DFA的状态转换
+     * @param state 当前结点编号
+     * @param b     输入字节
+     * @return      下一个结点的编号，没有转换路径时返回NO_STATE
+     * */
+    public int next(int state, byte b){
+        return transitions[state * classCount + byteClass[b & 0xFF]];
+    }
+
+    /**
+     * 快速略过在当前结点上自环的一段字节，遇到空白字符和'/'时停止，见LexerDFA.skipSelfLoop
+     * 中间结点没有自环，因此略过的都是ASCII字符
+     * @param state 当前结点编号
+     * @param bytes 源文件的字节
+     * @param from  开始位置
+     * @param end   结束位置（不含）
+     * @return      第一个不能自环的字节的位置
+     * */
+    public int skipSelfLoop(int state, ByteBuffer bytes, int from, int end){
+        int base = state * classCount;
+        int i = from;
+        while(i < end){
+            byte b = bytes.get(i);
+            if(ScanUtils.isDelimiter((char) b) || transitions[base + byteClass[b & 0xFF]] != state)
+                break;
+            ++i;
+        }
+        return i;
+    }
+
+    /**
+     * 是否是读到一个多字节字符中间时的结点
+     * @param state 结点编号
+     * @return      true表示是中间结点
+     * */
+    public boolean isIntermediate(int state){
+        return state >= charStateCount;
+    }
+
+    public boolean isAccepting(int state){
+        return accepting[state];
+    }
+
+    public TokenType getKind(int state){
+        return kinds[state];
+    }
+
+    /**
+     * 获取当前结点可以接受的字符，用于输出错误信息
+     * @param state 当前结点编号，必须是与字符DFA对应的结点
+     * @return      形如'a','b'的字符串
+     * */
+    public String expected(int state){
+        return charDFA.expected(state);
+    }
+
+    public int getStartState() {
+        return charDFA.getStartState();
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public CompiledDFA getCharDFA() {
+        return charDFA;
+    }
+
+    @Override
+    public String toString() {
+        return "Utf8DFA{" +
+                "states=" + stateCount +
+                ", charStates=" + charStateCount +
+                ", classes=" + classCount +
+                '}';
+    }
+}
@@ -0,0 +1,242 @@
+package com.compiler.parser;
+
+import com.compiler.model.Token;
+import com.compiler.model.TokenStream;
+import com.compiler.model.TokenType;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 直接在UTF-8字节上进行的词法分析
+ * 规则与Lexer完全相同（最长匹配，空白字符和注释表示token的结束），只是输入为Utf8Source的字节，
+ * 转换使用Utf8DFA，得到的位置均为字节偏移
+ * 读到多字节字符的中间时DFA处于中间结点，此时不能转换说明这个字符不能被接受：
+ * 退回到字符的开始位置和读这个字符之前的结点，再按Lexer的规则结束token或报错，
+ * 因此对合法的UTF-8输入，识别到的token与先解码再分析的结果相同
+ * 不合法的UTF-8字节序列在任何结点上都没有转换，作为词法错误报告
+ * */
+public class Utf8Lexer implements TokenStream {
+    private final Utf8DFA dfa;              //以字节为输入的DFA
+    private final Utf8Source source;        //用户程序的源文件
+    private final ByteBuffer bytes;         //源文件的字节
+    private final int end;                  //扫描的结束位置（不含）
+    private final boolean printError;       //出错时是否直接输出错误信息
+    private int index;                      //当前扫描到的位置
+    private boolean isBlockComment;         //当前是否处于块注释中
+    private String errorMessage = null;     //词法分析的错误信息，为null表示没有出错
+    private int lastStart;                  //最近识别到的token的开始位置
+    private int lastEnd;                    //最近识别到的token的结束位置（不含）
+    private int lastState;                  //最近识别到的token结束时的DFA结点
+
+    public Utf8Lexer(Utf8DFA dfa, Utf8Source source) {
+        this(dfa, source, true);
+    }
+
+    /**
+     * @param dfa        以字节为输入的DFA
+     * @param source     用户程序的源文件
+     * @param printError 出错时是否直接输出错误信息
+     * */
+    public Utf8Lexer(Utf8DFA dfa, Utf8Source source, boolean printError) {
+        this.dfa = dfa;
+        this.source = source;
+        this.bytes = source.getBytes();
+        this.index = 0;
+        this.end = source.length();
+        this.printError = printError;
+    }
+
+    /**
+     * 识别下一个token
+     * @return 识别到的token，到达文件末尾或出错时返回null
+     * */
+    @Override
+    public Token next(){
+        if(!scan())
+            return null;
+        return createToken(lastStart, lastEnd, lastState);
+    }
+
+    /**
+     * 识别下一个token，并追加到token序列中，不创建Token对象
+     * @param buffer token序列
+     * @return       是否识别到了token，到达文件末尾或出错时返回false
+     * */
+    public boolean next(Utf8TokenBuffer buffer){
+        if(!scan())
+            return false;
+        TokenType kind = dfa.getKind(lastState);
+        if(kind == null)
+            //DFA未分类时按内容判断类型
+            kind = createToken(lastStart, lastEnd, lastState).getType();
+        buffer.add(lastStart, lastEnd - lastStart, kind);
+        return true;
+    }
+
+    /**
+     * 对剩余的输入进行词法分析
+     * @return 识别到的token序列，出错时返回null
+     * */
+    public Utf8TokenBuffer tokenize(){
+        Utf8TokenBuffer buffer = new Utf8TokenBuffer(source);
+        while(next(buffer)){
+            //逐个识别token，直到文件末尾或出错
+        }
+        return hasError() ? null : buffer;
+    }
+
+    /**
+     * 从当前位置开始识别下一个token，结果记录在lastStart、lastEnd和lastState中
+     * @return 是否识别到了token，到达文件末尾或出错时返回false
+     * */
+    private boolean scan(){
+        if(errorMessage != null)
+            return false;
+        int tokenStart = -1;                            //当前token的开始位置，-1表示当前没有token
+        int currentState = dfa.getStartState();         //当前匹配的DFA结点
+        int charStart = 0;                              //当前字符的开始位置
+        int charState = currentState;                   //读当前字符之前的DFA结点
+        while(index < end){
+            if(isBlockComment){
+                //块注释中只需要查找注释的结束
+                int commentEnd = ScanUtils.findBlockCommentEnd(bytes, index, end);
+                if(commentEnd < 0){
+                    index = end;
+                }
+                else{
+                    isBlockComment = false;
+                    index = commentEnd;
+                }
+                continue;
+            }
+            byte b = bytes.get(index);
+            boolean intermediate = dfa.isIntermediate(currentState);
+            if(!intermediate){
+                if(b == '/' && index + 1 < end && (bytes.get(index + 1) == '*' || bytes.get(index + 1) == '/')){
+                    //注释同时表示上一个token的结束
+                    if(tokenStart >= 0)
+                        return accept(tokenStart, index, currentState);
+                    if(bytes.get(index + 1) == '*'){
+                        //块注释开始
+                        isBlockComment = true;
+                        index += 2;
+                    }
+                    else{
+                        //略过行注释
+                        index = ScanUtils.findLineEnd(bytes, index, end);
+                    }
+                    continue;
+                }
+                if(ScanUtils.isWhitespace((char) b)){
+                    //略过空白字符，空白字符还同时表示一个token的结束
+                    if(tokenStart >= 0)
+                        return accept(tokenStart, index++, currentState);
+                    index = ScanUtils.skipWhitespace(bytes, index + 1, end);
+                    continue;
+                }
+                if(tokenStart < 0){
+                    //设置当前token的开始位置，并设置为DFA的开始结点
+                    tokenStart = index;
+                    currentState = dfa.getStartState();
+                }
+                //记录字符的开始位置，多字节字符不能被接受时退回到这里
+                charStart = index;
+                charState = currentState;
+            }
+            int nextState = dfa.next(currentState, b);
+            if(nextState != LexerDFA.NO_STATE){
+                ++index;
+                if(nextState == currentState)
+                    //自环时成段略过之后同样自环的字节
+                    index = dfa.skipSelfLoop(currentState, bytes, index, end);
+                currentState = nextState;
+                continue;
+            }
+            if(intermediate){
+                //多字节字符不能被接受，退回到字符的开始
+                index = charStart;
+                currentState = charState;
+            }
+            if(index > tokenStart && dfa.isAccepting(currentState)){
+                //当前结点是终态，则当前符号读取结束，下一次从当前字符开始识别
+                return accept(tokenStart, index, currentState);
+            }
+            //非终态但不能转换说明出现了词法分析错误
+            printError(currentState, index, "当前状态非终结状态!");
+            return false;
+        }
+        //判断最后一个token的结点是否是终态
+        if(tokenStart >= 0){
+            if(dfa.isIntermediate(currentState)){
+                //文件在多字节字符的中间结束
+                index = charStart;
+                if(charStart > tokenStart && dfa.isAccepting(charState))
+                    return accept(tokenStart, charStart, charState);
+                printError(charState, charStart, "当前状态非终结状态!");
+                return false;
+            }
+            if(dfa.isAccepting(currentState))
+                return accept(tokenStart, end, currentState);
+            //错误位置为最后一个字符的开始字节
+            int last = end - 1;
+            while(last > tokenStart && (bytes.get(last) & 0xC0) == 0x80)
+                --last;
+            printError(currentState, last, "输入结束时当前状态非终结状态!");
+        }
+        return false;
+    }
+
+    private boolean accept(int start, int end, int finalState){
+        lastStart = start;
+        lastEnd = end;
+        lastState = finalState;
+        return true;
+    }
+
+    @Override
+    public boolean hasError() {
+        return errorMessage != null;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * 根据token在源文件中的位置创建token，只有这时才对token的字节解码
+     * @param start      token开始的字节位置
+     * @param end        token结束的字节位置（不含）
+     * @param finalState token结束时的DFA结点
+     * @return           创建好的token
+     * */
+    private Token createToken(int start, int end, int finalState){
+        Token token = new Token(source.getRow(start), source.getCol(start), dfa.getKind(finalState), source.getText(start, end));
+        if(token.getType() == null)
+            //DFA未分类时按内容判断类型
+            token.setType();
+        return token;
+    }
+
+    /**
+     * 输出词法分析的错误信息，格式与Lexer相同
+     * @param currentState 出错时的DFA结点
+     * @param index        出错的字节位置
+     * @param reason       出错原因
+     * */
+    private void printError(int currentState, int index, String reason){
+        StringBuffer errorInfo = new StringBuffer();
+        errorInfo.append("词法分析出错!\n");
+        errorInfo.append("出错位置:").append(" 行:").append(source.getRow(index) + 1)
+                .append(", 列:").append(source.getCol(index) + 1)
+                .append(", 内容:").append(source.getCharAt(index));
+        errorInfo.append("\n出错原因:").append(reason).append("\n");
+        errorInfo.append("期望匹配:{").append(dfa.expected(currentState)).append("}");
+        errorMessage = errorInfo.toString();
+        if(printError)
+            System.out.println(errorMessage);
+    }
+
+    public Utf8Source getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,150 @@
+package com.compiler.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 以UTF-8字节形式保存的用户程序
+ * 与SourceFile不同，文件映射到内存后不进行解码，词法分析直接在字节上进行，位置均为字节偏移
+ * 只有在需要token的内容或列号时才对相应的一段字节解码
+ * */
+public class Utf8Source {
+    private final ByteBuffer bytes;         //源文件的字节，按绝对位置读取
+    private final int length;               //字节数
+    private final int[] lineStarts;         //每一行开始的字节位置（有序）
+
+    private Utf8Source(ByteBuffer bytes) {
+        this.bytes = bytes;
+        this.length = bytes.limit();
+        this.lineStarts = computeLineStarts(bytes, length);
+    }
+
+    /**
+     * 以内存映射的方式打开源文件，不进行解码
+     * @param path 源文件的路径
+     * @return     源文件
+     * */
+    public static Utf8Source open(String path) throws IOException {
+        try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)){
+            return new Utf8Source(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * 根据已有的字节创建源文件
+     * @param bytes UTF-8编码的字节
+     * @return      源文件
+     * */
+    public static Utf8Source of(byte[] bytes){
+        return new Utf8Source(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * 根据已有的ByteBuffer创建源文件，使用[0, limit)之间的字节
+     * @param bytes UTF-8编码的字节
+     * @return      源文件
+     * */
+    public static Utf8Source of(ByteBuffer bytes){
+        return new Utf8Source(bytes);
+    }
+
+    /**
+     * 根据字符串创建源文件
+     * @param text 源文件的内容
+     * @return     源文件
+     * */
+    public static Utf8Source of(String text){
+        return of(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int[] computeLineStarts(ByteBuffer bytes, int length){
+        int[] starts = new int[16];
+        int count = 0;
+        starts[count++] = 0;
+        for(int i = 0; i < length; ++i){
+            if(bytes.get(i) == '\n'){
+                if(count == starts.length)
+                    starts = Arrays.copyOf(starts, count * 2);
+                starts[count++] = i + 1;
+            }
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * 获取字节偏移所在的行（从0开始）
+     * @param offset 字节偏移
+     * @return       行号
+     * */
+    public int getRow(int offset){
+        int index = Arrays.binarySearch(lineStarts, offset);
+        //未找到时返回的是插入位置，所在行为插入位置的前一行
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * 获取字节偏移所在的列（从0开始），按UTF-16字符计算，与SourceFile.getCol相同
+     * 每个不是后续字节(10xxxxxx)的字节开始一个字符，4字节的字符对应两个UTF-16字符
+     * @param offset 字节偏移
+     * @return       列号
+     * */
+    public int getCol(int offset){
+        int col = 0;
+        for(int i = lineStarts[getRow(offset)]; i < offset; ++i){
+            int b = bytes.get(i) & 0xFF;
+            if((b & 0xC0) != 0x80)
+                ++col;
+            if((b & 0xF8) == 0xF0)
+                ++col;
+        }
+        return col;
+    }
+
+    public int length(){
+        return length;
+    }
+
+    public byte byteAt(int index){
+        return bytes.get(index);
+    }
+
+    /**
+     * 获取源文件中的一段文本
+     * @param start 开始的字节位置
+     * @param end   结束的字节位置（不含）
+     * @return      解码后的文本
+     * */
+    public String getText(int start, int end){
+        byte[] text = new byte[end - start];
+        bytes.get(start, text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 获取从某个位置开始的一个字符，用于输出错误信息
+     * @param offset 字节偏移
+     * @return       该位置的字符，不是合法的UTF-8编码时为替换字符
+     * */
+    public String getCharAt(int offset){
+        int b = bytes.get(offset) & 0xFF;
+        int size = b >= 0xF0 && b < 0xF8 ? 4 : b >= 0xE0 && b < 0xF0 ? 3 : b >= 0xC0 && b < 0xE0 ? 2 : 1;
+        //只包括实际存在的后续字节
+        int charEnd = offset + 1;
+        while(charEnd < offset + size && charEnd < length && (bytes.get(charEnd) & 0xC0) == 0x80)
+            ++charEnd;
+        return getText(offset, charEnd);
+    }
+
+    public ByteBuffer getBytes() {
+        return bytes;
+    }
+
+    public int getLineCount(){
+        return lineStarts.length;
+    }
+}
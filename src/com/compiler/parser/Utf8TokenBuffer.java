@@ -0,0 +1,99 @@
+package com.compiler.parser;
+
+import com.compiler.model.Token;
+import com.compiler.model.TokenType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按列存储的token序列，位置为UTF-8源文件中的字节偏移
+ * 与TokenBuffer相同，只保存开始位置、长度和类型，token的内容和行列号只在需要时才解码得到
+ * */
+public class Utf8TokenBuffer {
+    private static final TokenType[] KINDS = TokenType.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Utf8Source source;        //token所在的源文件
+    private int size = 0;                   //token数
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+
+    public Utf8TokenBuffer(Utf8Source source) {
+        this.source = source;
+    }
+
+    /**
+     * 添加一个token
+     * @param start  token开始的字节位置
+     * @param length token的字节数
+     * @param kind   token的类型
+     * */
+    public void add(int start, int length, TokenType kind){
+        if(size == starts.length){
+            int capacity = size * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+        }
+        starts[size] = start;
+        lengths[size] = length;
+        kinds[size] = (byte) kind.ordinal();
+        ++size;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public int getStart(int i){
+        return starts[i];
+    }
+
+    public int getLength(int i){
+        return lengths[i];
+    }
+
+    public TokenType getKind(int i){
+        return KINDS[kinds[i]];
+    }
+
+    public String getText(int i){
+        return source.getText(starts[i], starts[i] + lengths[i]);
+    }
+
+    public int getRow(int i){
+        return source.getRow(starts[i]);
+    }
+
+    public int getCol(int i){
+        return source.getCol(starts[i]);
+    }
+
+    public Utf8Source getSource() {
+        return source;
+    }
+
+    /**
+     * 创建下标对应的Token对象
+     * @param i token的下标
+     * @return  Token对象
+     * */
+    public Token getToken(int i){
+        return new Token(getRow(i), getCol(i), getKind(i), getText(i));
+    }
+
+    /**
+     * 转换为Token列表
+     * @return Token列表
+     * */
+    public List<Token> toTokenList(){
+        List<Token> tokenList = new ArrayList<>(size);
+        for(int i = 0; i < size; ++i){
+            tokenList.add(getToken(i));
+        }
+        return tokenList;
+    }
+}